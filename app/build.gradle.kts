@@ -70,6 +70,13 @@ dependencies {
     implementation("androidx.cardview:cardview:1.0.0")
     implementation("androidx.activity:activity-ktx:1.8.0")
 
+    // Background work
+    implementation("androidx.work:work-runtime:2.8.1")
+
+    // Local report store
+    implementation("androidx.room:room-runtime:2.5.2")
+    annotationProcessor("androidx.room:room-compiler:2.5.2")
+
     // Firebase
     implementation(platform("com.google.firebase:firebase-bom:32.3.1"))
     implementation("com.google.firebase:firebase-auth-ktx")
@@ -79,6 +86,7 @@ dependencies {
 
     // Image Loading
     implementation("com.squareup.picasso:picasso:2.8")
+    implementation("com.squareup.okhttp3:okhttp:3.12.13")
 
     // Google Maps & Location Services
     implementation("com.google.android.gms:play-services-maps:18.1.0")
@@ -86,6 +94,8 @@ dependencies {
 
     // Testing
     testImplementation("junit:junit:4.13.2")
+    // The android.jar org.json is stubbed out in local unit tests
+    testImplementation("org.json:json:20231013")
     androidTestImplementation("androidx.test.ext:junit:1.1.5")
     androidTestImplementation("androidx.test.espresso:espresso-core:3.5.1")
 }
\ No newline at end of file
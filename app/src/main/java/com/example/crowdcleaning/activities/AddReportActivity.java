@@ -21,23 +21,29 @@ import androidx.core.content.ContextCompat;
 import androidx.core.content.FileProvider;
 
 import com.example.crowdcleaning.R;
-import com.example.crowdcleaning.utils.FirebaseUtils;
+import com.example.crowdcleaning.utils.GeoHash;
+import com.example.crowdcleaning.utils.ImageLoader;
+import com.example.crowdcleaning.utils.ReportOutbox;
 import com.google.android.gms.location.FusedLocationProviderClient;
 import com.google.android.gms.location.LocationServices;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
 import com.google.firebase.firestore.FirebaseFirestore;
-import com.squareup.picasso.Picasso;
 
 import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.UUID;
 
 public class AddReportActivity extends AppCompatActivity {
 
@@ -226,34 +232,10 @@ public class AddReportActivity extends AppCompatActivity {
             return;
         }
 
-        progressDialog.show();
-
-        if (imageData != null) {
-            // Upload image first, then save report
-            uploadImageAndSaveReport(title, description, address);
-        } else {
-            // Save report without image
-            saveReportToFirestore(title, description, address, null);
-        }
-    }
-
-    private void uploadImageAndSaveReport(String title, String description, String address) {
-        FirebaseUtils.uploadImage(imageData, "report_images", new FirebaseUtils.UploadCallback() {
-            @Override
-            public void onSuccess(String downloadUrl) {
-                saveReportToFirestore(title, description, address, downloadUrl);
-            }
-
-            @Override
-            public void onFailure(String error) {
-                progressDialog.dismiss();
-                Toast.makeText(AddReportActivity.this, "Image upload failed: " + error, Toast.LENGTH_SHORT).show();
-                Log.e(TAG, "Image upload failed: " + error);
-            }
-        });
+        queueReport(title, description, address);
     }
 
-    private void saveReportToFirestore(String title, String description, String address, String imageUrl) {
+    private void queueReport(String title, String description, String address) {
         Map<String, Object> report = new HashMap<>();
         report.put("userId", currentUser.getUid());
         report.put("userEmail", currentUser.getEmail());
@@ -263,28 +245,35 @@ public class AddReportActivity extends AppCompatActivity {
         report.put("address", address);
         report.put("latitude", currentLatitude);
         report.put("longitude", currentLongitude);
-        report.put("imageUrl", imageUrl);
+        report.put(GeoHash.FIELD, GeoHash.encode(currentLatitude, currentLongitude));
         report.put("status", "pending");
         report.put("timestamp", new Date());
         report.put("createdAt", new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.getDefault()).format(new Date()));
 
-        db.collection("reports")
-                .add(report)
-                .addOnSuccessListener(documentReference -> {
-                    progressDialog.dismiss();
-                    Toast.makeText(AddReportActivity.this, "Report submitted successfully!", Toast.LENGTH_SHORT).show();
-
-                    // Navigate back to citizen dashboard
-                    Intent intent = new Intent(AddReportActivity.this, CitizenDashboardActivity.class);
-                    intent.addFlags(Intent.FLAG_ACTIVITY_CLEAR_TOP | Intent.FLAG_ACTIVITY_SINGLE_TOP);
-                    startActivity(intent);
-                    finish();
-                })
-                .addOnFailureListener(e -> {
-                    progressDialog.dismiss();
-                    Toast.makeText(AddReportActivity.this, "Failed to submit report: " + e.getMessage(), Toast.LENGTH_SHORT).show();
-                    Log.e(TAG, "Error saving report", e);
-                });
+        // Queued on the device; ReportOutboxWorker uploads the photo and creates the report when online
+        try {
+            List<File> images = new ArrayList<>();
+            if (imageData != null) {
+                File imageFile = new File(getCacheDir(), UUID.randomUUID().toString() + ".jpg");
+                try (OutputStream out = new FileOutputStream(imageFile)) {
+                    out.write(imageData);
+                }
+                images.add(imageFile);
+            }
+            ReportOutbox.enqueue(this, report, "imageUrl", images);
+        } catch (IOException e) {
+            Toast.makeText(AddReportActivity.this, "Failed to submit report: " + e.getMessage(), Toast.LENGTH_SHORT).show();
+            Log.e(TAG, "Error queueing report", e);
+            return;
+        }
+
+        Toast.makeText(AddReportActivity.this, "Report submitted successfully!", Toast.LENGTH_SHORT).show();
+
+        // Navigate back to citizen dashboard
+        Intent intent = new Intent(AddReportActivity.this, CitizenDashboardActivity.class);
+        intent.addFlags(Intent.FLAG_ACTIVITY_CLEAR_TOP | Intent.FLAG_ACTIVITY_SINGLE_TOP);
+        startActivity(intent);
+        finish();
     }
 
     // Permission handling methods
@@ -378,7 +367,7 @@ public class AddReportActivity extends AppCompatActivity {
     private void loadImageFromUri(Uri imageUri) {
         try {
             // Display image preview - using built-in drawables to avoid missing resource errors
-            Picasso.get()
+            ImageLoader.get(this)
                     .load(imageUri)
                     .placeholder(android.R.drawable.ic_menu_gallery) // Use built-in gallery icon
                     .error(android.R.drawable.ic_menu_report_image) // Use built-in error icon
@@ -15,14 +15,24 @@ import androidx.recyclerview.widget.RecyclerView;
 import com.example.crowdcleaning.R;
 import com.example.crowdcleaning.adapters.RecentActivityAdapter;
 import com.example.crowdcleaning.models.RecentActivity;
+import com.example.crowdcleaning.models.ReportModel;
+import com.example.crowdcleaning.utils.AnalyticsRollups;
+import com.example.crowdcleaning.utils.GeohashBackfillWorker;
+import com.example.crowdcleaning.utils.ReportRepository;
+import com.example.crowdcleaning.utils.VolunteerDispatcher;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
+import com.google.firebase.firestore.AggregateQuerySnapshot;
+import com.google.firebase.firestore.AggregateSource;
+import com.google.firebase.firestore.CollectionReference;
 import com.google.firebase.firestore.FirebaseFirestore;
 import com.google.firebase.firestore.Query;
-import com.google.firebase.firestore.QueryDocumentSnapshot;
 
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
 import java.util.Locale;
@@ -33,14 +43,18 @@ public class AdminDashboardActivity extends AppCompatActivity {
 
     private TextView textTotalReports, textCleanedReports, textInProgress, textPending;
     private Button buttonViewAllReports, buttonSendNotification, buttonGenerateReport, buttonLogout, buttonBack;
+    private Button buttonAutoAssign;
     private RecyclerView recyclerViewRecent;
     private RecentActivityAdapter recentActivityAdapter;
     private List<RecentActivity> recentActivityList;
     private FirebaseAuth auth;
     private FirebaseFirestore db;
     private FirebaseUser currentUser;
+    private ReportRepository reportRepository;
 
     private static final String TAG = "AdminDashboard";
+    private static final int TREND_WEEKS = 8;
+    private static final int TREND_MONTHS = 6;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -50,6 +64,7 @@ public class AdminDashboardActivity extends AppCompatActivity {
         auth = FirebaseAuth.getInstance();
         db = FirebaseFirestore.getInstance();
         currentUser = auth.getCurrentUser();
+        reportRepository = ReportRepository.getInstance(this);
 
         // Check if user is admin
         if (currentUser == null) {
@@ -62,7 +77,10 @@ public class AdminDashboardActivity extends AppCompatActivity {
         initializeViews();
         setupClickListeners();
         setupRecyclerView();
-        loadData();
+        // Data is loaded in onResume, which always follows onCreate
+
+        // Older reports have no geohash yet, so "near me" queries cannot find them
+        GeohashBackfillWorker.enqueue(this);
     }
 
     private void initializeViews() {
@@ -77,6 +95,7 @@ public class AdminDashboardActivity extends AppCompatActivity {
             buttonGenerateReport = findViewById(R.id.buttonGenerateReport);
             buttonLogout = findViewById(R.id.buttonLogout);
             buttonBack = findViewById(R.id.buttonBack);
+            buttonAutoAssign = findViewById(R.id.buttonAutoAssign);
 
             recyclerViewRecent = findViewById(R.id.recyclerViewRecent);
             recentActivityList = new ArrayList<>();
@@ -105,6 +124,8 @@ public class AdminDashboardActivity extends AppCompatActivity {
 
         buttonGenerateReport.setOnClickListener(v -> generateReport());
 
+        buttonAutoAssign.setOnClickListener(v -> suggestAssignments());
+
         buttonLogout.setOnClickListener(v -> logout());
     }
 
@@ -125,134 +146,98 @@ public class AdminDashboardActivity extends AppCompatActivity {
         textInProgress.setText("...");
         textPending.setText("...");
 
-        db.collection("reports")
-                .get()
-                .addOnCompleteListener(task -> {
-                    if (task.isSuccessful()) {
-                        int totalReports = task.getResult().size();
-                        final int[] counts = new int[3]; // [completed, inProgress, pending]
-
-                        for (QueryDocumentSnapshot document : task.getResult()) {
-                            String status = document.getString("status");
-                            if (status != null) {
-                                switch (status.toLowerCase()) {
-                                    case "cleaned":
-                                    case "completed":
-                                        counts[0]++;
-                                        break;
-                                    case "in_progress":
-                                    case "in progress":
-                                    case "assigned":
-                                        counts[1]++;
-                                        break;
-                                    default:
-                                        counts[2]++;
-                                        break;
-                                }
-                            } else {
-                                counts[2]++;
-                            }
-                        }
-
-                        runOnUiThread(() -> {
-                            textTotalReports.setText(String.valueOf(totalReports));
-                            textCleanedReports.setText(String.valueOf(counts[0]));
-                            textInProgress.setText(String.valueOf(counts[1]));
-                            textPending.setText(String.valueOf(counts[2]));
-                        });
-
-                    } else {
-                        runOnUiThread(() -> {
-                            textTotalReports.setText("0");
-                            textCleanedReports.setText("0");
-                            textInProgress.setText("0");
-                            textPending.setText("0");
-                            Log.e(TAG, "Error loading statistics", task.getException());
-                        });
-                    }
+        // Server-side count() aggregations instead of downloading every report
+        CollectionReference reports = db.collection("reports");
+        Task<AggregateQuerySnapshot> totalTask = reports.count().get(AggregateSource.SERVER);
+        Task<AggregateQuerySnapshot> completedTask = reports
+                .whereIn("status", Arrays.asList("cleaned", "completed"))
+                .count().get(AggregateSource.SERVER);
+        Task<AggregateQuerySnapshot> inProgressTask = reports
+                .whereIn("status", Arrays.asList("in_progress", "in progress", "assigned"))
+                .count().get(AggregateSource.SERVER);
+
+        Tasks.whenAllSuccess(totalTask, completedTask, inProgressTask)
+                .addOnSuccessListener(results -> {
+                    long totalReports = totalTask.getResult().getCount();
+                    long completed = completedTask.getResult().getCount();
+                    long inProgress = inProgressTask.getResult().getCount();
+                    // Everything else (including reports without a status) counts as pending
+                    long pending = Math.max(0, totalReports - completed - inProgress);
+
+                    textTotalReports.setText(String.valueOf(totalReports));
+                    textCleanedReports.setText(String.valueOf(completed));
+                    textInProgress.setText(String.valueOf(inProgress));
+                    textPending.setText(String.valueOf(pending));
+                })
+                .addOnFailureListener(e -> {
+                    textTotalReports.setText("0");
+                    textCleanedReports.setText("0");
+                    textInProgress.setText("0");
+                    textPending.setText("0");
+                    Log.e(TAG, "Error loading statistics", e);
                 });
     }
 
     private void loadRecentActivity() {
-        db.collection("reports")
+        Query query = db.collection("reports")
                 .orderBy("timestamp", Query.Direction.DESCENDING)
-                .limit(10)
-                .get()
-                .addOnCompleteListener(task -> {
-                    if (task.isSuccessful()) {
-                        recentActivityList.clear();
-
-                        for (QueryDocumentSnapshot document : task.getResult()) {
-                            try {
-                                String description = document.getString("description");
-                                String status = document.getString("status");
-                                String userName = document.getString("userName");
-                                String userEmail = document.getString("userEmail");
-                                String location = document.getString("address");
-                                String title = document.getString("title");
-
-                                String timestampStr = "Recently";
-                                Object timestampObj = document.get("timestamp");
-                                if (timestampObj instanceof com.google.firebase.Timestamp) {
-                                    com.google.firebase.Timestamp timestamp = (com.google.firebase.Timestamp) timestampObj;
-                                    SimpleDateFormat sdf = new SimpleDateFormat("MMM dd, HH:mm", Locale.getDefault());
-                                    timestampStr = sdf.format(timestamp.toDate());
-                                } else if (timestampObj instanceof Long) {
-                                    Long timestampLong = (Long) timestampObj;
-                                    SimpleDateFormat sdf = new SimpleDateFormat("MMM dd, HH:mm", Locale.getDefault());
-                                    timestampStr = sdf.format(new Date(timestampLong));
-                                }
-
-                                if (userName == null || userName.isEmpty()) {
-                                    userName = userEmail != null ? userEmail.split("@")[0] : "Anonymous";
-                                }
-
-                                if (description == null || description.isEmpty()) {
-                                    description = title != null ? title : "Cleaning report";
-                                    if (location != null && !location.isEmpty()) {
-                                        description += " at " + location;
-                                    }
-                                }
-
-                                RecentActivity activity = new RecentActivity(
-                                        userName,
-                                        description,
-                                        formatStatus(status),
-                                        timestampStr
-                                );
-
-                                recentActivityList.add(activity);
-                            } catch (Exception e) {
-                                Log.e(TAG, "Error parsing document: " + document.getId(), e);
-                            }
+                .limit(10);
+
+        // Ordered and limited, so fetched whole rather than delta-synced
+        reportRepository.loadReportWindow("admin_recent", query, new ReportRepository.ReportListCallback() {
+            @Override
+            public void onReportsLoaded(List<ReportModel> reports, boolean fromCache) {
+                recentActivityList.clear();
+                SimpleDateFormat sdf = new SimpleDateFormat("MMM dd, HH:mm", Locale.getDefault());
+
+                for (ReportModel report : reports) {
+                    String userName = report.getUserName();
+                    if (userName == null || userName.isEmpty()) {
+                        String userEmail = report.getUserEmail();
+                        userName = userEmail != null ? userEmail.split("@")[0] : "Anonymous";
+                    }
+
+                    String description = report.getDescription();
+                    if (description == null || description.isEmpty()) {
+                        description = report.getTitle() != null ? report.getTitle() : "Cleaning report";
+                        String location = report.getAddress();
+                        if (location != null && !location.isEmpty()) {
+                            description += " at " + location;
                         }
+                    }
 
-                        runOnUiThread(() -> {
-                            if (recentActivityList.isEmpty()) {
-                                recentActivityList.add(new RecentActivity(
-                                        "System",
-                                        "No recent activity found",
-                                        "Info",
-                                        "Just now"
-                                ));
-                            }
-                            recentActivityAdapter.notifyDataSetChanged();
-                        });
+                    recentActivityList.add(new RecentActivity(
+                            userName,
+                            description,
+                            formatStatus(report.getStatus()),
+                            sdf.format(new Date(report.getTimestamp()))
+                    ));
+                }
 
-                    } else {
-                        runOnUiThread(() -> {
-                            recentActivityList.clear();
-                            recentActivityList.add(new RecentActivity(
-                                    "System",
-                                    "Failed to load recent activity",
-                                    "Error",
-                                    "Just now"
-                            ));
-                            recentActivityAdapter.notifyDataSetChanged();
-                            Log.e(TAG, "Error loading recent activity", task.getException());
-                        });
-                    }
-                });
+                if (recentActivityList.isEmpty()) {
+                    recentActivityList.add(new RecentActivity(
+                            "System",
+                            "No recent activity found",
+                            "Info",
+                            "Just now"
+                    ));
+                }
+                recentActivityAdapter.notifyDataSetChanged();
+            }
+
+            @Override
+            public void onError(Exception e) {
+                recentActivityList.clear();
+                recentActivityList.add(new RecentActivity(
+                        "System",
+                        "Failed to load recent activity",
+                        "Error",
+                        "Just now"
+                ));
+                recentActivityAdapter.notifyDataSetChanged();
+                Log.e(TAG, "Error loading recent activity", e);
+            }
+        });
     }
 
     private String formatStatus(String status) {
@@ -270,6 +255,70 @@ public class AdminDashboardActivity extends AppCompatActivity {
         }
     }
 
+    private void suggestAssignments() {
+        buttonAutoAssign.setEnabled(false);
+        Toast.makeText(this, "Matching open reports to nearby volunteers...", Toast.LENGTH_SHORT).show();
+
+        VolunteerDispatcher.suggestAssignments(new VolunteerDispatcher.SuggestionCallback() {
+            @Override
+            public void onSuggestions(List<VolunteerDispatcher.Suggestion> suggestions, int openReports, int volunteers) {
+                buttonAutoAssign.setEnabled(true);
+                if (isFinishing()) return;
+
+                if (suggestions.isEmpty()) {
+                    new AlertDialog.Builder(AdminDashboardActivity.this)
+                            .setTitle("Auto-Assign")
+                            .setMessage("No assignments possible: " + openReports + " open report(s) with a location, "
+                                    + volunteers + " volunteer(s) with a known location and free capacity.")
+                            .setPositiveButton("OK", null)
+                            .show();
+                    return;
+                }
+
+                StringBuilder message = new StringBuilder();
+                message.append("Assign ").append(suggestions.size()).append(" of ").append(openReports)
+                        .append(" open report(s) to the nearest available of ").append(volunteers)
+                        .append(" volunteer(s)?\n\n");
+                for (int i = 0; i < Math.min(suggestions.size(), 10); i++) {
+                    VolunteerDispatcher.Suggestion suggestion = suggestions.get(i);
+                    message.append("• ").append(suggestion.volunteerName != null ? suggestion.volunteerName : "Volunteer")
+                            .append(String.format(Locale.getDefault(), " (%.1f km)", suggestion.distanceMeters / 1000))
+                            .append("\n");
+                }
+                if (suggestions.size() > 10) {
+                    message.append("…and ").append(suggestions.size() - 10).append(" more\n");
+                }
+
+                new AlertDialog.Builder(AdminDashboardActivity.this)
+                        .setTitle("Auto-Assign")
+                        .setMessage(message.toString())
+                        .setPositiveButton("Assign", (dialog, which) -> pushAssignments(suggestions))
+                        .setNegativeButton("Cancel", null)
+                        .show();
+            }
+
+            @Override
+            public void onError(Exception e) {
+                buttonAutoAssign.setEnabled(true);
+                Log.e(TAG, "Error computing assignments", e);
+                Toast.makeText(AdminDashboardActivity.this,
+                        "Error computing assignments: " + e.getMessage(), Toast.LENGTH_SHORT).show();
+            }
+        });
+    }
+
+    private void pushAssignments(List<VolunteerDispatcher.Suggestion> suggestions) {
+        buttonAutoAssign.setEnabled(false);
+        VolunteerDispatcher.pushAssignments(suggestions, (assigned, alreadyTaken, failed) -> {
+            buttonAutoAssign.setEnabled(true);
+            String result = assigned + " report(s) assigned";
+            if (alreadyTaken > 0) result += ", " + alreadyTaken + " already taken";
+            if (failed > 0) result += ", " + failed + " failed";
+            Toast.makeText(this, result, Toast.LENGTH_LONG).show();
+            loadData();
+        });
+    }
+
     private void generateReport() {
         try {
             Toast.makeText(this, "Generating report...", Toast.LENGTH_SHORT).show();
@@ -313,7 +362,7 @@ public class AdminDashboardActivity extends AppCompatActivity {
             }
             report.append("\n");
 
-            addUserStatistics(report, total, completed);
+            addTrendStatistics(report, total, completed);
 
         } catch (Exception e) {
             Toast.makeText(this, "Error generating report: " + e.getMessage(), Toast.LENGTH_SHORT).show();
@@ -321,26 +370,106 @@ public class AdminDashboardActivity extends AppCompatActivity {
         }
     }
 
-    private void addUserStatistics(StringBuilder report, int totalReports, int completedReports) {
-        db.collection("users")
-                .get()
-                .addOnCompleteListener(task -> {
-                    if (task.isSuccessful()) {
-                        int totalUsers = task.getResult().size();
-                        int adminCount = 0;
-                        int activeUsers = 0;
-
-                        for (QueryDocumentSnapshot document : task.getResult()) {
-                            String role = document.getString("role");
-                            Boolean isActive = document.getBoolean("isActive");
-
-                            if (role != null && "admin".equals(role.toLowerCase())) {
-                                adminCount++;
+    // Trends come from the analytics rollups: one document read per week or month shown
+    private void addTrendStatistics(StringBuilder report, int totalReports, int completedReports) {
+        AnalyticsRollups.loadRecent(AnalyticsRollups.PERIOD_WEEK, TREND_WEEKS, new AnalyticsRollups.BucketsCallback() {
+            @Override
+            public void onBuckets(List<AnalyticsRollups.Bucket> weeks) {
+                AnalyticsRollups.loadRecent(AnalyticsRollups.PERIOD_MONTH, TREND_MONTHS,
+                        new AnalyticsRollups.BucketsCallback() {
+                            @Override
+                            public void onBuckets(List<AnalyticsRollups.Bucket> months) {
+                                appendTrend(report, "WEEKLY TRENDS (last " + TREND_WEEKS + " weeks):", weeks);
+                                appendTrend(report, "MONTHLY TRENDS (last " + TREND_MONTHS + " months):", months);
+                                appendTopVolunteers(report, weeks.subList(Math.max(0, weeks.size() - 4), weeks.size()));
+                                addUserStatistics(report, totalReports, completedReports);
                             }
-                            if (isActive != null && isActive) {
-                                activeUsers++;
+
+                            @Override
+                            public void onError(Exception e) {
+                                Log.e(TAG, "Error loading monthly rollups", e);
+                                appendTrend(report, "WEEKLY TRENDS (last " + TREND_WEEKS + " weeks):", weeks);
+                                addUserStatistics(report, totalReports, completedReports);
                             }
-                        }
+                        });
+            }
+
+            @Override
+            public void onError(Exception e) {
+                Log.e(TAG, "Error loading weekly rollups", e);
+                report.append("TRENDS:\n");
+                report.append("• Failed to load trend data\n\n");
+                addUserStatistics(report, totalReports, completedReports);
+            }
+        });
+    }
+
+    private void appendTrend(StringBuilder report, String heading, List<AnalyticsRollups.Bucket> buckets) {
+        report.append(heading).append("\n");
+        for (AnalyticsRollups.Bucket bucket : buckets) {
+            report.append("• ").append(bucket.label).append(": ")
+                    .append(bucket.created).append(" new, ")
+                    .append(bucket.completed).append(" cleaned");
+            if (bucket.created > 0) {
+                report.append(String.format(Locale.getDefault(), " (%.0f%%)", bucket.completed * 100.0 / bucket.created));
+            }
+            if (bucket.averageCleanLatencyMs() >= 0) {
+                report.append(", time to clean ").append(formatDuration(bucket.averageCleanLatencyMs()));
+            }
+            report.append("\n");
+        }
+        report.append("\n");
+    }
+
+    private void appendTopVolunteers(StringBuilder report, List<AnalyticsRollups.Bucket> buckets) {
+        Map<String, Long> completedByVolunteer = new HashMap<>();
+        Map<String, String> names = new HashMap<>();
+        for (AnalyticsRollups.Bucket bucket : buckets) {
+            for (Map.Entry<String, Long> entry : bucket.volunteerCompleted.entrySet()) {
+                Long count = completedByVolunteer.get(entry.getKey());
+                completedByVolunteer.put(entry.getKey(), (count != null ? count : 0) + entry.getValue());
+            }
+            names.putAll(bucket.volunteerNames);
+        }
+
+        List<Map.Entry<String, Long>> ranking = new ArrayList<>(completedByVolunteer.entrySet());
+        ranking.sort((a, b) -> Long.compare(b.getValue(), a.getValue()));
+
+        report.append("TOP VOLUNTEERS (last 4 weeks):\n");
+        if (ranking.isEmpty()) {
+            report.append("• No completed tasks\n");
+        }
+        for (int i = 0; i < Math.min(ranking.size(), 5); i++) {
+            String name = names.get(ranking.get(i).getKey());
+            report.append("• ").append(name != null ? name : "Volunteer")
+                    .append(": ").append(ranking.get(i).getValue()).append(" cleaned\n");
+        }
+        report.append("\n");
+    }
+
+    private String formatDuration(long millis) {
+        double hours = millis / 3_600_000.0;
+        if (hours < 48) {
+            return String.format(Locale.getDefault(), "%.1f h", hours);
+        }
+        return String.format(Locale.getDefault(), "%.1f d", hours / 24);
+    }
+
+    private void addUserStatistics(StringBuilder report, int totalReports, int completedReports) {
+        // count() aggregations, the users collection is never downloaded
+        CollectionReference users = db.collection("users");
+        Task<AggregateQuerySnapshot> totalTask = users.count().get(AggregateSource.SERVER);
+        Task<AggregateQuerySnapshot> adminTask = users.whereEqualTo("role", "admin")
+                .count().get(AggregateSource.SERVER);
+        Task<AggregateQuerySnapshot> activeTask = users.whereEqualTo("isActive", true)
+                .count().get(AggregateSource.SERVER);
+
+        Tasks.whenAllComplete(totalTask, adminTask, activeTask)
+                .addOnCompleteListener(task -> {
+                    if (totalTask.isSuccessful() && adminTask.isSuccessful() && activeTask.isSuccessful()) {
+                        long totalUsers = totalTask.getResult().getCount();
+                        long adminCount = adminTask.getResult().getCount();
+                        long activeUsers = activeTask.getResult().getCount();
 
                         report.append("USER STATISTICS:\n");
                         report.append("• Total Users: ").append(totalUsers).append("\n");
@@ -423,6 +552,7 @@ public class AdminDashboardActivity extends AppCompatActivity {
     }
 
     private void performLogout() {
+        reportRepository.clear();
         auth.signOut();
         Toast.makeText(this, "Logged out successfully", Toast.LENGTH_SHORT).show();
         Intent intent = new Intent(AdminDashboardActivity.this, LoginActivity.class);
@@ -3,8 +3,6 @@ package com.example.crowdcleaning.activities;
 import android.Manifest;
 import android.content.Intent;
 import android.content.pm.PackageManager;
-import android.location.Address;
-import android.location.Geocoder;
 import android.os.Bundle;
 import android.text.TextUtils;
 import android.util.Log;
@@ -17,6 +15,12 @@ import androidx.core.app.ActivityCompat;
 import androidx.core.content.ContextCompat;
 
 import com.example.crowdcleaning.R;
+import com.example.crowdcleaning.models.ReportModel;
+import com.example.crowdcleaning.utils.GeoHash;
+import com.example.crowdcleaning.utils.GeocodingService;
+import com.example.crowdcleaning.utils.MarkerClusterer;
+import com.example.crowdcleaning.utils.ReportRepository;
+import com.example.crowdcleaning.utils.ReportSync;
 import com.google.android.gms.location.FusedLocationProviderClient;
 import com.google.android.gms.location.LocationServices;
 import com.google.android.gms.maps.CameraUpdateFactory;
@@ -24,15 +28,19 @@ import com.google.android.gms.maps.GoogleMap;
 import com.google.android.gms.maps.OnMapReadyCallback;
 import com.google.android.gms.maps.SupportMapFragment;
 import com.google.android.gms.maps.model.LatLng;
+import com.google.android.gms.maps.model.Marker;
 import com.google.android.gms.maps.model.MarkerOptions;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
+import com.google.firebase.firestore.FieldValue;
 import com.google.firebase.firestore.FirebaseFirestore;
-import com.google.firebase.firestore.QueryDocumentSnapshot;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.WriteBatch;
 
-import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Locale;
+import java.util.Map;
 
 public class CitizenDashboardActivity extends AppCompatActivity implements OnMapReadyCallback {
 
@@ -40,13 +48,22 @@ public class CitizenDashboardActivity extends AppCompatActivity implements OnMap
     private Button buttonAddReport, buttonLogout, buttonRefresh; // Removed buttonMyReports
 
     private GoogleMap mMap;
+    private MarkerClusterer markerClusterer;
+    // "Your location" / default marker shown when there is no report to center on
+    private Marker fallbackMarker;
+    // Geocoded coordinates waiting to be written back, flushed when no lookup is pending
+    private final Map<String, LatLng> resolvedCoordinates = new LinkedHashMap<>();
+    private int pendingGeocodes = 0;
     private FusedLocationProviderClient fusedLocationClient;
     private FirebaseAuth auth;
     private FirebaseFirestore db;
     private FirebaseUser currentUser;
+    private ReportRepository reportRepository;
 
     private static final int LOCATION_PERMISSION_REQUEST_CODE = 1001;
     private static final String TAG = "CitizenDashboard";
+    // Firestore caps a batched write at 500 operations
+    private static final int MAX_BATCH_WRITES = 500;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -59,6 +76,7 @@ public class CitizenDashboardActivity extends AppCompatActivity implements OnMap
         auth = FirebaseAuth.getInstance();
         db = FirebaseFirestore.getInstance();
         currentUser = auth.getCurrentUser();
+        reportRepository = ReportRepository.getInstance(this);
         fusedLocationClient = LocationServices.getFusedLocationProviderClient(this);
 
         // Check if user is logged in
@@ -133,6 +151,11 @@ public class CitizenDashboardActivity extends AppCompatActivity implements OnMap
         mMap.getUiSettings().setMyLocationButtonEnabled(true);
         mMap.getUiSettings().setCompassEnabled(true);
 
+        // Only markers inside the viewport are drawn, re-clustered whenever the camera settles
+        markerClusterer = new MarkerClusterer(mMap);
+        mMap.setOnCameraIdleListener(markerClusterer);
+        mMap.setOnMarkerClickListener(markerClusterer);
+
         // Check location permission
         if (ContextCompat.checkSelfPermission(this, Manifest.permission.ACCESS_FINE_LOCATION)
                 == PackageManager.PERMISSION_GRANTED) {
@@ -207,93 +230,98 @@ public class CitizenDashboardActivity extends AppCompatActivity implements OnMap
 
         Log.d(TAG, "Loading reports on map for user: " + currentUser.getUid());
 
-        db.collection("reports")
-                .whereEqualTo("userId", currentUser.getUid())
-                .get()
-                .addOnCompleteListener(task -> {
-                    if (task.isSuccessful() && mMap != null) {
-                        mMap.clear();
-                        Log.d(TAG, "Cleared existing markers");
-
-                        boolean hasValidReports = false;
-                        LatLng firstReportLocation = null;
-                        int validReportsCount = 0;
-                        int geocodedReportsCount = 0;
-
-                        for (QueryDocumentSnapshot document : task.getResult()) {
-                            try {
-                                String documentId = document.getId();
-                                Double latitude = document.getDouble("latitude");
-                                Double longitude = document.getDouble("longitude");
-                                String title = document.getString("title");
-                                String description = document.getString("description");
-                                String status = document.getString("status");
-                                String address = document.getString("address");
-
-                                Log.d(TAG, "Processing report: " + title +
-                                        " - Coords: " + latitude + ", " + longitude +
-                                        " - Address: " + address);
-
-                                // Check if we have valid coordinates
-                                if (isValidCoordinate(latitude, longitude)) {
-                                    LatLng reportLocation = new LatLng(latitude, longitude);
-
-                                    // Store the first valid report location to center the map
-                                    if (firstReportLocation == null) {
-                                        firstReportLocation = reportLocation;
-                                    }
-
-                                    // Create marker snippet with status and address
-                                    String snippet = "Status: " + (status != null ? status : "Unknown");
-                                    if (address != null && !address.isEmpty()) {
-                                        snippet += "\nAddress: " + address;
-                                    }
-                                    if (description != null && !description.isEmpty()) {
-                                        snippet += "\n" + description;
-                                    }
-
-                                    mMap.addMarker(new MarkerOptions()
-                                            .position(reportLocation)
-                                            .title(title != null ? title : "Garbage Report")
-                                            .snippet(snippet));
-
-                                    hasValidReports = true;
-                                    validReportsCount++;
-
-                                    Log.d(TAG, "✓ Added marker using coordinates for: " + title);
-
-                                } else if (address != null && !address.isEmpty()) {
-                                    // If coordinates are invalid but we have an address, try geocoding
-                                    Log.d(TAG, "Coordinates invalid, attempting to geocode address: " + address);
-                                    geocodeAndAddMarker(address, title, description, status, documentId);
-                                    geocodedReportsCount++;
-                                } else {
-                                    Log.w(TAG, "Report has no valid coordinates or address: " + title);
-                                }
-                            } catch (Exception e) {
-                                Log.e(TAG, "Error processing report document", e);
-                            }
-                        }
+        // Filters only, the repository syncs it by updatedAt
+        Query query = db.collection("reports")
+                .whereEqualTo("userId", currentUser.getUid());
+
+        String userId = currentUser.getUid();
+        reportRepository.loadReports("user_map_" + userId, query, (dao, limit) -> dao.loadByUser(userId, limit),
+                new ReportRepository.ReportListCallback() {
+                @Override
+                public void onReportsLoaded(List<ReportModel> reports, boolean fromCache) {
+                    if (mMap != null) {
+                        showReportsOnMap(reports, fromCache);
+                    }
+                }
 
-                        Log.d(TAG, "Map loading complete - Valid reports: " + validReportsCount +
-                                ", Geocoded reports: " + geocodedReportsCount);
+                @Override
+                public void onError(Exception e) {
+                    Log.e(TAG, "Failed to load reports: " + e.getMessage());
+                    getCurrentLocationAsFallback();
+                }
+            });
+    }
 
-                        // Center the map on the report locations
-                        if (hasValidReports && firstReportLocation != null) {
-                            // Center on the first report with zoom level 14
-                            mMap.moveCamera(CameraUpdateFactory.newLatLngZoom(firstReportLocation, 14f));
-                            Log.d(TAG, "Map centered on report location: " + firstReportLocation);
-                        } else {
-                            // If no reports with valid locations, get current location as fallback
-                            Log.d(TAG, "No valid report locations, using fallback");
-                            getCurrentLocationAsFallback();
-                        }
-                    } else {
-                        Log.e(TAG, "Failed to load reports: " +
-                                (task.getException() != null ? task.getException().getMessage() : "Unknown error"));
-                        getCurrentLocationAsFallback();
-                    }
-                });
+    private void showReportsOnMap(List<ReportModel> reports, boolean fromCache) {
+        List<MarkerClusterer.Item> items = new ArrayList<>();
+        boolean hasValidReports = false;
+        LatLng firstReportLocation = null;
+        int validReportsCount = 0;
+        List<ReportModel> toGeocode = new ArrayList<>();
+
+        for (ReportModel report : reports) {
+            String title = report.getTitle();
+            String description = report.getDescription();
+            String status = report.getStatus();
+            String address = report.getAddress();
+
+            // Check if we have valid coordinates
+            if (isValidCoordinate(report.getLatitude(), report.getLongitude())) {
+                LatLng reportLocation = new LatLng(report.getLatitude(), report.getLongitude());
+
+                // Store the first valid report location to center the map
+                if (firstReportLocation == null) {
+                    firstReportLocation = reportLocation;
+                }
+
+                // Create marker snippet with status and address
+                String snippet = "Status: " + (status != null ? status : "Unknown");
+                if (address != null && !address.isEmpty()) {
+                    snippet += "\nAddress: " + address;
+                }
+                if (description != null && !description.isEmpty()) {
+                    snippet += "\n" + description;
+                }
+
+                items.add(new MarkerClusterer.Item(report.getId(), reportLocation,
+                        title != null ? title : "Garbage Report", snippet));
+
+                hasValidReports = true;
+                validReportsCount++;
+
+            } else if (!fromCache && address != null && !address.isEmpty()) {
+                // If coordinates are invalid but we have an address, try geocoding.
+                // Cached results are redrawn right after by the fresh result, so geocode only once.
+                toGeocode.add(report);
+            }
+        }
+
+        // Diffed by report ID against the markers already on the map
+        markerClusterer.setItems(items);
+
+        // Geocoded markers are added on top. The extra count holds the batch open until
+        // every lookup is started: cache hits answer synchronously and would otherwise
+        // flush the coordinate write-back once per address
+        pendingGeocodes++;
+        for (ReportModel report : toGeocode) {
+            geocodeAndAddMarker(report.getAddress(), report.getTitle(), report.getDescription(),
+                    report.getStatus(), report.getId());
+        }
+        onGeocodeFinished();
+
+        Log.d(TAG, "Map loading complete - Valid reports: " + validReportsCount +
+                ", Geocoded reports: " + toGeocode.size() + ", fromCache: " + fromCache);
+
+        // Center the map on the report locations
+        if (hasValidReports && firstReportLocation != null) {
+            removeFallbackMarker();
+            // Center on the first report with zoom level 14
+            mMap.moveCamera(CameraUpdateFactory.newLatLngZoom(firstReportLocation, 14f));
+        } else if (!fromCache) {
+            // If no reports with valid locations, get current location as fallback
+            Log.d(TAG, "No valid report locations, using fallback");
+            getCurrentLocationAsFallback();
+        }
     }
 
     private boolean isValidCoordinate(Double latitude, Double longitude) {
@@ -313,65 +341,91 @@ public class CitizenDashboardActivity extends AppCompatActivity implements OnMap
         }
 
         Log.d(TAG, "Geocoding address: " + address);
+        pendingGeocodes++;
 
-        Geocoder geocoder = new Geocoder(this, Locale.getDefault());
-
-        new Thread(() -> {
-            try {
-                List<Address> addresses = geocoder.getFromLocationName(address, 1);
-                if (addresses != null && !addresses.isEmpty()) {
-                    Address location = addresses.get(0);
-                    double latitude = location.getLatitude();
-                    double longitude = location.getLongitude();
+        // Answers come from the on-disk cache when this address was resolved before
+        GeocodingService.getInstance(this).geocode(address, new GeocodingService.GeocodeCallback() {
+            @Override
+            public void onGeocoded(LatLng reportLocation) {
+                if (mMap != null) {
+                    String snippet = "Status: " + (status != null ? status : "Unknown") +
+                            "\nAddress: " + address;
 
-                    Log.d(TAG, "Geocoding successful: " + address + " -> " + latitude + ", " + longitude);
+                    if (description != null && !description.isEmpty()) {
+                        snippet += "\n" + description;
+                    }
 
-                    runOnUiThread(() -> {
-                        if (mMap != null) {
-                            LatLng reportLocation = new LatLng(latitude, longitude);
-                            String snippet = "Status: " + (status != null ? status : "Unknown") +
-                                    "\nAddress: " + address;
+                    markerClusterer.addItem(new MarkerClusterer.Item(documentId, reportLocation,
+                            title != null ? title : "Garbage Report", snippet));
 
-                            if (description != null && !description.isEmpty()) {
-                                snippet += "\n" + description;
-                            }
+                    Log.d(TAG, "✓ Added marker using geocoding for: " + title);
+                }
 
-                            mMap.addMarker(new MarkerOptions()
-                                    .position(reportLocation)
-                                    .title(title != null ? title : "Garbage Report")
-                                    .snippet(snippet));
+                // Written back together once every lookup of this load has finished
+                if (documentId != null) {
+                    resolvedCoordinates.put(documentId, reportLocation);
+                }
+                onGeocodeFinished();
+            }
 
-                            // Update the report in Firestore with the geocoded coordinates
-                            updateReportWithCoordinates(documentId, latitude, longitude);
+            @Override
+            public void onNotFound() {
+                Log.w(TAG, "Geocoding failed - no results for address: " + address);
+                Toast.makeText(CitizenDashboardActivity.this,
+                        "Could not find location for: " + address, Toast.LENGTH_SHORT).show();
+                onGeocodeFinished();
+            }
 
-                            Log.d(TAG, "✓ Added marker using geocoding for: " + title);
-                        }
-                    });
-                } else {
-                    Log.w(TAG, "Geocoding failed - no results for address: " + address);
-                    runOnUiThread(() ->
-                            Toast.makeText(this, "Could not find location for: " + address, Toast.LENGTH_SHORT).show());
-                }
-            } catch (IOException e) {
+            @Override
+            public void onError(Exception e) {
                 Log.e(TAG, "Geocoding error for address: " + address, e);
-                runOnUiThread(() ->
-                        Toast.makeText(this, "Error finding location for address", Toast.LENGTH_SHORT).show());
+                Toast.makeText(CitizenDashboardActivity.this,
+                        "Error finding location for address", Toast.LENGTH_SHORT).show();
+                onGeocodeFinished();
             }
-        }).start();
+        });
+    }
+
+    private void onGeocodeFinished() {
+        pendingGeocodes--;
+        if (pendingGeocodes == 0) {
+            flushResolvedCoordinates();
+        }
     }
 
-    private void updateReportWithCoordinates(String documentId, double latitude, double longitude) {
-        if (documentId == null) {
-            Log.w(TAG, "Cannot update report - documentId is null");
+    private void flushResolvedCoordinates() {
+        if (resolvedCoordinates.isEmpty()) {
             return;
         }
 
-        Log.d(TAG, "Updating report " + documentId + " with coordinates: " + latitude + ", " + longitude);
+        Log.d(TAG, "Updating " + resolvedCoordinates.size() + " report(s) with geocoded coordinates");
+
+        WriteBatch batch = db.batch();
+        int batchSize = 0;
+        for (Map.Entry<String, LatLng> entry : resolvedCoordinates.entrySet()) {
+            LatLng location = entry.getValue();
+            batch.update(db.collection("reports").document(entry.getKey()),
+                    "latitude", location.latitude,
+                    "longitude", location.longitude,
+                    GeoHash.FIELD, GeoHash.encode(location.latitude, location.longitude),
+                    ReportSync.FIELD_UPDATED_AT, FieldValue.serverTimestamp());
+
+            if (++batchSize == MAX_BATCH_WRITES) {
+                commitCoordinateBatch(batch, batchSize);
+                batch = db.batch();
+                batchSize = 0;
+            }
+        }
+        if (batchSize > 0) {
+            commitCoordinateBatch(batch, batchSize);
+        }
+        resolvedCoordinates.clear();
+    }
 
-        db.collection("reports").document(documentId)
-                .update("latitude", latitude, "longitude", longitude)
+    private void commitCoordinateBatch(WriteBatch batch, int count) {
+        batch.commit()
                 .addOnSuccessListener(aVoid ->
-                        Log.d(TAG, "✓ Successfully updated report coordinates"))
+                        Log.d(TAG, "✓ Successfully updated coordinates of " + count + " report(s)"))
                 .addOnFailureListener(e ->
                         Log.e(TAG, "Failed to update report coordinates", e));
     }
@@ -388,7 +442,8 @@ public class CitizenDashboardActivity extends AppCompatActivity implements OnMap
                             mMap.moveCamera(CameraUpdateFactory.newLatLngZoom(currentLatLng, 12f));
 
                             // Add a marker for current location
-                            mMap.addMarker(new MarkerOptions()
+                            removeFallbackMarker();
+                            fallbackMarker = mMap.addMarker(new MarkerOptions()
                                     .position(currentLatLng)
                                     .title("Your Current Location")
                                     .snippet("No reports yet. Add your first report!"));
@@ -413,7 +468,8 @@ public class CitizenDashboardActivity extends AppCompatActivity implements OnMap
         if (mMap != null) {
             LatLng defaultLocation = new LatLng(40.7128, -74.0060); // New York
             mMap.moveCamera(CameraUpdateFactory.newLatLngZoom(defaultLocation, 10f));
-            mMap.addMarker(new MarkerOptions()
+            removeFallbackMarker();
+            fallbackMarker = mMap.addMarker(new MarkerOptions()
                     .position(defaultLocation)
                     .title("Default Location")
                     .snippet("Enable location or add reports"));
@@ -422,8 +478,17 @@ public class CitizenDashboardActivity extends AppCompatActivity implements OnMap
         }
     }
 
+    private void removeFallbackMarker() {
+        if (fallbackMarker != null) {
+            fallbackMarker.remove();
+            fallbackMarker = null;
+        }
+    }
+
     private void refreshData() {
         Log.d(TAG, "Refreshing all data");
+        // Re-read in full so deleted reports drop off the map
+        reportRepository.requestFullSync("user_map_" + currentUser.getUid());
         loadUserReportsCount();
         if (mMap != null) {
             loadReportsOnMap();
@@ -435,6 +500,7 @@ public class CitizenDashboardActivity extends AppCompatActivity implements OnMap
 
     private void logoutUser() {
         Log.d(TAG, "Logging out user");
+        reportRepository.clear();
         auth.signOut();
         Toast.makeText(this, "Logged out successfully", Toast.LENGTH_SHORT).show();
         Intent intent = new Intent(CitizenDashboardActivity.this, LoginActivity.class);
@@ -1,9 +1,10 @@
 package com.example.crowdcleaning.activities;
 
-import android.app.ProgressDialog;
 import android.content.Intent;
+import android.graphics.Bitmap;
 import android.net.Uri;
 import android.os.Bundle;
+import android.util.Log;
 import android.widget.Button;
 import android.widget.EditText;
 import android.widget.ImageView;
@@ -12,37 +13,45 @@ import android.widget.Toast;
 import androidx.appcompat.app.AppCompatActivity;
 
 import com.example.crowdcleaning.R;
+import com.example.crowdcleaning.utils.CompletionOutbox;
+import com.example.crowdcleaning.utils.ImageLoader;
+import com.example.crowdcleaning.utils.ImageUtils;
+import com.example.crowdcleaning.utils.ReportRepository;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
 import com.google.firebase.firestore.FirebaseFirestore;
-import com.google.firebase.storage.FirebaseStorage;
-import com.google.firebase.storage.StorageReference;
-import com.squareup.picasso.Picasso;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Date;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class CompleteTaskActivity extends AppCompatActivity {
 
+    private static final String TAG = "CompleteTaskActivity";
     private static final int PICK_IMAGE_REQUEST = 1;
+    private static final String STATE_IMAGE_FILES = "image_files";
+    private static final String PENDING_IMAGES_DIR = "pending_completion_images";
+    private static final int MAX_IMAGES = 2;
+    private static final int MAX_IMAGE_SIZE = 1024; // Max dimension for resizing
+    private static final int JPEG_QUALITY = 80;
 
     private EditText editTextCompletionNotes;
     private Button buttonUploadImages, buttonSubmitCompletion;
     private ImageView imagePreview1, imagePreview2;
 
     private FirebaseFirestore db;
-    private FirebaseStorage storage;
-    private StorageReference storageReference;
     private FirebaseAuth auth;
     private FirebaseUser currentUser;
 
     private String reportId;
-    private List<Uri> imageUris = new ArrayList<>();
-    private ProgressDialog progressDialog;
+    // Private copies of the picked photos, handed to the outbox on submit
+    private final List<File> imageFiles = new ArrayList<>();
+    private int pendingImageCount = 0;
+    private final ExecutorService imageExecutor = Executors.newSingleThreadExecutor();
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -52,14 +61,8 @@ public class CompleteTaskActivity extends AppCompatActivity {
         // Initialize Firebase
         auth = FirebaseAuth.getInstance();
         db = FirebaseFirestore.getInstance();
-        storage = FirebaseStorage.getInstance();
-        storageReference = storage.getReference();
         currentUser = auth.getCurrentUser();
 
-        // Initialize progress dialog
-        progressDialog = new ProgressDialog(this);
-        progressDialog.setCancelable(false);
-
         // Get report ID from intent
         reportId = getIntent().getStringExtra("report_id");
         if (reportId == null) {
@@ -77,6 +80,30 @@ public class CompleteTaskActivity extends AppCompatActivity {
 
         initializeViews();
         setupClickListeners();
+
+        // Keep the copied photos across recreation
+        if (savedInstanceState != null) {
+            ArrayList<String> savedPaths = savedInstanceState.getStringArrayList(STATE_IMAGE_FILES);
+            if (savedPaths != null) {
+                for (String path : savedPaths) {
+                    File file = new File(path);
+                    if (file.exists()) {
+                        imageFiles.add(file);
+                    }
+                }
+                updateImagePreviews();
+            }
+        }
+    }
+
+    @Override
+    protected void onSaveInstanceState(Bundle outState) {
+        super.onSaveInstanceState(outState);
+        ArrayList<String> paths = new ArrayList<>();
+        for (File file : imageFiles) {
+            paths.add(file.getPath());
+        }
+        outState.putStringArrayList(STATE_IMAGE_FILES, paths);
     }
 
     private void initializeViews() {
@@ -105,18 +132,78 @@ public class CompleteTaskActivity extends AppCompatActivity {
         super.onActivityResult(requestCode, resultCode, data);
 
         if (requestCode == PICK_IMAGE_REQUEST && resultCode == RESULT_OK && data != null) {
-            imageUris.clear();
+            for (File file : imageFiles) {
+                deleteImageFile(file);
+            }
+            imageFiles.clear();
+            updateImagePreviews();
 
             if (data.getClipData() != null) {
                 int count = data.getClipData().getItemCount();
-                for (int i = 0; i < Math.min(count, 2); i++) {
-                    imageUris.add(data.getClipData().getItemAt(i).getUri());
+                for (int i = 0; i < Math.min(count, MAX_IMAGES); i++) {
+                    copySelectedImage(data.getClipData().getItemAt(i).getUri());
                 }
             } else if (data.getData() != null) {
-                imageUris.add(data.getData());
+                copySelectedImage(data.getData());
             }
+        }
+    }
 
-            updateImagePreviews();
+    /**
+     * Copies a picked photo into app-private storage right away: the read grant on the
+     * content URI does not outlive this activity, the queued upload may run much later.
+     */
+    private void copySelectedImage(Uri imageUri) {
+        pendingImageCount++;
+
+        imageExecutor.execute(() -> {
+            File imageFile = null;
+            try {
+                Bitmap bitmap = ImageUtils.decodeSampledBitmap(getContentResolver(), imageUri, MAX_IMAGE_SIZE);
+                if (bitmap != null) {
+                    imageFile = new File(getPendingImagesDir(), UUID.randomUUID().toString() + ".jpg");
+                    ImageUtils.writeJpeg(bitmap, imageFile, JPEG_QUALITY);
+                    bitmap.recycle();
+                }
+            } catch (IOException | OutOfMemoryError e) {
+                Log.e(TAG, "Failed to copy image " + imageUri + ": " + e.getMessage());
+                deleteImageFile(imageFile);
+                imageFile = null;
+            }
+
+            final File copiedFile = imageFile;
+            runOnUiThread(() -> onImageCopied(copiedFile));
+        });
+    }
+
+    private void onImageCopied(File imageFile) {
+        pendingImageCount--;
+
+        if (isFinishing() || isDestroyed()) {
+            deleteImageFile(imageFile);
+            return;
+        }
+
+        if (imageFile == null) {
+            Toast.makeText(this, "Error loading image", Toast.LENGTH_SHORT).show();
+            return;
+        }
+
+        imageFiles.add(imageFile);
+        updateImagePreviews();
+    }
+
+    private File getPendingImagesDir() {
+        File dir = new File(getCacheDir(), PENDING_IMAGES_DIR);
+        if (!dir.exists() && !dir.mkdirs()) {
+            Log.e(TAG, "Could not create " + dir);
+        }
+        return dir;
+    }
+
+    private void deleteImageFile(File file) {
+        if (file != null && file.exists() && !file.delete()) {
+            Log.d(TAG, "Could not delete " + file);
         }
     }
 
@@ -125,24 +212,24 @@ public class CompleteTaskActivity extends AppCompatActivity {
         imagePreview1.setImageResource(android.R.drawable.ic_menu_gallery);
         imagePreview2.setImageResource(android.R.drawable.ic_menu_gallery);
 
-        // Load images using Picasso for better handling
-        if (imageUris.size() > 0) {
-            Picasso.get()
-                    .load(imageUris.get(0))
+        // Load images using the shared Picasso instance for better handling
+        if (imageFiles.size() > 0) {
+            ImageLoader.get(this)
+                    .load(imageFiles.get(0))
                     .placeholder(android.R.drawable.ic_menu_gallery)
                     .error(android.R.drawable.ic_menu_report_image)
                     .into(imagePreview1);
         }
-        if (imageUris.size() > 1) {
-            Picasso.get()
-                    .load(imageUris.get(1))
+        if (imageFiles.size() > 1) {
+            ImageLoader.get(this)
+                    .load(imageFiles.get(1))
                     .placeholder(android.R.drawable.ic_menu_gallery)
                     .error(android.R.drawable.ic_menu_report_image)
                     .into(imagePreview2);
         }
 
         // Update button text based on number of images
-        if (imageUris.size() >= 2) {
+        if (imageFiles.size() >= MAX_IMAGES) {
             buttonUploadImages.setText("Maximum Images Selected");
             buttonUploadImages.setEnabled(false);
         } else {
@@ -160,99 +247,34 @@ public class CompleteTaskActivity extends AppCompatActivity {
             return;
         }
 
-        if (currentUser == null) {
-            Toast.makeText(this, "Please login first", Toast.LENGTH_SHORT).show();
+        if (pendingImageCount > 0) {
+            Toast.makeText(this, "Please wait, photos are still being processed", Toast.LENGTH_SHORT).show();
             return;
         }
 
-        // Show progress
-        progressDialog.setMessage("Completing task...");
-        progressDialog.show();
-
-        // Update report status to completed
-        Map<String, Object> updates = new HashMap<>();
-        updates.put("status", "completed");
-        updates.put("completionNotes", completionNotes);
-        updates.put("completedAt", new Date());
-        updates.put("completedBy", currentUser.getUid());
-        updates.put("completedByName", currentUser.getDisplayName() != null ?
-                currentUser.getDisplayName() : "Volunteer");
-
-        db.collection("reports").document(reportId)
-                .update(updates)
-                .addOnSuccessListener(aVoid -> {
-                    // Upload images if any
-                    if (!imageUris.isEmpty()) {
-                        uploadCompletionImages();
-                    } else {
-                        progressDialog.dismiss();
-                        finishWithSuccess();
-                    }
-                })
-                .addOnFailureListener(e -> {
-                    progressDialog.dismiss();
-                    Toast.makeText(this, "Failed to complete task: " + e.getMessage(), Toast.LENGTH_LONG).show();
-                });
-    }
-
-    private void uploadCompletionImages() {
-        progressDialog.setMessage("Uploading images...");
-
-        List<String> imageUrls = new ArrayList<>();
-        final int totalImages = imageUris.size();
-        final int[] uploadedCount = {0};
-
-        if (totalImages == 0) {
-            finishWithSuccess();
+        if (currentUser == null) {
+            Toast.makeText(this, "Please login first", Toast.LENGTH_SHORT).show();
             return;
         }
 
-        for (int i = 0; i < imageUris.size(); i++) {
-            Uri imageUri = imageUris.get(i);
-            StorageReference fileReference = storageReference.child("completion_images/" + UUID.randomUUID().toString());
-
-            fileReference.putFile(imageUri)
-                    .addOnSuccessListener(taskSnapshot -> {
-                        fileReference.getDownloadUrl().addOnSuccessListener(uri -> {
-                            imageUrls.add(uri.toString());
-                            uploadedCount[0]++;
-
-                            // When all images are uploaded, update the report
-                            if (uploadedCount[0] == totalImages) {
-                                updateReportWithImages(imageUrls);
-                            }
-                        });
-                    })
-                    .addOnFailureListener(e -> {
-                        Toast.makeText(this, "Failed to upload image: " + e.getMessage(), Toast.LENGTH_SHORT).show();
-                        // Continue even if some images fail
-                        uploadedCount[0]++;
-                        if (uploadedCount[0] == totalImages && !imageUrls.isEmpty()) {
-                            updateReportWithImages(imageUrls);
-                        } else if (uploadedCount[0] == totalImages) {
-                            progressDialog.dismiss();
-                            finishWithSuccess();
-                        }
-                    });
+        String volunteerName = currentUser.getDisplayName() != null ?
+                currentUser.getDisplayName() : "Volunteer";
+
+        // Queued on the device with its photos; CompletionOutboxWorker uploads them and
+        // completes the task, resuming after a lost connection or a killed app
+        try {
+            CompletionOutbox.enqueue(this, reportId, currentUser.getUid(), volunteerName,
+                    completionNotes, new ArrayList<>(imageFiles));
+        } catch (IOException e) {
+            Log.e(TAG, "Error queueing completion: " + e.getMessage());
+            Toast.makeText(this, "Failed to complete task: " + e.getMessage(), Toast.LENGTH_LONG).show();
+            return;
         }
-    }
 
-    private void updateReportWithImages(List<String> imageUrls) {
-        db.collection("reports").document(reportId)
-                .update("completionImages", imageUrls)
-                .addOnSuccessListener(aVoid -> {
-                    progressDialog.dismiss();
-                    finishWithSuccess();
-                })
-                .addOnFailureListener(e -> {
-                    progressDialog.dismiss();
-                    Toast.makeText(this, "Failed to save images but task completed", Toast.LENGTH_SHORT).show();
-                    finishWithSuccess();
-                });
-    }
-
-    private void finishWithSuccess() {
-        Toast.makeText(this, "Task completed successfully!", Toast.LENGTH_SHORT).show();
+        // The photo files now belong to the outbox
+        imageFiles.clear();
+        ReportRepository.getInstance().invalidate(reportId);
+        Toast.makeText(this, "Task completed! Photos will be uploaded automatically.", Toast.LENGTH_LONG).show();
         setResult(RESULT_OK);
         finish();
     }
@@ -260,8 +282,12 @@ public class CompleteTaskActivity extends AppCompatActivity {
     @Override
     protected void onDestroy() {
         super.onDestroy();
-        if (progressDialog != null && progressDialog.isShowing()) {
-            progressDialog.dismiss();
+        imageExecutor.shutdownNow();
+        // Photos not handed to the outbox are dropped with the screen, but kept across recreation
+        if (isFinishing()) {
+            for (File file : imageFiles) {
+                deleteImageFile(file);
+            }
         }
     }
-}
\ No newline at end of file
+}
@@ -12,6 +12,7 @@ import android.widget.Toast;
 import androidx.appcompat.app.AppCompatActivity;
 
 import com.example.crowdcleaning.R;
+import com.example.crowdcleaning.utils.CompletionOutbox;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
 import com.google.firebase.firestore.FirebaseFirestore;
@@ -36,6 +37,9 @@ public class MainActivity extends AppCompatActivity {
         initializeViews();
         initializeFirebase();
         setupClickListeners();
+
+        // Carry on with task completions a killed app left half uploaded
+        CompletionOutbox.resumePending(this);
     }
 
     private void initializeViews() {
@@ -3,9 +3,12 @@ package com.example.crowdcleaning.activities;
 import android.app.ProgressDialog;
 import android.content.Intent;
 import android.os.Bundle;
+import android.text.Editable;
+import android.text.TextWatcher;
 import android.util.Log;
 import android.view.View;
 import android.widget.Button;
+import android.widget.EditText;
 import android.widget.TextView;
 import android.widget.Toast;
 
@@ -16,30 +19,35 @@ import androidx.recyclerview.widget.RecyclerView;
 import com.example.crowdcleaning.R;
 import com.example.crowdcleaning.adapters.ReportAdapter;
 import com.example.crowdcleaning.models.ReportModel;
+import com.example.crowdcleaning.utils.ReportPager;
+import com.example.crowdcleaning.utils.ReportRepository;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
+import com.google.firebase.firestore.AggregateSource;
 import com.google.firebase.firestore.FirebaseFirestore;
 import com.google.firebase.firestore.Query;
-import com.google.firebase.firestore.QueryDocumentSnapshot;
-import com.google.firebase.firestore.QuerySnapshot;
 
 import java.util.ArrayList;
-import java.util.Date;
 import java.util.List;
 
 public class MyReportsActivity extends AppCompatActivity {
 
     private RecyclerView recyclerViewReports;
     private TextView textEmptyState;
+    private EditText editTextSearch;
     private Button buttonBack;
     private ReportAdapter reportAdapter;
     private List<ReportModel> reportList;
     private FirebaseFirestore db;
     private FirebaseUser currentUser;
+    private ReportRepository reportRepository;
+    private ReportPager reportPager;
     private boolean isAdmin = false;
     private ProgressDialog progressDialog;
+    private String searchQuery = "";
 
     private static final String TAG = "MyReportsActivity";
+    private static final int MAX_SEARCH_RESULTS = 200;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -48,6 +56,7 @@ public class MyReportsActivity extends AppCompatActivity {
 
         db = FirebaseFirestore.getInstance();
         currentUser = FirebaseAuth.getInstance().getCurrentUser();
+        reportRepository = ReportRepository.getInstance(this);
         isAdmin = getIntent().getBooleanExtra("isAdmin", false);
 
         // Initialize progress dialog
@@ -62,18 +71,33 @@ public class MyReportsActivity extends AppCompatActivity {
         if (currentUser == null && !isAdmin) {
             Toast.makeText(this, "Please login first", Toast.LENGTH_SHORT).show();
             finish();
-            return;
         }
 
-        loadMyReports();
+        // Reports are loaded in onResume, which always follows onCreate
     }
 
     private void initializeViews() {
         recyclerViewReports = findViewById(R.id.recyclerViewReports);
         textEmptyState = findViewById(R.id.textEmptyState);
         buttonBack = findViewById(R.id.buttonBack);
+        editTextSearch = findViewById(R.id.editTextSearch);
 
         buttonBack.setOnClickListener(v -> finish());
+        editTextSearch.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+            }
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+            }
+
+            @Override
+            public void afterTextChanged(Editable s) {
+                searchQuery = s.toString().trim();
+                showVisibleReports();
+            }
+        });
 
         if (isAdmin) {
             // Update the toolbar title for admin
@@ -95,9 +119,66 @@ public class MyReportsActivity extends AppCompatActivity {
     private void setupRecyclerView() {
         reportList = new ArrayList<>();
         String userType = isAdmin ? "admin" : "citizen";
-        reportAdapter = new ReportAdapter(reportList, userType);
-        recyclerViewReports.setLayoutManager(new LinearLayoutManager(this));
+        reportAdapter = new ReportAdapter(userType);
+        LinearLayoutManager layoutManager = new LinearLayoutManager(this);
+        recyclerViewReports.setLayoutManager(layoutManager);
         recyclerViewReports.setAdapter(reportAdapter);
+
+        if (isAdmin) {
+            setupAdminPaging(layoutManager);
+        }
+    }
+
+    // The admin list spans the whole collection, so it is loaded a page at a time
+    private void setupAdminPaging(LinearLayoutManager layoutManager) {
+        Query query = db.collection("reports")
+                .orderBy("timestamp", Query.Direction.DESCENDING);
+
+        reportPager = new ReportPager(query, reportList, new ReportPager.Listener() {
+            @Override
+            public void onItemsInserted(int position, int count) {
+                showVisibleReports();
+            }
+
+            @Override
+            public void onItemsRemoved(int position, int count) {
+                showVisibleReports();
+            }
+
+            @Override
+            public void onLoadingChanged(boolean loadingNext) {
+                // The first page uses the progress dialog instead of the footer
+                reportAdapter.setLoadingFooterVisible(loadingNext && !reportList.isEmpty());
+            }
+
+            @Override
+            public void onFirstPageLoaded(boolean empty) {
+                progressDialog.dismiss();
+                textEmptyState.setVisibility(empty ? View.VISIBLE : View.GONE);
+                recyclerViewReports.setVisibility(empty ? View.GONE : View.VISIBLE);
+            }
+
+            @Override
+            public void onError(Exception e) {
+                progressDialog.dismiss();
+                Log.e(TAG, "Error loading reports page", e);
+                if (reportList.isEmpty()) {
+                    showErrorState("Failed to load reports: " + e.getMessage());
+                } else {
+                    Toast.makeText(MyReportsActivity.this, "Failed to load more reports", Toast.LENGTH_SHORT).show();
+                }
+            }
+        });
+
+        recyclerViewReports.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+                // Search results are not pages, scrolling them loads nothing
+                if (dy == 0 || !searchQuery.isEmpty()) return;
+                reportPager.onScrolled(layoutManager.findFirstVisibleItemPosition(),
+                        layoutManager.findLastVisibleItemPosition());
+            }
+        });
     }
 
     private void setupAdapterListener() {
@@ -173,36 +254,46 @@ public class MyReportsActivity extends AppCompatActivity {
             return;
         }
 
-        // Show loading
-        progressDialog.setMessage("Loading reports...");
-        progressDialog.show();
+        if (isAdmin) {
+            // Paged list keeps its position when returning from a report; reload only the first time
+            if (reportList.isEmpty() && !reportPager.isLoading()) {
+                progressDialog.setMessage("Loading reports...");
+                progressDialog.show();
+                reportPager.reset();
+                reportPager.loadNextPage();
+                loadTotalCount();
+            }
+            return;
+        }
 
         try {
-            Query query;
-            if (isAdmin) {
-                query = db.collection("reports")
-                        .orderBy("timestamp", Query.Direction.DESCENDING);
-            } else {
-                String userId = currentUser.getUid();
-                query = db.collection("reports")
-                        .whereEqualTo("userId", userId)
-                        .orderBy("timestamp", Query.Direction.DESCENDING);
+            String userId = currentUser.getUid();
+            // Filters only, the repository syncs it by updatedAt and sorts newest first
+            Query query = db.collection("reports")
+                    .whereEqualTo("userId", userId);
+            String scope = "user_" + userId;
+
+            // Only block the screen when there is nothing cached to show
+            if (reportRepository.getCachedReports(scope) == null) {
+                progressDialog.setMessage("Loading reports...");
+                progressDialog.show();
             }
 
-            query.get().addOnCompleteListener(task -> {
-                progressDialog.dismiss();
+            reportRepository.loadReports(scope, query, (dao, limit) -> dao.loadByUser(userId, limit),
+                    new ReportRepository.ReportListCallback() {
+                    @Override
+                    public void onReportsLoaded(List<ReportModel> reports, boolean fromCache) {
+                        progressDialog.dismiss();
+                        showReports(reports);
+                    }
 
-                if (task.isSuccessful()) {
-                    processQueryResults(task);
-                } else {
-                    String errorMessage = "Failed to load reports";
-                    if (task.getException() != null) {
-                        errorMessage += ": " + task.getException().getMessage();
-                        Log.e(TAG, "Firestore error: ", task.getException());
+                    @Override
+                    public void onError(Exception e) {
+                        progressDialog.dismiss();
+                        Log.e(TAG, "Firestore error: ", e);
+                        showErrorState("Failed to load reports: " + e.getMessage());
                     }
-                    showErrorState(errorMessage);
-                }
-            });
+                });
 
         } catch (Exception e) {
             progressDialog.dismiss();
@@ -211,6 +302,22 @@ public class MyReportsActivity extends AppCompatActivity {
         }
     }
 
+    // Pages only hold part of the collection, so the total comes from a count() aggregation
+    private void loadTotalCount() {
+        db.collection("reports")
+                .count()
+                .get(AggregateSource.SERVER)
+                .addOnSuccessListener(snapshot -> updateToolbarWithCount(snapshot.getCount()))
+                .addOnFailureListener(e -> Log.e(TAG, "Error counting reports", e));
+    }
+
+    private void updateToolbarWithCount(long count) {
+        TextView toolbarTitle = findViewById(R.id.textViewToolbarTitle);
+        if (toolbarTitle != null) {
+            toolbarTitle.setText("All Reports (" + count + ")");
+        }
+    }
+
     private void showErrorState(String message) {
         runOnUiThread(() -> {
             Toast.makeText(MyReportsActivity.this, message, Toast.LENGTH_LONG).show();
@@ -219,159 +326,69 @@ public class MyReportsActivity extends AppCompatActivity {
             recyclerViewReports.setVisibility(View.GONE);
         });
     }
-    // Add this new method to process query results
-    private void processQueryResults(com.google.android.gms.tasks.Task<QuerySnapshot> task) {
-        progressDialog.dismiss();
-
-        if (task.isSuccessful()) {
-            reportList.clear();
-            int reportCount = 0;
-
-            for (QueryDocumentSnapshot document : task.getResult()) {
-                ReportModel report = documentToReportModel(document);
-                if (report != null) {
-                    reportList.add(report);
-                    reportCount++;
-
-                    // Debug logging
-                    Log.d(TAG, "Loaded report: " + report.getTitle() +
-                            ", ID: " + report.getId() +
-                            ", Status: " + report.getStatus() +
-                            ", User: " + report.getUserName());
-                }
-            }
-
-            reportAdapter.notifyDataSetChanged();
-
-            if (reportList.isEmpty()) {
-                textEmptyState.setVisibility(View.VISIBLE);
-                recyclerViewReports.setVisibility(View.GONE);
-                Log.d(TAG, "No reports found for user");
-            } else {
-                textEmptyState.setVisibility(View.GONE);
-                recyclerViewReports.setVisibility(View.VISIBLE);
-                Log.d(TAG, "Successfully loaded " + reportCount + " reports");
-
-                // Update toolbar with count for admin
-                if (isAdmin) {
-                    updateToolbarWithCount(reportCount);
-                }
-            }
 
-        } else {
-            String errorMessage = "Failed to load reports";
-            if (task.getException() != null) {
-                errorMessage += ": " + task.getException().getMessage();
-                Log.e(TAG, "Error loading reports", task.getException());
-            }
-
-            Toast.makeText(MyReportsActivity.this, errorMessage, Toast.LENGTH_LONG).show();
+    private void showReports(List<ReportModel> reports) {
+        reportList.clear();
+        reportList.addAll(reports);
+        if (!searchQuery.isEmpty()) {
+            showVisibleReports();
+            return;
+        }
+        reportAdapter.updateData(reportList);
 
-            // Show error state
-            textEmptyState.setText("Error loading reports\nPlease try again");
+        if (reportList.isEmpty()) {
             textEmptyState.setVisibility(View.VISIBLE);
             recyclerViewReports.setVisibility(View.GONE);
+            Log.d(TAG, "No reports found for user");
+        } else {
+            textEmptyState.setVisibility(View.GONE);
+            recyclerViewReports.setVisibility(View.VISIBLE);
+            Log.d(TAG, "Successfully loaded " + reportList.size() + " reports");
         }
     }
 
-    private void updateToolbarWithCount(int count) {
-        TextView toolbarTitle = findViewById(R.id.textViewToolbarTitle);
-        if (toolbarTitle != null) {
-            toolbarTitle.setText("All Reports (" + count + ")");
+    /**
+     * Shows the loaded list, or the matches of the search query. The admin list only
+     * holds a window of pages, so admin matches come from every report seen so far.
+     */
+    private void showVisibleReports() {
+        if (searchQuery.isEmpty()) {
+            reportAdapter.updateData(reportList);
+            boolean empty = reportList.isEmpty() && (!isAdmin || !reportPager.isLoading());
+            textEmptyState.setText(isAdmin ? "No reports found in the system"
+                    : "No reports found\nSubmit your first report to see it here");
+            textEmptyState.setVisibility(empty ? View.VISIBLE : View.GONE);
+            recyclerViewReports.setVisibility(empty ? View.GONE : View.VISIBLE);
+            return;
         }
-    }
 
-    private ReportModel documentToReportModel(QueryDocumentSnapshot document) {
-        try {
-            if (document == null || !document.exists()) {
-                return null;
-            }
-
-            String id = document.getId();
-            String title = document.getString("title");
-            String description = document.getString("description");
-            String address = document.getString("address");
-            String status = document.getString("status");
-
-            // Validate required fields
-            if (title == null || description == null) {
-                Log.w(TAG, "Skipping document with missing required fields: " + id);
-                return null;
-            }
-
-            // Handle image URLs safely
-            List<String> imageUrls = null;
-            try {
-                imageUrls = (List<String>) document.get("imageUrls");
-            } catch (Exception e) {
-                Log.w(TAG, "Error reading imageUrls for document: " + id);
-            }
-
-            String imageUrl = (imageUrls != null && !imageUrls.isEmpty()) ? imageUrls.get(0) : "";
+        if (!isAdmin) {
+            showMatches(reportRepository.filterBySearch(reportList, searchQuery));
+            return;
+        }
 
-            // Handle timestamp
-            long timestampMillis = System.currentTimeMillis();
-            try {
-                Object timestampObj = document.get("timestamp");
-                if (timestampObj instanceof com.google.firebase.Timestamp) {
-                    timestampMillis = ((com.google.firebase.Timestamp) timestampObj).toDate().getTime();
-                } else if (timestampObj instanceof Long) {
-                    timestampMillis = (Long) timestampObj;
+        String query = searchQuery;
+        reportRepository.searchReports(query, MAX_SEARCH_RESULTS, new ReportRepository.ReportListCallback() {
+            @Override
+            public void onReportsLoaded(List<ReportModel> reports, boolean fromCache) {
+                // Dropped if the query changed while matches were read
+                if (query.equals(searchQuery)) {
+                    showMatches(reports);
                 }
-            } catch (Exception e) {
-                Log.w(TAG, "Error reading timestamp for document: " + id);
             }
 
-            // Get additional fields
-            Long upvotes = getSafeLong(document, "upvotes");
-            Double latitude = getSafeDouble(document, "latitude");
-            Double longitude = getSafeDouble(document, "longitude");
-
-            String volunteerName = document.getString("volunteerName");
-            String userName = document.getString("userName");
-            String volunteerAssigned = document.getString("volunteerAssigned");
-
-            ReportModel report = new ReportModel(
-                    id,
-                    title,
-                    description,
-                    address != null ? address : "Address not provided",
-                    status != null ? status : "reported",
-                    imageUrl,
-                    timestampMillis,
-                    upvotes != null ? upvotes : 0,
-                    latitude != null ? latitude : 0.0,
-                    longitude != null ? longitude : 0.0
-            );
-
-            // Set additional fields
-            report.setVolunteerName(volunteerName);
-            report.setUserName(userName);
-            report.setVolunteerAssigned(volunteerAssigned);
-
-            return report;
-
-        } catch (Exception e) {
-            Log.e(TAG, "Error converting document to ReportModel", e);
-            return null;
-        }
-    }
-
-    // Helper methods for safe type casting
-    private Long getSafeLong(QueryDocumentSnapshot document, String field) {
-        try {
-            return document.getLong(field);
-        } catch (Exception e) {
-            return null;
-        }
+            @Override
+            public void onError(Exception e) {
+                Log.e(TAG, "Error resolving search results", e);
+            }
+        });
     }
 
-    private Double getSafeDouble(QueryDocumentSnapshot document, String field) {
-        try {
-            return document.getDouble(field);
-        } catch (Exception e) {
-            return null;
-        }
+    private void showMatches(List<ReportModel> matches) {
+        reportAdapter.updateData(matches);
+        textEmptyState.setText("No reports match \"" + searchQuery + "\"");
+        textEmptyState.setVisibility(matches.isEmpty() ? View.VISIBLE : View.GONE);
+        recyclerViewReports.setVisibility(matches.isEmpty() ? View.GONE : View.VISIBLE);
     }
 
     @Override
@@ -11,10 +11,14 @@ import android.widget.Toast;
 import androidx.appcompat.app.AppCompatActivity;
 
 import com.example.crowdcleaning.R;
-import com.google.firebase.Timestamp;
-import com.google.firebase.firestore.DocumentSnapshot;
+import com.example.crowdcleaning.models.ReportModel;
+import com.example.crowdcleaning.utils.ImageLoader;
+import com.example.crowdcleaning.utils.ReportRepository;
+import com.example.crowdcleaning.utils.ReportTransitions;
+import com.example.crowdcleaning.utils.UserNameCache;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseUser;
 import com.google.firebase.firestore.FirebaseFirestore;
-import com.squareup.picasso.Picasso;
 
 import java.text.SimpleDateFormat;
 import java.util.Date;
@@ -29,8 +33,13 @@ public class ReportDetailActivity extends AppCompatActivity {
     private ProgressBar progressBar;
 
     private FirebaseFirestore db;
+    private ReportRepository reportRepository;
     private String reportId;
     private String userType;
+    // Status the buttons were built for, checked again when it is changed
+    private String displayedStatus;
+    // The status as stored (null if the report has none), which the transition expects to find
+    private String storedStatus;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -38,6 +47,7 @@ public class ReportDetailActivity extends AppCompatActivity {
         setContentView(R.layout.activity_report_detail);
 
         db = FirebaseFirestore.getInstance();
+        reportRepository = ReportRepository.getInstance();
 
         initializeViews();
         setupClickListeners();
@@ -87,80 +97,62 @@ public class ReportDetailActivity extends AppCompatActivity {
             return;
         }
 
-        db.collection("reports").document(reportId)
-                .get()
-                .addOnSuccessListener(documentSnapshot -> {
-                    showLoading(false);
+        // Served from the shared cache when the report was just shown in a list
+        reportRepository.loadReport(reportId, new ReportRepository.ReportCallback() {
+            @Override
+            public void onReportLoaded(ReportModel report) {
+                showLoading(false);
 
-                    if (documentSnapshot.exists()) {
-                        displayReportData(documentSnapshot);
-                    } else {
-                        Toast.makeText(this, "Report not found", Toast.LENGTH_SHORT).show();
-                        finish();
-                    }
-                })
-                .addOnFailureListener(e -> {
-                    showLoading(false);
-                    Toast.makeText(this, "Failed to load report: " + e.getMessage(), Toast.LENGTH_SHORT).show();
+                if (report != null) {
+                    displayReportData(report);
+                } else {
+                    Toast.makeText(ReportDetailActivity.this, "Report not found", Toast.LENGTH_SHORT).show();
                     finish();
-                });
-    }
+                }
+            }
 
-    private void displayReportData(DocumentSnapshot document) {
-        // Get report data
-        String title = document.getString("title");
-        String description = document.getString("description");
-        String address = document.getString("address");
-        String status = document.getString("status");
-        String userName = document.getString("userName");
-        String userEmail = document.getString("userEmail");
+            @Override
+            public void onError(Exception e) {
+                showLoading(false);
+                Toast.makeText(ReportDetailActivity.this, "Failed to load report: " + e.getMessage(), Toast.LENGTH_SHORT).show();
+                finish();
+            }
+        });
+    }
 
-        // Format timestamp
-        String timestampStr = formatTimestamp(document.get("timestamp"));
+    private void displayReportData(ReportModel report) {
+        String status = report.getStatus();
+        displayedStatus = status;
+        storedStatus = report.getStoredStatus();
 
         // Update UI
-        textTitle.setText(title != null ? title : "No Title");
-        textDescription.setText(description != null ? description : "No Description");
-        textAddress.setText(address != null ? address : "No Address");
+        textTitle.setText(report.getTitle() != null ? report.getTitle() : "No Title");
+        textDescription.setText(report.getDescription() != null ? report.getDescription() : "No Description");
+        textAddress.setText(report.getAddress() != null ? report.getAddress() : "No Address");
         textStatus.setText(status != null ? status.toUpperCase() : "UNKNOWN");
-        textTimestamp.setText(timestampStr);
+        textTimestamp.setText(formatTimestamp(report.getTimestamp()));
 
-        String displayName = userName != null ? userName :
-                (userEmail != null ? userEmail : "Anonymous");
+        String displayName = report.getUserName() != null ? report.getUserName() :
+                (report.getUserEmail() != null ? report.getUserEmail() : "Anonymous");
         textUserName.setText("Reported by: " + displayName);
 
         // Apply status-based styling
         applyStatusStyling(status);
 
         // Load image
-        loadReportImage(document);
+        loadReportImage(report);
 
         // Update button based on status and user type
         updateButtonStatus(status);
     }
 
-    private String formatTimestamp(Object timestampObj) {
-        if (timestampObj == null) {
+    private String formatTimestamp(long timestampMillis) {
+        if (timestampMillis <= 0) {
             return "Unknown";
         }
 
-        try {
-            Date date;
-            if (timestampObj instanceof Timestamp) {
-                Timestamp timestamp = (Timestamp) timestampObj;
-                date = timestamp.toDate();
-            } else if (timestampObj instanceof Long) {
-                Long timestampLong = (Long) timestampObj;
-                date = new Date(timestampLong);
-            } else {
-                return "Invalid date";
-            }
-
-            SimpleDateFormat sdf = new SimpleDateFormat("MMM dd, yyyy 'at' HH:mm", Locale.getDefault());
-            return sdf.format(date);
-        } catch (Exception e) {
-            return "Invalid date";
-        }
+        SimpleDateFormat sdf = new SimpleDateFormat("MMM dd, yyyy 'at' HH:mm", Locale.getDefault());
+        return sdf.format(new Date(timestampMillis));
     }
 
     private void applyStatusStyling(String status) {
@@ -184,12 +176,12 @@ public class ReportDetailActivity extends AppCompatActivity {
         textStatus.setTextColor(color);
     }
 
-    private void loadReportImage(DocumentSnapshot document) {
-        List<String> imageUrls = (List<String>) document.get("imageUrls");
+    private void loadReportImage(ReportModel report) {
+        List<String> imageUrls = report.getImageUrls();
         if (imageUrls != null && !imageUrls.isEmpty()) {
             String imageUrl = imageUrls.get(0);
 
-            Picasso.get()
+            ImageLoader.get(this)
                     .load(imageUrl)
                     .placeholder(R.drawable.ic_image_placeholder) // Create this drawable
                     .error(R.drawable.ic_error_image) // Create this drawable
@@ -232,42 +224,50 @@ public class ReportDetailActivity extends AppCompatActivity {
     }
 
     private void updateReportStatus() {
-        if (reportId == null) return;
+        if (reportId == null || displayedStatus == null) return;
 
         showLoading(true);
         buttonUpdateStatus.setEnabled(false);
 
-        db.collection("reports").document(reportId)
-                .get()
-                .addOnSuccessListener(documentSnapshot -> {
-                    if (documentSnapshot.exists()) {
-                        String currentStatus = documentSnapshot.getString("status");
-                        String newStatus = determineNewStatus(currentStatus);
-
-                        // Update the status in Firestore
-                        db.collection("reports").document(reportId)
-                                .update("status", newStatus)
-                                .addOnSuccessListener(aVoid -> {
-                                    showLoading(false);
-                                    Toast.makeText(this, "Status updated to: " + newStatus, Toast.LENGTH_SHORT).show();
-                                    loadReportDetails(); // Refresh the details
-                                })
-                                .addOnFailureListener(e -> {
-                                    showLoading(false);
-                                    buttonUpdateStatus.setEnabled(true);
-                                    Toast.makeText(this, "Failed to update status: " + e.getMessage(), Toast.LENGTH_SHORT).show();
-                                });
-                    } else {
-                        showLoading(false);
-                        buttonUpdateStatus.setEnabled(true);
-                        Toast.makeText(this, "Report no longer exists", Toast.LENGTH_SHORT).show();
-                    }
-                })
-                .addOnFailureListener(e -> {
-                    showLoading(false);
-                    buttonUpdateStatus.setEnabled(true);
-                    Toast.makeText(this, "Failed to update status: " + e.getMessage(), Toast.LENGTH_SHORT).show();
-                });
+        String newStatus = determineNewStatus(displayedStatus);
+        ReportTransitions.TransitionCallback callback = new ReportTransitions.TransitionCallback() {
+            @Override
+            public void onResult(ReportTransitions.Outcome outcome, String currentStatus) {
+                showLoading(false);
+                switch (outcome) {
+                    case UPDATED:
+                        Toast.makeText(ReportDetailActivity.this, "Status updated to: " + newStatus, Toast.LENGTH_SHORT).show();
+                        break;
+                    case ALREADY_TAKEN:
+                        Toast.makeText(ReportDetailActivity.this, "Sorry, this task was already taken by another volunteer", Toast.LENGTH_SHORT).show();
+                        break;
+                    case STALE:
+                        Toast.makeText(ReportDetailActivity.this, "This report was updated by someone else", Toast.LENGTH_SHORT).show();
+                        break;
+                    case NOT_FOUND:
+                        Toast.makeText(ReportDetailActivity.this, "Report no longer exists", Toast.LENGTH_SHORT).show();
+                        finish();
+                        return;
+                }
+                loadReportDetails(); // Refresh the details
+            }
+
+            @Override
+            public void onError(Exception e) {
+                showLoading(false);
+                buttonUpdateStatus.setEnabled(true);
+                Toast.makeText(ReportDetailActivity.this, "Failed to update status: " + e.getMessage(), Toast.LENGTH_SHORT).show();
+            }
+        };
+
+        FirebaseUser currentUser = FirebaseAuth.getInstance().getCurrentUser();
+        if ("assigned".equals(newStatus) && currentUser != null) {
+            // Accepting goes through the same contention-safe path as the dashboard
+            UserNameCache.load(currentUser, "Volunteer", volunteerName ->
+                    ReportTransitions.acceptTask(reportId, currentUser.getUid(), volunteerName, callback));
+        } else {
+            ReportTransitions.changeStatus(reportId, storedStatus, newStatus, callback);
+        }
     }
 
     private String determineNewStatus(String currentStatus) {
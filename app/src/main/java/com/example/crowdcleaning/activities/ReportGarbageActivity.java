@@ -5,7 +5,6 @@ import android.app.ProgressDialog;
 import android.content.Intent;
 import android.content.pm.PackageManager;
 import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.location.Location;
 import android.net.Uri;
 import android.os.Build;
@@ -22,12 +21,18 @@ import android.widget.LinearLayout;
 import android.widget.TextView;
 import android.widget.Toast;
 
+import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.app.ActivityCompat;
 import androidx.core.content.ContextCompat;
 
 import com.example.crowdcleaning.R;
-import com.example.crowdcleaning.utils.FirebaseUtils;
+import com.example.crowdcleaning.utils.DuplicateDetector;
+import com.example.crowdcleaning.utils.GeoHash;
+import com.example.crowdcleaning.utils.ImageHash;
+import com.example.crowdcleaning.utils.ImageUtils;
+import com.example.crowdcleaning.utils.ReportOutbox;
+import com.example.crowdcleaning.utils.ReportUpvotes;
 import com.google.android.gms.location.FusedLocationProviderClient;
 import com.google.android.gms.location.LocationRequest;
 import com.google.android.gms.location.LocationServices;
@@ -38,17 +43,18 @@ import com.google.android.gms.tasks.Task;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
 import com.google.firebase.firestore.FirebaseFirestore;
-import com.google.firebase.storage.UploadTask;
 
-import java.io.ByteArrayOutputStream;
-import java.io.FileNotFoundException;
-import java.io.InputStream;
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class ReportGarbageActivity extends AppCompatActivity {
 
@@ -68,11 +74,23 @@ public class ReportGarbageActivity extends AppCompatActivity {
     private static final int STORAGE_PERMISSION_REQUEST_CODE = 300;
     private static final int MAX_IMAGES = 3;
     private static final int MAX_IMAGE_SIZE = 1024; // Max dimension for resizing
+    private static final int PREVIEW_SIZE = 180; // Max dimension of the in-form preview
+    private static final int JPEG_QUALITY = 80;
+    private static final String PENDING_IMAGES_DIR = "report_images";
 
-    private List<Bitmap> selectedImageBitmaps;
+    // Only small previews stay in memory, the upload-ready JPEGs live in the cache dir
+    private List<Bitmap> selectedImagePreviews;
+    private List<File> selectedImageFiles;
     private List<String> selectedImageNames;
+    // dHash of each selected photo, compared against nearby reports before submitting
+    private List<Long> selectedImageHashes;
     private ProgressDialog progressDialog;
 
+    // Picked photos are decoded here, one at a time, never on the main thread
+    private final ExecutorService imageExecutor = Executors.newSingleThreadExecutor();
+    // Images picked but still being decoded, counted against MAX_IMAGES
+    private int pendingImageCount = 0;
+
     // Firebase
     private FirebaseAuth mAuth;
     private FirebaseFirestore db;
@@ -92,8 +110,10 @@ public class ReportGarbageActivity extends AppCompatActivity {
         currentUser = mAuth.getCurrentUser();
 
         // Initialize image lists
-        selectedImageBitmaps = new ArrayList<>();
+        selectedImagePreviews = new ArrayList<>();
+        selectedImageFiles = new ArrayList<>();
         selectedImageNames = new ArrayList<>();
+        selectedImageHashes = new ArrayList<>();
 
         initializeViews();
         setupClickListeners();
@@ -284,7 +304,7 @@ public class ReportGarbageActivity extends AppCompatActivity {
 
     // UPDATED METHOD: Uses the new permission checking
     private void selectImages() {
-        if (selectedImageBitmaps.size() >= MAX_IMAGES) {
+        if (selectedImagePreviews.size() + pendingImageCount >= MAX_IMAGES) {
             Toast.makeText(this, "Maximum " + MAX_IMAGES + " images allowed", Toast.LENGTH_SHORT).show();
             return;
         }
@@ -304,9 +324,9 @@ public class ReportGarbageActivity extends AppCompatActivity {
     private void updateImageDisplay() {
         imagesContainer.removeAllViews();
 
-        for (int i = 0; i < selectedImageBitmaps.size(); i++) {
+        for (int i = 0; i < selectedImagePreviews.size(); i++) {
             ImageView imageView = new ImageView(this);
-            imageView.setImageBitmap(selectedImageBitmaps.get(i));
+            imageView.setImageBitmap(selectedImagePreviews.get(i));
 
             LinearLayout.LayoutParams params = new LinearLayout.LayoutParams(180, 180);
             params.setMargins(8, 8, 8, 8);
@@ -331,13 +351,13 @@ public class ReportGarbageActivity extends AppCompatActivity {
     }
 
     private void updateImageCountText() {
-        if (selectedImageBitmaps.isEmpty()) {
+        if (selectedImagePreviews.isEmpty()) {
             textViewImageCount.setText("No images selected");
             buttonUploadImage.setText("Select Photos");
             buttonUploadImage.setEnabled(true);
         } else {
-            int remaining = MAX_IMAGES - selectedImageBitmaps.size();
-            textViewImageCount.setText(selectedImageBitmaps.size() + " image(s) selected" +
+            int remaining = MAX_IMAGES - selectedImagePreviews.size();
+            textViewImageCount.setText(selectedImagePreviews.size() + " image(s) selected" +
                     (remaining > 0 ? " (" + remaining + " more allowed)" : " (Maximum reached)"));
 
             if (remaining > 0) {
@@ -351,15 +371,18 @@ public class ReportGarbageActivity extends AppCompatActivity {
     }
 
     private void removeImage(int position) {
-        if (position >= 0 && position < selectedImageBitmaps.size()) {
-            // Recycle bitmap to free memory
-            Bitmap bitmap = selectedImageBitmaps.get(position);
+        if (position >= 0 && position < selectedImagePreviews.size()) {
+            // Recycle preview and drop the encoded file
+            Bitmap bitmap = selectedImagePreviews.get(position);
             if (bitmap != null && !bitmap.isRecycled()) {
                 bitmap.recycle();
             }
+            deleteImageFile(selectedImageFiles.get(position));
 
-            selectedImageBitmaps.remove(position);
+            selectedImagePreviews.remove(position);
+            selectedImageFiles.remove(position);
             selectedImageNames.remove(position);
+            selectedImageHashes.remove(position);
             updateImageDisplay();
             Toast.makeText(this, "Image removed", Toast.LENGTH_SHORT).show();
         }
@@ -393,7 +416,12 @@ public class ReportGarbageActivity extends AppCompatActivity {
             return;
         }
 
-        if (selectedImageBitmaps.isEmpty()) {
+        if (pendingImageCount > 0) {
+            Toast.makeText(this, "Please wait, photos are still being processed", Toast.LENGTH_SHORT).show();
+            return;
+        }
+
+        if (selectedImagePreviews.isEmpty()) {
             Toast.makeText(this, "Please upload at least one image of the garbage spot", Toast.LENGTH_SHORT).show();
             return;
         }
@@ -417,72 +445,95 @@ public class ReportGarbageActivity extends AppCompatActivity {
                 return;
             }
 
-            // All validations passed - submit report to Firebase
-            uploadImagesAndSubmitReport(title, description, address, latitude, longitude);
+            // All validations passed - make sure this pile is not reported already
+            checkForDuplicate(title, description, address, latitude, longitude);
 
         } catch (NumberFormatException e) {
             Toast.makeText(this, "Invalid coordinate format", Toast.LENGTH_SHORT).show();
         }
     }
 
-    private void uploadImagesAndSubmitReport(String title, String description, String address,
-                                             double latitude, double longitude) {
-        progressDialog.setMessage("Uploading images...");
+    private void checkForDuplicate(String title, String description, String address,
+                                   double latitude, double longitude) {
+        progressDialog.setMessage("Checking for existing reports...");
         progressDialog.show();
 
-        List<String> imageUrls = new ArrayList<>();
-        final int totalImages = selectedImageBitmaps.size();
-        final int[] uploadedCount = {0};
+        DuplicateDetector.findDuplicate(latitude, longitude, new ArrayList<>(selectedImageHashes),
+                new DuplicateDetector.DuplicateCallback() {
+                    @Override
+                    public void onResult(DuplicateDetector.Duplicate duplicate) {
+                        progressDialog.dismiss();
+                        if (isFinishing()) return;
 
-        for (int i = 0; i < selectedImageBitmaps.size(); i++) {
-            Bitmap bitmap = selectedImageBitmaps.get(i);
+                        if (duplicate == null) {
+                            queueReport(title, description, address, latitude, longitude);
+                        } else {
+                            offerUpvote(duplicate, title, description, address, latitude, longitude);
+                        }
+                    }
 
-            // Compress image
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            bitmap.compress(Bitmap.CompressFormat.JPEG, 80, baos);
-            byte[] imageData = baos.toByteArray();
+                    @Override
+                    public void onError(Exception e) {
+                        // Offline or query failure: never block a report on the check
+                        progressDialog.dismiss();
+                        Log.e(TAG, "Duplicate check failed: " + e.getMessage());
+                        if (!isFinishing()) {
+                            queueReport(title, description, address, latitude, longitude);
+                        }
+                    }
+                });
+    }
 
-            // Upload to Firebase Storage
-            UploadTask uploadTask = FirebaseUtils.uploadImage(imageData, "report_images");
+    private void offerUpvote(DuplicateDetector.Duplicate duplicate, String title, String description,
+                             String address, double latitude, double longitude) {
+        String existingTitle = duplicate.title != null ? duplicate.title : "Garbage Report";
+        new AlertDialog.Builder(this)
+                .setTitle("Already reported?")
+                .setMessage("A report with a similar photo exists " + Math.round(duplicate.distanceMeters)
+                        + " m from here:\n\n\"" + existingTitle + "\" (" + duplicate.status + ")\n\n"
+                        + "Upvote it instead of creating a new report?")
+                .setPositiveButton("Upvote", (dialog, which) -> upvoteExisting(duplicate.reportId))
+                .setNegativeButton("Submit Anyway", (dialog, which) ->
+                        queueReport(title, description, address, latitude, longitude))
+                .setNeutralButton("Cancel", null)
+                .show();
+    }
 
-            final int currentIndex = i;
-            uploadTask.addOnSuccessListener(new OnSuccessListener<UploadTask.TaskSnapshot>() {
-                @Override
-                public void onSuccess(UploadTask.TaskSnapshot taskSnapshot) {
-                    // Get download URL
-                    taskSnapshot.getStorage().getDownloadUrl().addOnSuccessListener(new OnSuccessListener<Uri>() {
-                        @Override
-                        public void onSuccess(Uri uri) {
-                            String imageUrl = uri.toString();
-                            imageUrls.add(imageUrl);
-
-                            uploadedCount[0]++;
-
-                            // Update progress message
-                            progressDialog.setMessage("Uploading images... (" + uploadedCount[0] + "/" + totalImages + ")");
-
-                            if (uploadedCount[0] == totalImages) {
-                                // All images uploaded, now save report to Firestore
-                                saveReportToFirestore(title, description, address, latitude, longitude, imageUrls);
-                            }
-                        }
-                    });
-                }
-            }).addOnFailureListener(new OnFailureListener() {
-                @Override
-                public void onFailure(Exception e) {
-                    progressDialog.dismiss();
-                    Toast.makeText(ReportGarbageActivity.this,
-                            "Failed to upload image " + (currentIndex + 1) + ": " + e.getMessage(),
-                            Toast.LENGTH_LONG).show();
-                }
-            });
-        }
+    private void upvoteExisting(String reportId) {
+        progressDialog.setMessage("Upvoting...");
+        progressDialog.show();
+
+        ReportUpvotes.upvote(this, reportId, currentUser.getUid(), new ReportUpvotes.UpvoteCallback() {
+            @Override
+            public void onUpvoted(boolean alreadyUpvoted) {
+                progressDialog.dismiss();
+                Toast.makeText(ReportGarbageActivity.this,
+                        alreadyUpvoted ? "You already upvoted this report" : "Thanks! The existing report was upvoted",
+                        Toast.LENGTH_LONG).show();
+                // Nothing is uploaded, the picked photos can go
+                clearForm();
+                navigateToMain();
+            }
+
+            @Override
+            public void onError(Exception e) {
+                progressDialog.dismiss();
+                Log.e(TAG, "Upvote failed: " + e.getMessage());
+                Toast.makeText(ReportGarbageActivity.this, "Could not upvote: " + e.getMessage(),
+                        Toast.LENGTH_SHORT).show();
+            }
+        });
     }
 
-    private void saveReportToFirestore(String title, String description, String address,
-                                       double latitude, double longitude, List<String> imageUrls) {
-        progressDialog.setMessage("Saving report...");
+    private void navigateToMain() {
+        Intent intent = new Intent(ReportGarbageActivity.this, MainActivity.class);
+        intent.addFlags(Intent.FLAG_ACTIVITY_CLEAR_TOP | Intent.FLAG_ACTIVITY_NEW_TASK);
+        startActivity(intent);
+        finish();
+    }
+
+    private void queueReport(String title, String description, String address,
+                             double latitude, double longitude) {
 
         // Create report data with proper user identification
         Map<String, Object> report = new HashMap<>();
@@ -491,47 +542,44 @@ public class ReportGarbageActivity extends AppCompatActivity {
         report.put("address", address);
         report.put("latitude", latitude);
         report.put("longitude", longitude);
-        report.put("imageUrls", imageUrls);
+        report.put(GeoHash.FIELD, GeoHash.encode(latitude, longitude));
         report.put("userId", currentUser.getUid());
         report.put("userEmail", currentUser.getEmail());
         report.put("userName", currentUser.getDisplayName() != null ?
                 currentUser.getDisplayName() : "Anonymous User");
         report.put("status", "reported");
         report.put("timestamp", new Date());
-        report.put("upvotes", 0);
+        report.put(ReportUpvotes.FIELD_UPVOTES, 0);
         report.put("volunteerAssigned", ""); // Ensure this is empty string, not null
         report.put("volunteerName", ""); // Add this field
         report.put("category", "garbage");
+        List<String> imageHashes = new ArrayList<>();
+        for (long hash : selectedImageHashes) {
+            imageHashes.add(ImageHash.toHex(hash));
+        }
+        report.put(DuplicateDetector.FIELD_IMAGE_HASHES, imageHashes);
 
         // Add debug logging
         Log.d(TAG, "Saving report with data: " + report.toString());
 
-        // Save to Firestore
-        db.collection("reports")
-                .add(report)
-                .addOnSuccessListener(documentReference -> {
-                    progressDialog.dismiss();
-                    String reportId = documentReference.getId();
-
-                    Log.d(TAG, "Report submitted successfully! ID: " + reportId);
-                    Toast.makeText(ReportGarbageActivity.this,
-                            "Report submitted successfully!",
-                            Toast.LENGTH_LONG).show();
-                    clearForm();
-
-                    // Navigate back to main dashboard
-                    Intent intent = new Intent(ReportGarbageActivity.this, MainActivity.class);
-                    intent.addFlags(Intent.FLAG_ACTIVITY_CLEAR_TOP | Intent.FLAG_ACTIVITY_NEW_TASK);
-                    startActivity(intent);
-                    finish();
-                })
-                .addOnFailureListener(e -> {
-                    progressDialog.dismiss();
-                    Log.e(TAG, "Error saving report: " + e.getMessage());
-                    Toast.makeText(ReportGarbageActivity.this,
-                            "Failed to submit report: " + e.getMessage(),
-                            Toast.LENGTH_LONG).show();
-                });
+        // Queued on the device with its photos; ReportOutboxWorker uploads them and
+        // creates the report as soon as there is a connection
+        try {
+            String reportId = ReportOutbox.enqueue(this, report, "imageUrls", new ArrayList<>(selectedImageFiles));
+            Log.d(TAG, "Report queued for submission, ID: " + reportId);
+        } catch (IOException e) {
+            Log.e(TAG, "Error queueing report: " + e.getMessage());
+            Toast.makeText(this, "Failed to submit report: " + e.getMessage(), Toast.LENGTH_LONG).show();
+            return;
+        }
+
+        Toast.makeText(this, "Report submitted! It will be uploaded automatically.", Toast.LENGTH_LONG).show();
+        // The photo files now belong to the outbox, clearForm only drops the previews
+        selectedImageFiles.clear();
+        clearForm();
+
+        // Navigate back to main dashboard
+        navigateToMain();
     }
 
     private void showError(EditText editText, String message) {
@@ -547,15 +595,7 @@ public class ReportGarbageActivity extends AppCompatActivity {
         editTextLatitude.setText("");
         editTextLongitude.setText("");
 
-        // Clear and recycle bitmaps
-        for (Bitmap bitmap : selectedImageBitmaps) {
-            if (bitmap != null && !bitmap.isRecycled()) {
-                bitmap.recycle();
-            }
-        }
-        selectedImageBitmaps.clear();
-        selectedImageNames.clear();
-        System.gc();
+        clearSelectedImages();
     }
 
     @Override
@@ -565,7 +605,7 @@ public class ReportGarbageActivity extends AppCompatActivity {
         if (requestCode == PICK_IMAGES_REQUEST && resultCode == RESULT_OK && data != null) {
             if (data.getClipData() != null) {
                 int count = data.getClipData().getItemCount();
-                int totalToAdd = Math.min(count, MAX_IMAGES - selectedImageBitmaps.size());
+                int totalToAdd = Math.min(count, MAX_IMAGES - selectedImagePreviews.size() - pendingImageCount);
 
                 for (int i = 0; i < totalToAdd; i++) {
                     Uri imageUri = data.getClipData().getItemAt(i).getUri();
@@ -576,7 +616,7 @@ public class ReportGarbageActivity extends AppCompatActivity {
                     Toast.makeText(this, "Only " + totalToAdd + " images added (max " + MAX_IMAGES + " allowed)", Toast.LENGTH_SHORT).show();
                 }
             } else if (data.getData() != null) {
-                if (selectedImageBitmaps.size() < MAX_IMAGES) {
+                if (selectedImagePreviews.size() + pendingImageCount < MAX_IMAGES) {
                     Uri imageUri = data.getData();
                     processSelectedImage(imageUri);
                 } else {
@@ -587,50 +627,87 @@ public class ReportGarbageActivity extends AppCompatActivity {
     }
 
     private void processSelectedImage(Uri imageUri) {
-        try {
-            InputStream imageStream = getContentResolver().openInputStream(imageUri);
-            Bitmap bitmap = BitmapFactory.decodeStream(imageStream);
-
-            if (bitmap != null) {
-                // Resize bitmap to reduce memory usage
-                Bitmap resizedBitmap = resizeBitmap(bitmap, MAX_IMAGE_SIZE);
-                selectedImageBitmaps.add(resizedBitmap);
-                selectedImageNames.add(getImageName(imageUri));
-                updateImageDisplay();
-
-                // Recycle original bitmap to save memory
-                if (bitmap != resizedBitmap) {
-                    bitmap.recycle();
+        pendingImageCount++;
+        String imageName = getImageName(imageUri);
+
+        imageExecutor.execute(() -> {
+            File imageFile = null;
+            Bitmap preview = null;
+            long hash = 0;
+            try {
+                // Decoded straight to MAX_IMAGE_SIZE, the full-size photo is never in memory
+                Bitmap bitmap = ImageUtils.decodeSampledBitmap(getContentResolver(), imageUri, MAX_IMAGE_SIZE);
+                if (bitmap != null) {
+                    // Encode once to disk, keep only a preview; the upload reads the file
+                    imageFile = new File(getPendingImagesDir(), UUID.randomUUID().toString() + ".jpg");
+                    ImageUtils.writeJpeg(bitmap, imageFile, JPEG_QUALITY);
+                    hash = ImageHash.dHash(bitmap);
+                    preview = ImageUtils.scaleToFit(bitmap, PREVIEW_SIZE);
                 }
+            } catch (IOException | OutOfMemoryError e) {
+                Log.e(TAG, "Failed to process image " + imageUri + ": " + e.getMessage());
+                deleteImageFile(imageFile);
+                imageFile = null;
+            }
+
+            final File encodedFile = imageFile;
+            final Bitmap previewBitmap = preview;
+            final long imageHash = hash;
+            runOnUiThread(() -> onImageProcessed(encodedFile, previewBitmap, imageHash, imageName));
+        });
+    }
 
-                Toast.makeText(this, "Image added", Toast.LENGTH_SHORT).show();
+    private void onImageProcessed(File imageFile, Bitmap preview, long imageHash, String imageName) {
+        pendingImageCount--;
+
+        if (isFinishing() || isDestroyed()) {
+            if (preview != null) {
+                preview.recycle();
             }
-        } catch (FileNotFoundException e) {
-            e.printStackTrace();
+            deleteImageFile(imageFile);
+            return;
+        }
+
+        if (imageFile == null || preview == null) {
             Toast.makeText(this, "Error loading image", Toast.LENGTH_SHORT).show();
+            return;
         }
-    }
 
-    private Bitmap resizeBitmap(Bitmap bitmap, int maxSize) {
-        int width = bitmap.getWidth();
-        int height = bitmap.getHeight();
+        selectedImagePreviews.add(preview);
+        selectedImageFiles.add(imageFile);
+        selectedImageNames.add(imageName);
+        selectedImageHashes.add(imageHash);
+        updateImageDisplay();
+        Toast.makeText(this, "Image added", Toast.LENGTH_SHORT).show();
+    }
 
-        if (width <= maxSize && height <= maxSize) {
-            return bitmap;
+    private File getPendingImagesDir() {
+        File dir = new File(getCacheDir(), PENDING_IMAGES_DIR);
+        if (!dir.exists() && !dir.mkdirs()) {
+            Log.e(TAG, "Could not create " + dir);
         }
+        return dir;
+    }
 
-        float ratio = (float) width / height;
-        int newWidth, newHeight;
-
-        if (ratio > 1) {
-            newWidth = maxSize;
-            newHeight = (int) (maxSize / ratio);
-        } else {
-            newHeight = maxSize;
-            newWidth = (int) (maxSize * ratio);
+    private void deleteImageFile(File file) {
+        if (file != null && file.exists() && !file.delete()) {
+            Log.d(TAG, "Could not delete " + file);
         }
+    }
 
-        return Bitmap.createScaledBitmap(bitmap, newWidth, newHeight, true);
+    private void clearSelectedImages() {
+        for (Bitmap bitmap : selectedImagePreviews) {
+            if (bitmap != null && !bitmap.isRecycled()) {
+                bitmap.recycle();
+            }
+        }
+        for (File file : selectedImageFiles) {
+            deleteImageFile(file);
+        }
+        selectedImagePreviews.clear();
+        selectedImageFiles.clear();
+        selectedImageNames.clear();
+        selectedImageHashes.clear();
     }
 
     private String getImageName(Uri uri) {
@@ -677,13 +754,9 @@ public class ReportGarbageActivity extends AppCompatActivity {
     @Override
     protected void onDestroy() {
         super.onDestroy();
-        // Clean up bitmaps to prevent memory leaks
-        for (Bitmap bitmap : selectedImageBitmaps) {
-            if (bitmap != null && !bitmap.isRecycled()) {
-                bitmap.recycle();
-            }
-        }
-        selectedImageBitmaps.clear();
+        // Clean up previews and encoded files to prevent leaks
+        imageExecutor.shutdownNow();
+        clearSelectedImages();
 
         if (progressDialog != null && progressDialog.isShowing()) {
             progressDialog.dismiss();
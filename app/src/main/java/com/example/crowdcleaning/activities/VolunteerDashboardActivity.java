@@ -1,62 +1,107 @@
 package com.example.crowdcleaning.activities;
 
+import android.Manifest;
 import android.content.Context;
 import android.content.Intent;
+import android.content.SharedPreferences;
+import android.content.pm.PackageManager;
 import android.net.ConnectivityManager;
 import android.net.NetworkInfo;
 import android.os.Bundle;
 import android.os.Handler;
+import android.text.Editable;
+import android.text.TextWatcher;
 import android.util.Log;
 import android.view.View;
 import android.widget.Button;
+import android.widget.EditText;
 import android.widget.ProgressBar;
 import android.widget.TextView;
 import android.widget.Toast;
 
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.core.content.ContextCompat;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 import androidx.swiperefreshlayout.widget.SwipeRefreshLayout;
 
+import com.example.crowdcleaning.BuildConfig;
 import com.example.crowdcleaning.R;
 import com.example.crowdcleaning.adapters.ReportAdapter;
+import com.example.crowdcleaning.models.ReportMapper;
 import com.example.crowdcleaning.models.ReportModel;
+import com.example.crowdcleaning.utils.GeoHash;
+import com.example.crowdcleaning.utils.GeohashBackfillWorker;
+import com.example.crowdcleaning.utils.ListenerRegistry;
+import com.example.crowdcleaning.utils.ReportRepository;
+import com.example.crowdcleaning.utils.ReportTransitions;
+import com.example.crowdcleaning.utils.RoutePlanner;
+import com.example.crowdcleaning.utils.StatusConstants;
+import com.example.crowdcleaning.utils.UserNameCache;
+import com.example.crowdcleaning.utils.VolunteerDispatcher;
+import com.google.android.gms.location.FusedLocationProviderClient;
+import com.google.android.gms.location.LocationServices;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
+import com.google.firebase.firestore.AggregateSource;
 import com.google.firebase.firestore.FirebaseFirestore;
 import com.google.firebase.firestore.FirebaseFirestoreException;
-import com.google.firebase.firestore.ListenerRegistration;
 import com.google.firebase.firestore.Query;
 import com.google.firebase.firestore.QueryDocumentSnapshot;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.SetOptions;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class VolunteerDashboardActivity extends AppCompatActivity {
 
     private TextView textViewWelcome, textAssigned, textCompleted, textPending;
     private Button buttonViewAllReports, buttonMyTasks, buttonHome, buttonProfile, buttonLogout;
     private RecyclerView recyclerViewReports;
+    private EditText editTextSearch;
     private ProgressBar progressBar;
     private SwipeRefreshLayout swipeRefreshLayout;
 
     private FirebaseAuth mAuth;
     private FirebaseFirestore db;
     private FirebaseUser currentUser;
+    private ReportRepository reportRepository;
+    private FusedLocationProviderClient fusedLocationClient;
 
     private ReportAdapter reportAdapter;
     private List<ReportModel> reportList;
+    // Full result of the available-reports listener, kept in query order
+    private final List<ReportModel> availableSnapshot = new ArrayList<>();
+    // Snapshot listeners of this screen, detached while it is stopped
+    private ListenerRegistry listenerRegistry;
+    // Latest snapshot of each geohash cell around the volunteer, by cell index
+    private final Map<Integer, QuerySnapshot> nearbySnapshots = new HashMap<>();
+    private int nearbyCellCount = 0;
+    private double nearbyLatitude, nearbyLongitude;
 
     private boolean showingMyTasks = false;
-
-    // Listener registrations for real-time updates
-    private ListenerRegistration assignedListener;
-    private ListenerRegistration completedListener;
-    private ListenerRegistration pendingListener;
+    // Route ordering of "My Tasks" runs here; results of an outdated load are dropped
+    private final ExecutorService routeExecutor = Executors.newSingleThreadExecutor();
+    private int routeGeneration = 0;
+    private String searchQuery = "";
 
     private static final String TAG = "VolunteerDashboard";
+    private static final String SCOPE_AVAILABLE = "available";
+    private static final String SCOPE_NEARBY = "available_nearby";
+    private static final double NEARBY_RADIUS_KM = 10;
+    private static final String LOCATION_PREFS = "shared_location";
+    private static final String KEY_SHARED_BY = "sharedBy";
+    private static final String KEY_SHARED_AT = "sharedAt";
+    private static final String KEY_SHARED_LATITUDE = "latitude";
+    private static final String KEY_SHARED_LONGITUDE = "longitude";
+    private static final double LOCATION_SHARE_DISTANCE_M = 250;
+    private static final long LOCATION_SHARE_INTERVAL_MS = 15 * 60 * 1000L;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -69,6 +114,9 @@ public class VolunteerDashboardActivity extends AppCompatActivity {
         mAuth = FirebaseAuth.getInstance();
         db = FirebaseFirestore.getInstance();
         currentUser = mAuth.getCurrentUser();
+        listenerRegistry = new ListenerRegistry(this);
+        fusedLocationClient = LocationServices.getFusedLocationProviderClient(this);
+        reportRepository = ReportRepository.getInstance(this);
 
         // Check if user is logged in
         if (currentUser == null) {
@@ -88,8 +136,10 @@ public class VolunteerDashboardActivity extends AppCompatActivity {
         // Load initial data
         checkNetworkAndLoadData();
 
-        // Add debug check
-        debugCheckAllReports();
+        // Add debug check (downloads every report, so debug builds only)
+        if (BuildConfig.DEBUG) {
+            debugCheckAllReports();
+        }
     }
 
     private void initializeViews() {
@@ -109,6 +159,24 @@ public class VolunteerDashboardActivity extends AppCompatActivity {
         // RecyclerView
         recyclerViewReports = findViewById(R.id.recyclerViewReports);
 
+        // Search filters whichever list is shown, from the on-device index
+        editTextSearch = findViewById(R.id.editTextSearch);
+        editTextSearch.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+            }
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+            }
+
+            @Override
+            public void afterTextChanged(Editable s) {
+                searchQuery = s.toString().trim();
+                showReportList();
+            }
+        });
+
         // Progress
         progressBar = findViewById(R.id.progressBar);
 
@@ -125,7 +193,7 @@ public class VolunteerDashboardActivity extends AppCompatActivity {
 
     private void setupRecyclerView() {
         reportList = new ArrayList<>();
-        reportAdapter = new ReportAdapter(reportList, "volunteer");
+        reportAdapter = new ReportAdapter("volunteer");
 
         // Set up the adapter listener for volunteer actions
         reportAdapter.setOnReportActionListener(new ReportAdapter.OnReportActionListener() {
@@ -270,7 +338,6 @@ public class VolunteerDashboardActivity extends AppCompatActivity {
 
         Log.d(TAG, "Starting to load all data...");
         loadUserData();
-        loadStats(); // This now sets up real-time listeners
         loadAvailableReports(); // Default view
     }
 
@@ -283,6 +350,7 @@ public class VolunteerDashboardActivity extends AppCompatActivity {
                         if (documentSnapshot.exists()) {
                             String userName = documentSnapshot.getString("name");
                             String userRole = documentSnapshot.getString("role");
+                            UserNameCache.put(currentUser.getUid(), userName);
                             Log.d(TAG, "User data loaded - Name: " + userName + ", Role: " + userRole);
                             textViewWelcome.setText("Welcome, " + (userName != null ? userName : "Volunteer") + "!");
                         } else {
@@ -306,145 +374,229 @@ public class VolunteerDashboardActivity extends AppCompatActivity {
 
         Log.d(TAG, "Loading statistics for user: " + currentUser.getUid());
 
-        // Use real-time listeners for better updates
-        setupStatsListeners();
+        // Server-side count() aggregations: one read each instead of downloading every task
+        Query myReports = db.collection("reports")
+                .whereEqualTo("volunteerAssigned", currentUser.getUid());
+
+        loadCount(myReports, textAssigned);
+        loadCount(myReports.whereEqualTo("status", "completed"), textCompleted);
+        loadCount(myReports.whereIn("status", StatusConstants.ACTIVE_TASK_STATUSES), textPending);
     }
 
-    private void setupStatsListeners() {
-        // Remove existing listeners to avoid duplicates
-        removeStatsListeners();
+    private void loadCount(Query query, TextView target) {
+        query.count()
+                .get(AggregateSource.SERVER)
+                .addOnSuccessListener(snapshot -> target.setText(String.valueOf(snapshot.getCount())))
+                .addOnFailureListener(e -> {
+                    Log.e(TAG, "Count query failed: " + e.getMessage());
+                    target.setText("0");
+                });
+    }
 
-        // Real-time listener for assigned count
-        assignedListener = db.collection("reports")
-                .whereEqualTo("volunteerAssigned", currentUser.getUid())
-                .addSnapshotListener((value, error) -> {
-                    if (error != null) {
-                        Log.e(TAG, "Listen failed for assigned count: " + error.getMessage());
-                        runOnUiThread(() -> textAssigned.setText("0"));
-                        return;
-                    }
+    private void loadAvailableReports() {
+        Log.d(TAG, "Loading available reports (unassigned)");
 
-                    if (value != null) {
-                        int assignedCount = value.size();
-                        Log.d(TAG, "Assigned count updated: " + assignedCount);
-                        runOnUiThread(() -> textAssigned.setText(String.valueOf(assignedCount)));
-                    }
-                });
+        reportAdapter.setReportType("available");
 
-        // Real-time listener for completed count
-        completedListener = db.collection("reports")
-                .whereEqualTo("volunteerAssigned", currentUser.getUid())
-                .whereEqualTo("status", "completed")
-                .addSnapshotListener((value, error) -> {
-                    if (error != null) {
-                        Log.e(TAG, "Listen failed for completed count: " + error.getMessage());
-                        runOnUiThread(() -> textCompleted.setText("0"));
-                        return;
-                    }
+        // Prefer reports within reach when we already know where the volunteer is
+        if (ContextCompat.checkSelfPermission(this, Manifest.permission.ACCESS_FINE_LOCATION)
+                == PackageManager.PERMISSION_GRANTED) {
+            fusedLocationClient.getLastLocation()
+                    .addOnSuccessListener(this, location -> {
+                        if (location != null) {
+                            shareLastLocation(location.getLatitude(), location.getLongitude());
+                            loadNearbyReports(location.getLatitude(), location.getLongitude());
+                        } else {
+                            listenToAllAvailableReports();
+                        }
+                    })
+                    .addOnFailureListener(this, e -> listenToAllAvailableReports());
+        } else {
+            listenToAllAvailableReports();
+        }
+    }
 
-                    if (value != null) {
-                        int completedCount = value.size();
-                        Log.d(TAG, "Completed count updated: " + completedCount);
-                        runOnUiThread(() -> textCompleted.setText(String.valueOf(completedCount)));
-                    }
-                });
+    // Lets admins' auto-assignment rank this volunteer by distance. Only written when the
+    // volunteer moved noticeably or the shared fix is getting old, not on every list load
+    private void shareLastLocation(double latitude, double longitude) {
+        SharedPreferences prefs = getSharedPreferences(LOCATION_PREFS, MODE_PRIVATE);
+        long sharedAt = prefs.getLong(KEY_SHARED_AT, 0);
+        double movedMeters = GeoHash.distanceMeters(latitude, longitude,
+                Double.longBitsToDouble(prefs.getLong(KEY_SHARED_LATITUDE, 0)),
+                Double.longBitsToDouble(prefs.getLong(KEY_SHARED_LONGITUDE, 0)));
+        long now = System.currentTimeMillis();
+        if (currentUser.getUid().equals(prefs.getString(KEY_SHARED_BY, null))
+                && now - sharedAt < LOCATION_SHARE_INTERVAL_MS && movedMeters < LOCATION_SHARE_DISTANCE_M) {
+            return;
+        }
 
-        // Real-time listener for pending count
-        pendingListener = db.collection("reports")
-                .whereEqualTo("volunteerAssigned", currentUser.getUid())
-                .whereIn("status", Arrays.asList("assigned", "in_progress", "pending", "accepted"))
-                .addSnapshotListener((value, error) -> {
-                    if (error != null) {
-                        Log.e(TAG, "Listen failed for pending count: " + error.getMessage());
-                        runOnUiThread(() -> textPending.setText("0"));
-                        return;
-                    }
+        Map<String, Object> location = new HashMap<>();
+        location.put(VolunteerDispatcher.FIELD_LAST_LATITUDE, latitude);
+        location.put(VolunteerDispatcher.FIELD_LAST_LONGITUDE, longitude);
+        location.put(VolunteerDispatcher.FIELD_LAST_LOCATION_AT, new Date(now));
 
-                    if (value != null) {
-                        int pendingCount = value.size();
-                        Log.d(TAG, "Pending count updated: " + pendingCount);
-                        runOnUiThread(() -> textPending.setText(String.valueOf(pendingCount)));
-                    }
-                });
+        db.collection("users").document(currentUser.getUid())
+                .set(location, SetOptions.merge())
+                .addOnSuccessListener(unused -> prefs.edit()
+                        .putString(KEY_SHARED_BY, currentUser.getUid())
+                        .putLong(KEY_SHARED_AT, now)
+                        .putLong(KEY_SHARED_LATITUDE, Double.doubleToRawLongBits(latitude))
+                        .putLong(KEY_SHARED_LONGITUDE, Double.doubleToRawLongBits(longitude))
+                        .apply())
+                .addOnFailureListener(e -> Log.e(TAG, "Could not share last location: " + e.getMessage()));
+    }
 
-        Log.d(TAG, "Real-time stats listeners setup completed");
+    private void loadNearbyReports(double latitude, double longitude) {
+        // Geohash queries miss reports the backfill has not reached, so they are only
+        // used once it has finished; until then every available report is listened to
+        GeohashBackfillWorker.isDone(this).addOnSuccessListener(this, done -> {
+            if (done) {
+                listenToNearbyReports(latitude, longitude);
+            } else {
+                listenToAllAvailableReports();
+            }
+        });
     }
 
-    private void removeStatsListeners() {
-        // Remove existing listeners to avoid duplicates
-        if (assignedListener != null) {
-            assignedListener.remove();
-            assignedListener = null;
+    private void listenToNearbyReports(double latitude, double longitude) {
+        Log.d(TAG, "Listening to available reports within " + NEARBY_RADIUS_KM + " km");
+
+        // Only the nearby reports are read, so the citywide listener is not needed
+        listenerRegistry.remove(SCOPE_AVAILABLE);
+        nearbyLatitude = latitude;
+        nearbyLongitude = longitude;
+
+        List<Query> queries = reportRepository.queryReportsNear(StatusConstants.AVAILABLE_STATUSES,
+                latitude, longitude, NEARBY_RADIUS_KM);
+        // Cells left over from a position that needed more of them
+        for (int cell = queries.size(); cell < nearbyCellCount; cell++) {
+            listenerRegistry.remove(SCOPE_NEARBY + cell);
+            nearbySnapshots.remove(cell);
         }
-        if (completedListener != null) {
-            completedListener.remove();
-            completedListener = null;
+        nearbyCellCount = queries.size();
+
+        // One listener per covering cell, kept while the cell stays the same; the list is
+        // merged from the latest snapshot of every cell once all of them have reported
+        for (int i = 0; i < queries.size(); i++) {
+            int cell = i;
+            listenerRegistry.listen(SCOPE_NEARBY + cell, queries.get(cell), () -> nearbySnapshots.remove(cell),
+                    (value, error) -> {
+                        if (error != null) {
+                            Log.e(TAG, "Nearby query failed: " + error.getMessage());
+                            listenToAllAvailableReports();
+                            return;
+                        }
+                        if (value == null) return;
+
+                        nearbySnapshots.put(cell, value);
+                        if (nearbySnapshots.size() < nearbyCellCount) return;
+
+                        showLoading(false);
+                        List<ReportModel> reports = reportRepository.mergeReportsNear(SCOPE_NEARBY,
+                                nearbySnapshots.values(), nearbyLatitude, nearbyLongitude, NEARBY_RADIUS_KM);
+                        if (reports.isEmpty()) {
+                            // Nothing in reach, show everything instead
+                            listenToAllAvailableReports();
+                        } else {
+                            showAvailableReports(reports);
+                        }
+                    });
         }
-        if (pendingListener != null) {
-            pendingListener.remove();
-            pendingListener = null;
+        Log.d(TAG, "Active snapshot listeners: " + ListenerRegistry.getActiveListenerCount());
+
+        // Render the last known result right away, the listeners refresh it
+        List<ReportModel> cached = reportRepository.getCachedReports(SCOPE_NEARBY);
+        if (cached != null && !cached.isEmpty()) {
+            showAvailableReports(cached);
+        } else if (nearbySnapshots.size() < nearbyCellCount) {
+            showLoading(true);
         }
-        Log.d(TAG, "Previous stats listeners removed");
     }
 
-    private void loadAvailableReports() {
-        Log.d(TAG, "Loading available reports (unassigned)");
-        showLoading(true);
+    private void removeNearbyListeners() {
+        for (int cell = 0; cell < nearbyCellCount; cell++) {
+            listenerRegistry.remove(SCOPE_NEARBY + cell);
+        }
+        nearbySnapshots.clear();
+        nearbyCellCount = 0;
+    }
 
-        reportAdapter.setReportType("available");
+    private void listenToAllAvailableReports() {
+        removeNearbyListeners();
+        Query query = db.collection("reports")
+                .whereIn("status", StatusConstants.AVAILABLE_STATUSES)
+                .orderBy("timestamp", Query.Direction.DESCENDING);
 
-        // More flexible query to catch all available reports
-        db.collection("reports")
-                .whereIn("status", Arrays.asList("reported", "pending", "new", "open", "submitted"))
-                .orderBy("timestamp", Query.Direction.DESCENDING)
-                .addSnapshotListener((value, error) -> {
-                    showLoading(false);
+        // Each snapshot is applied as a delta to availableSnapshot, which is reset whenever
+        // the listener is (re)attached. Re-listening to the same query keeps the live listener.
+        boolean attached = listenerRegistry.listen(SCOPE_AVAILABLE, query, availableSnapshot::clear, (value, error) -> {
+            showLoading(false);
 
-                    if (error != null) {
-                        Log.e(TAG, "Failed to load available reports: " + error.getMessage());
-                        Toast.makeText(this, "Failed to load reports", Toast.LENGTH_SHORT).show();
-                        return;
-                    }
+            if (error != null) {
+                Log.e(TAG, "Failed to load available reports: " + error.getMessage());
+                Toast.makeText(this, "Failed to load reports", Toast.LENGTH_SHORT).show();
+                return;
+            }
 
-                    if (value != null) {
-                        reportList.clear();
-                        int count = 0;
-                        for (QueryDocumentSnapshot document : value) {
-                            ReportModel report = documentToReportModel(document);
-                            if (report != null && isReportAvailable(report)) {
-                                reportList.add(report);
-                                count++;
-                                Log.d(TAG, "Available report: " + report.getTitle() +
-                                        " - Status: " + report.getStatus() +
-                                        " - Volunteer: " + report.getVolunteerAssigned());
+            if (value != null) {
+                showAvailableReports(reportRepository.applyDocumentChanges(SCOPE_AVAILABLE, availableSnapshot, value));
+
+                if (!showingMyTasks && reportList.isEmpty()) {
+                    Toast.makeText(this, "No available reports to accept", Toast.LENGTH_SHORT).show();
+                }
+            }
+        });
+        Log.d(TAG, "Active snapshot listeners: " + ListenerRegistry.getActiveListenerCount());
+
+        if (!attached && !availableSnapshot.isEmpty()) {
+            // Listener is already live and availableSnapshot is current
+            showLoading(false);
+            showAvailableReports(availableSnapshot);
+            return;
+        }
+
+        // Render the last known result right away, the listener refreshes it
+        List<ReportModel> cached = reportRepository.getCachedReports(SCOPE_AVAILABLE);
+        if (cached != null) {
+            showAvailableReports(cached);
+        } else {
+            showLoading(true);
+            // Cold start: the stored copy from the last session, unless the listener was faster
+            reportRepository.loadStoredReports((dao, limit) -> dao.loadByStatus(StatusConstants.AVAILABLE_STATUSES, limit),
+                    new ReportRepository.ReportListCallback() {
+                        @Override
+                        public void onReportsLoaded(List<ReportModel> reports, boolean fromCache) {
+                            if (availableSnapshot.isEmpty() && !isFinishing()) {
+                                showLoading(false);
+                                showAvailableReports(reports);
                             }
                         }
-                        reportAdapter.notifyDataSetChanged();
-                        Log.d(TAG, "Available reports loaded: " + count + " reports");
 
-                        if (reportList.isEmpty()) {
-                            Toast.makeText(this, "No available reports to accept", Toast.LENGTH_SHORT).show();
+                        @Override
+                        public void onError(Exception e) {
+                            Log.e(TAG, "Failed to read stored reports: " + e.getMessage());
                         }
-                    }
-                });
+                    });
+        }
     }
 
-    private boolean isReportAvailable(ReportModel report) {
-        // Check if report is truly available (unassigned)
-        String volunteerAssigned = report.getVolunteerAssigned();
-        boolean isUnassigned = volunteerAssigned == null ||
-                volunteerAssigned.isEmpty() ||
-                "null".equals(volunteerAssigned) ||
-                "unassigned".equalsIgnoreCase(volunteerAssigned.trim());
+    private void showAvailableReports(List<ReportModel> reports) {
+        if (showingMyTasks) return;
 
-        String status = report.getStatus();
-        boolean isAvailableStatus = "reported".equals(status) ||
-                "pending".equals(status) ||
-                "new".equals(status) ||
-                "open".equals(status) ||
-                "submitted".equals(status);
+        reportList.clear();
+        for (ReportModel report : reports) {
+            if (isReportAvailable(report)) {
+                reportList.add(report);
+            }
+        }
+        showReportList();
+        Log.d(TAG, "Available reports loaded: " + reportList.size() + " reports");
+    }
 
-        return isUnassigned && isAvailableStatus;
+    private boolean isReportAvailable(ReportModel report) {
+        // Check if report is truly available (unassigned)
+        return StatusConstants.isUnassigned(report.getVolunteerAssigned())
+                && StatusConstants.isAvailableStatus(report.getStatus());
     }
 
     private void loadMyTasks() {
@@ -454,48 +606,104 @@ public class VolunteerDashboardActivity extends AppCompatActivity {
         }
 
         Log.d(TAG, "Loading my tasks for user: " + currentUser.getUid());
-        showLoading(true);
 
         reportAdapter.setReportType("myTasks");
 
-        // Load reports assigned to current volunteer
-        db.collection("reports")
-                .whereEqualTo("volunteerAssigned", currentUser.getUid())
-                .orderBy("timestamp", Query.Direction.DESCENDING)
-                .get()
-                .addOnCompleteListener(task -> {
+        // Load reports assigned to current volunteer, cached result first; the
+        // repository syncs the filter by updatedAt and sorts newest first
+        Query query = db.collection("reports")
+                .whereEqualTo("volunteerAssigned", currentUser.getUid());
+
+        if (reportRepository.getCachedReports(getMyTasksScope()) == null) {
+            showLoading(true);
+        }
+
+        String volunteerId = currentUser.getUid();
+        reportRepository.loadReports(getMyTasksScope(), query, (dao, limit) -> dao.loadByVolunteer(volunteerId, limit),
+                new ReportRepository.ReportListCallback() {
+                @Override
+                public void onReportsLoaded(List<ReportModel> reports, boolean fromCache) {
                     showLoading(false);
+                    if (!showingMyTasks) return;
 
-                    if (task.isSuccessful()) {
-                        reportList.clear();
-                        int count = 0;
-                        for (QueryDocumentSnapshot document : task.getResult()) {
-                            ReportModel report = documentToReportModel(document);
-                            if (report != null) {
-                                reportList.add(report);
-                                count++;
-                                Log.d(TAG, "My task: " + report.getTitle() + " - Status: " + report.getStatus());
-                            }
-                        }
-                        reportAdapter.notifyDataSetChanged();
-                        Log.d(TAG, "My tasks loaded: " + count + " reports");
+                    reportList.clear();
+                    reportList.addAll(reports);
+                    showReportList();
+                    Log.d(TAG, "My tasks loaded: " + reports.size() + " reports (fromCache: " + fromCache + ")");
+                    orderTasksByRoute(reports);
 
-                        if (reportList.isEmpty()) {
-                            Toast.makeText(this, "No tasks assigned to you", Toast.LENGTH_SHORT).show();
-                        }
-                    } else {
-                        String error = task.getException() != null ? task.getException().getMessage() : "Unknown error";
-                        Log.e(TAG, "Failed to load my tasks: " + error);
-                        Toast.makeText(this, "Failed to load your tasks", Toast.LENGTH_SHORT).show();
-                        handleNetworkError(task.getException());
+                    if (!fromCache && reportList.isEmpty()) {
+                        Toast.makeText(VolunteerDashboardActivity.this, "No tasks assigned to you", Toast.LENGTH_SHORT).show();
                     }
-                })
-                .addOnFailureListener(e -> {
+                }
+
+                @Override
+                public void onError(Exception e) {
                     showLoading(false);
                     Log.e(TAG, "Failed to load my tasks: " + e.getMessage());
-                    Toast.makeText(this, "Network error: " + e.getMessage(), Toast.LENGTH_SHORT).show();
+                    Toast.makeText(VolunteerDashboardActivity.this, "Failed to load your tasks", Toast.LENGTH_SHORT).show();
                     handleNetworkError(e);
+                }
+            });
+    }
+
+    /**
+     * Reorders the shown tasks into a short visiting sequence from the volunteer's
+     * current location. Tasks without coordinates keep their place at the end.
+     */
+    private void orderTasksByRoute(List<ReportModel> tasks) {
+        int generation = ++routeGeneration;
+        if (tasks.size() < 2 || ContextCompat.checkSelfPermission(this, Manifest.permission.ACCESS_FINE_LOCATION)
+                != PackageManager.PERMISSION_GRANTED) {
+            return;
+        }
+
+        List<ReportModel> snapshot = new ArrayList<>(tasks);
+        fusedLocationClient.getLastLocation().addOnSuccessListener(this, location -> {
+            if (location == null || generation != routeGeneration) return;
+
+            routeExecutor.execute(() -> {
+                List<ReportModel> located = new ArrayList<>();
+                List<ReportModel> unlocated = new ArrayList<>();
+                for (ReportModel task : snapshot) {
+                    if (task.getLatitude() != 0 || task.getLongitude() != 0) {
+                        located.add(task);
+                    } else {
+                        unlocated.add(task);
+                    }
+                }
+
+                double[] latitudes = new double[located.size()];
+                double[] longitudes = new double[located.size()];
+                for (int i = 0; i < located.size(); i++) {
+                    latitudes[i] = located.get(i).getLatitude();
+                    longitudes[i] = located.get(i).getLongitude();
+                }
+                int[] order = RoutePlanner.plan(location.getLatitude(), location.getLongitude(), latitudes, longitudes);
+
+                List<ReportModel> route = new ArrayList<>(snapshot.size());
+                for (int index : order) {
+                    route.add(located.get(index));
+                }
+                route.addAll(unlocated);
+
+                runOnUiThread(() -> {
+                    if (generation != routeGeneration || !showingMyTasks || isFinishing()) return;
+                    reportList.clear();
+                    reportList.addAll(route);
+                    showReportList();
+                    Log.d(TAG, "My tasks ordered by route: " + located.size() + " stops");
                 });
+            });
+        });
+    }
+
+    private void showReportList() {
+        reportAdapter.updateData(reportRepository.filterBySearch(reportList, searchQuery));
+    }
+
+    private String getMyTasksScope() {
+        return "tasks_" + currentUser.getUid();
     }
 
     // ADD DEBUG METHOD TO CHECK ALL REPORTS
@@ -532,7 +740,7 @@ public class VolunteerDashboardActivity extends AppCompatActivity {
                             }
 
                             // Count available reports
-                            if (isReportAvailable(documentToReportModel(document))) {
+                            if (isReportAvailable(ReportMapper.fromSnapshot(document))) {
                                 availableCount++;
                                 Log.d(TAG, "*** THIS IS AVAILABLE ***");
                             }
@@ -549,92 +757,6 @@ public class VolunteerDashboardActivity extends AppCompatActivity {
                 });
     }
 
-    private ReportModel documentToReportModel(QueryDocumentSnapshot document) {
-        try {
-            String id = document.getId();
-            String title = document.getString("title");
-            String description = document.getString("description");
-            String address = document.getString("address");
-            String status = document.getString("status");
-            String volunteerAssigned = document.getString("volunteerAssigned");
-            String volunteerName = document.getString("volunteerName");
-            String userName = document.getString("userName");
-            String userEmail = document.getString("userEmail");
-
-            // FIX: Properly handle image URLs - check both single imageUrl and imageUrls array
-            String imageUrl = "";
-            List<String> imageUrls = new ArrayList<>();
-
-            try {
-                // First try to get imageUrls array (from ReportGarbageActivity)
-                Object imageUrlsObj = document.get("imageUrls");
-                if (imageUrlsObj instanceof List) {
-                    imageUrls = (List<String>) imageUrlsObj;
-                    if (imageUrls != null && !imageUrls.isEmpty()) {
-                        imageUrl = imageUrls.get(0); // Use first image for thumbnail
-                    }
-                }
-
-                // If no imageUrls found, try single imageUrl field (from AddReportActivity)
-                if (imageUrl.isEmpty()) {
-                    String singleImageUrl = document.getString("imageUrl");
-                    if (singleImageUrl != null && !singleImageUrl.isEmpty()) {
-                        imageUrl = singleImageUrl;
-                        imageUrls = Arrays.asList(singleImageUrl); // Convert to list for consistency
-                    }
-                }
-            } catch (Exception e) {
-                Log.w(TAG, "Error reading image URLs for document: " + id, e);
-            }
-
-            // Handle timestamp
-            long timestampMillis;
-            Object timestampObj = document.get("timestamp");
-            if (timestampObj instanceof com.google.firebase.Timestamp) {
-                timestampMillis = ((com.google.firebase.Timestamp) timestampObj).toDate().getTime();
-            } else if (timestampObj instanceof Long) {
-                timestampMillis = (Long) timestampObj;
-            } else if (timestampObj instanceof Date) {
-                timestampMillis = ((Date) timestampObj).getTime();
-            } else {
-                timestampMillis = System.currentTimeMillis();
-            }
-
-            Long upvotes = document.getLong("upvotes");
-            Double latitude = document.getDouble("latitude");
-            Double longitude = document.getDouble("longitude");
-
-            ReportModel report = new ReportModel(
-                    id,
-                    title != null ? title : "No Title",
-                    description != null ? description : "No Description",
-                    address != null ? address : "No Address",
-                    status != null ? status : "reported",
-                    imageUrl, // Now properly set
-                    timestampMillis,
-                    upvotes != null ? upvotes : 0,
-                    latitude != null ? latitude : 0.0,
-                    longitude != null ? longitude : 0.0
-            );
-
-            // Set additional fields
-            report.setVolunteerAssigned(volunteerAssigned);
-            report.setVolunteerName(volunteerName);
-            report.setUserName(userName);
-            report.setUserEmail(userEmail);
-            report.setImageUrls(imageUrls); // Set the full list of image URLs
-
-            Log.d(TAG, "Loaded report - ID: " + id +
-                    ", Image URL: " + (imageUrl.isEmpty() ? "No image" : imageUrl) +
-                    ", Total images: " + imageUrls.size());
-
-            return report;
-        } catch (Exception e) {
-            Log.e(TAG, "Error converting document to ReportModel: " + e.getMessage());
-            return null;
-        }
-    }
-
     private void acceptTask(ReportModel report) {
         if (currentUser == null) {
             Toast.makeText(this, "Please login first", Toast.LENGTH_SHORT).show();
@@ -661,42 +783,35 @@ public class VolunteerDashboardActivity extends AppCompatActivity {
     private void performAcceptTask(ReportModel report) {
         Log.d(TAG, "Performing accept task for: " + report.getId());
 
-        // Get current user name for the report
-        db.collection("users").document(currentUser.getUid())
-                .get()
-                .addOnSuccessListener(userDocument -> {
-                    String volunteerName = userDocument.getString("name");
-                    if (volunteerName == null) {
-                        volunteerName = currentUser.getDisplayName();
-                        if (volunteerName == null) {
-                            volunteerName = "Volunteer";
-                        }
-                    }
+        // Name is cached from loadUserData, so accepting is a single transaction
+        UserNameCache.load(currentUser, "Volunteer", volunteerName ->
+                ReportTransitions.acceptTask(report.getId(), currentUser.getUid(), volunteerName,
+                        new ReportTransitions.TransitionCallback() {
+                            @Override
+                            public void onResult(ReportTransitions.Outcome outcome, String currentStatus) {
+                                switch (outcome) {
+                                    case UPDATED:
+                                        Log.d(TAG, "Task accepted successfully!");
+                                        Toast.makeText(VolunteerDashboardActivity.this, "Task accepted successfully!", Toast.LENGTH_SHORT).show();
+                                        refreshDashboard();
+                                        break;
+                                    case ALREADY_TAKEN:
+                                        Log.d(TAG, "Task already taken, status: " + currentStatus);
+                                        Toast.makeText(VolunteerDashboardActivity.this, "Sorry, this task was already taken by another volunteer", Toast.LENGTH_SHORT).show();
+                                        break;
+                                    default:
+                                        Toast.makeText(VolunteerDashboardActivity.this, "This report no longer exists", Toast.LENGTH_SHORT).show();
+                                        break;
+                                }
+                            }
 
-                    // Update the report to assign it to the current volunteer
-                    db.collection("reports").document(report.getId())
-                            .update(
-                                    "volunteerAssigned", currentUser.getUid(),
-                                    "volunteerName", volunteerName,
-                                    "status", "assigned",
-                                    "assignedAt", new Date()
-                            )
-                            .addOnSuccessListener(aVoid -> {
-                                Log.d(TAG, "Task accepted successfully!");
-                                Toast.makeText(this, "Task accepted successfully!", Toast.LENGTH_SHORT).show();
-                                refreshDashboard();
-                            })
-                            .addOnFailureListener(e -> {
+                            @Override
+                            public void onError(Exception e) {
                                 Log.e(TAG, "Failed to accept task: " + e.getMessage());
-                                Toast.makeText(this, "Failed to accept task", Toast.LENGTH_SHORT).show();
+                                Toast.makeText(VolunteerDashboardActivity.this, "Failed to accept task", Toast.LENGTH_SHORT).show();
                                 handleNetworkError(e);
-                            });
-                })
-                .addOnFailureListener(e -> {
-                    Log.e(TAG, "Failed to get user data: " + e.getMessage());
-                    Toast.makeText(this, "Failed to get user data", Toast.LENGTH_SHORT).show();
-                    handleNetworkError(e);
-                });
+                            }
+                        }));
     }
 
     private void markTaskComplete(ReportModel report) {
@@ -722,9 +837,11 @@ public class VolunteerDashboardActivity extends AppCompatActivity {
             return;
         }
 
-        // Force refresh all data
+        // Force refresh all data; the task list is re-read in full so reports that were
+        // deleted or reassigned meanwhile drop out
+        reportRepository.requestFullSync(getMyTasksScope());
         loadUserData();
-        // Stats are automatically updated by real-time listeners
+        loadStats();
 
         // Refresh based on current view with slight delay to ensure data consistency
         new Handler().postDelayed(new Runnable() {
@@ -741,7 +858,9 @@ public class VolunteerDashboardActivity extends AppCompatActivity {
         }, 500);
 
         // Also debug current state
-        debugCheckAllReports();
+        if (BuildConfig.DEBUG) {
+            debugCheckAllReports();
+        }
     }
 
     private void logoutUser() {
@@ -757,8 +876,8 @@ public class VolunteerDashboardActivity extends AppCompatActivity {
 
     private void performLogout() {
         Log.d(TAG, "Logging out user");
-        // Remove listeners before logout
-        removeStatsListeners();
+        reportRepository.clear();
+        UserNameCache.clear();
         mAuth.signOut();
         Intent intent = new Intent(VolunteerDashboardActivity.this, LoginActivity.class);
         intent.addFlags(Intent.FLAG_ACTIVITY_CLEAR_TASK | Intent.FLAG_ACTIVITY_NEW_TASK);
@@ -795,7 +914,7 @@ public class VolunteerDashboardActivity extends AppCompatActivity {
                 showNoInternetToast();
                 return;
             }
-            // Stats are automatically updated by real-time listeners
+            loadStats();
             if (showingMyTasks) {
                 loadMyTasks();
             } else {
@@ -808,14 +927,12 @@ public class VolunteerDashboardActivity extends AppCompatActivity {
     protected void onPause() {
         super.onPause();
         Log.d(TAG, "Activity paused");
-        // We keep listeners active for real-time updates
     }
 
     @Override
     protected void onDestroy() {
         super.onDestroy();
+        routeExecutor.shutdownNow();
         Log.d(TAG, "Activity destroyed");
-        // Remove listeners to prevent memory leaks
-        removeStatsListeners();
     }
 }
\ No newline at end of file
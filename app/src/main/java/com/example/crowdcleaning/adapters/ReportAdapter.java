@@ -7,24 +7,77 @@ import android.widget.Button;
 import android.widget.ImageView;
 import android.widget.TextView;
 
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.crowdcleaning.R;
 import com.example.crowdcleaning.models.ReportModel;
-import com.squareup.picasso.Callback;
-import com.squareup.picasso.NetworkPolicy;
+import com.example.crowdcleaning.utils.ImageLoader;
+import com.example.crowdcleaning.utils.ImageRenditions;
 import com.squareup.picasso.Picasso;
 
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Report list adapter. Lists are diffed off the main thread by the ListAdapter's
+ * AsyncListDiffer, so a changed report only rebinds its own row.
+ */
+public class ReportAdapter extends ListAdapter<ReportModel, RecyclerView.ViewHolder> {
+
+    private static final int VIEW_TYPE_REPORT = 0;
+    private static final int VIEW_TYPE_LOADING = 1;
+    private static final long FOOTER_ITEM_ID = Long.MIN_VALUE;
+    // Rows ahead of the viewport whose images are fetched while scrolling
+    private static final int PREFETCH_ROWS = 6;
+
+    private static final DiffUtil.ItemCallback<ReportModel> DIFF_CALLBACK = new DiffUtil.ItemCallback<ReportModel>() {
+        @Override
+        public boolean areItemsTheSame(ReportModel oldItem, ReportModel newItem) {
+            return Objects.equals(oldItem.getId(), newItem.getId());
+        }
+
+        @Override
+        public boolean areContentsTheSame(ReportModel oldItem, ReportModel newItem) {
+            // Only the fields a row displays
+            return Objects.equals(oldItem.getTitle(), newItem.getTitle())
+                    && Objects.equals(oldItem.getDescription(), newItem.getDescription())
+                    && Objects.equals(oldItem.getAddress(), newItem.getAddress())
+                    && Objects.equals(oldItem.getStatus(), newItem.getStatus())
+                    && Objects.equals(oldItem.getVolunteerName(), newItem.getVolunteerName())
+                    && Objects.equals(oldItem.getImageUrl(), newItem.getImageUrl())
+                    && oldItem.getTimestamp() == newItem.getTimestamp();
+        }
+    };
 
-public class ReportAdapter extends RecyclerView.Adapter<ReportAdapter.ViewHolder> {
+    // Stable row IDs keyed on report ID
+    private final Map<String, Long> stableIds = new HashMap<>();
+    private long nextStableId = 1;
 
-    private List<ReportModel> reportList;
     private String userType;
     private String reportType;
     private OnReportActionListener actionListener;
+    private boolean showLoadingFooter;
+
+    // Size of a row's image view once measured, used for prefetching
+    private int imageWidth;
+    private int imageHeight;
+    private int prefetchedFrom = -1;
+    private int prefetchedTo = -1;
+
+    private final RecyclerView.OnScrollListener prefetchListener = new RecyclerView.OnScrollListener() {
+        @Override
+        public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+            prefetchImages(recyclerView, dy);
+        }
+    };
 
     public interface OnReportActionListener {
         void onAcceptTask(ReportModel report);
@@ -33,10 +86,11 @@ public class ReportAdapter extends RecyclerView.Adapter<ReportAdapter.ViewHolder
         void onAdminAction(ReportModel report);
     }
 
-    public ReportAdapter(List<ReportModel> reportList, String userType) {
-        this.reportList = reportList;
+    public ReportAdapter(String userType) {
+        super(DIFF_CALLBACK);
         this.userType = userType;
         this.reportType = "available";
+        setHasStableIds(true);
     }
 
     public void setOnReportActionListener(OnReportActionListener listener) {
@@ -48,18 +102,55 @@ public class ReportAdapter extends RecyclerView.Adapter<ReportAdapter.ViewHolder
         notifyDataSetChanged();
     }
 
+    // Shows a progress row after the last report while the next page loads
+    public void setLoadingFooterVisible(boolean visible) {
+        if (showLoadingFooter == visible) return;
+        showLoadingFooter = visible;
+        int footerPosition = getCurrentList().size();
+        if (visible) {
+            notifyItemInserted(footerPosition);
+        } else {
+            notifyItemRemoved(footerPosition);
+        }
+    }
+
+    @Override
+    public long getItemId(int position) {
+        if (getItemViewType(position) == VIEW_TYPE_LOADING) {
+            return FOOTER_ITEM_ID;
+        }
+        String reportId = getItem(position).getId();
+        Long id = stableIds.get(reportId);
+        if (id == null) {
+            id = nextStableId++;
+            stableIds.put(reportId, id);
+        }
+        return id;
+    }
+
+    @Override
+    public int getItemViewType(int position) {
+        return showLoadingFooter && position == getItemCount() - 1 ? VIEW_TYPE_LOADING : VIEW_TYPE_REPORT;
+    }
+
     @Override
-    public ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+    public RecyclerView.ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+        if (viewType == VIEW_TYPE_LOADING) {
+            View view = LayoutInflater.from(parent.getContext())
+                    .inflate(R.layout.item_loading_footer, parent, false);
+            return new LoadingViewHolder(view);
+        }
         View view = LayoutInflater.from(parent.getContext())
                 .inflate(R.layout.item_report, parent, false);
         return new ViewHolder(view);
     }
 
     @Override
-    public void onBindViewHolder(ViewHolder holder, int position) {
-        if (reportList == null || position >= reportList.size()) return;
+    public void onBindViewHolder(RecyclerView.ViewHolder viewHolder, int position) {
+        if (!(viewHolder instanceof ViewHolder)) return;
 
-        ReportModel report = reportList.get(position);
+        ViewHolder holder = (ViewHolder) viewHolder;
+        ReportModel report = getItem(position);
 
         holder.textTitle.setText(report.getTitle() != null ? report.getTitle() : "No Title");
         holder.textDescription.setText(report.getDescription() != null ? report.getDescription() : "No Description");
@@ -93,48 +184,100 @@ public class ReportAdapter extends RecyclerView.Adapter<ReportAdapter.ViewHolder
         setupActionButtons(holder, report);
     }
 
+    // One request per image: Picasso checks its memory LRU and the disk cache itself
     private void loadReportImage(ImageView imageView, ReportModel report) {
-        String imageUrl = getImageUrl(report);
+        if (imageView == null) return;
+
+        if (imageView.getWidth() > 0 && imageView.getHeight() > 0) {
+            imageWidth = imageView.getWidth();
+            imageHeight = imageView.getHeight();
+        }
+
+        String imageUrl = getImageUrl(report, imageView);
         if (imageUrl != null && !imageUrl.isEmpty()) {
             imageView.setVisibility(View.VISIBLE);
-            Picasso.get()
+            ImageLoader.get(imageView.getContext())
                     .load(imageUrl)
                     .placeholder(android.R.drawable.ic_menu_gallery)
                     .error(android.R.drawable.ic_menu_report_image)
-                    .resize(300, 300)
+                    .fit() // Decoded at the view's measured size
                     .centerCrop()
-                    .onlyScaleDown() // Only scale down, never up
-                    .networkPolicy(NetworkPolicy.OFFLINE) // Try cache first
-                    .into(imageView, new Callback() {
-                        @Override
-                        public void onSuccess() {
-                            // Image loaded from cache
-                        }
-
-                        @Override
-                        public void onError(Exception e) {
-                            // Try loading from network if cache fails
-                            Picasso.get()
-                                    .load(imageUrl)
-                                    .placeholder(android.R.drawable.ic_menu_gallery)
-                                    .error(android.R.drawable.ic_menu_report_image)
-                                    .resize(300, 300)
-                                    .centerCrop()
-                                    .into(imageView);
-                        }
-                    });
+                    .into(imageView);
         } else {
+            ImageLoader.get(imageView.getContext()).cancelRequest(imageView);
             imageView.setVisibility(View.GONE);
         }
     }
 
-    private String getImageUrl(ReportModel report) {
+    /**
+     * Warms the image caches for the PREFETCH_ROWS rows past the visible ones in the
+     * scroll direction, at the size the rows display them, so fit() finds them in the
+     * memory cache under the same key.
+     */
+    private void prefetchImages(RecyclerView recyclerView, int dy) {
+        if (dy == 0 || imageWidth == 0 || !(recyclerView.getLayoutManager() instanceof LinearLayoutManager)) {
+            return;
+        }
+
+        LinearLayoutManager layoutManager = (LinearLayoutManager) recyclerView.getLayoutManager();
+        int itemCount = getCurrentList().size();
+        int from;
+        int to;
+        if (dy > 0) {
+            from = layoutManager.findLastVisibleItemPosition() + 1;
+            to = Math.min(itemCount, from + PREFETCH_ROWS);
+        } else {
+            to = layoutManager.findFirstVisibleItemPosition();
+            from = Math.max(0, to - PREFETCH_ROWS);
+        }
+        if (from < 0 || from >= to || (from >= prefetchedFrom && to <= prefetchedTo)) {
+            return;
+        }
+        prefetchedFrom = from;
+        prefetchedTo = to;
+
+        Picasso picasso = ImageLoader.get(recyclerView.getContext());
+        for (int position = from; position < to; position++) {
+            String imageUrl = getImageUrl(getItem(position), null);
+            if (imageUrl != null && !imageUrl.isEmpty()) {
+                picasso.load(imageUrl)
+                        .resize(imageWidth, imageHeight)
+                        .centerCrop()
+                        .priority(Picasso.Priority.LOW)
+                        .fetch();
+            }
+        }
+    }
+
+    @Override
+    public void onAttachedToRecyclerView(RecyclerView recyclerView) {
+        super.onAttachedToRecyclerView(recyclerView);
+        recyclerView.addOnScrollListener(prefetchListener);
+    }
+
+    @Override
+    public void onDetachedFromRecyclerView(RecyclerView recyclerView) {
+        super.onDetachedFromRecyclerView(recyclerView);
+        recyclerView.removeOnScrollListener(prefetchListener);
+    }
+
+    // Smallest rendition of the first photo that covers the row's image view
+    private String getImageUrl(ReportModel report, ImageView imageView) {
+        String imageUrl;
         // First try to get from imageUrls list
         if (report.getImageUrls() != null && !report.getImageUrls().isEmpty()) {
-            return report.getImageUrls().get(0);
+            imageUrl = report.getImageUrls().get(0);
+        } else {
+            // Fallback to single imageUrl
+            imageUrl = report.getImageUrl();
+        }
+
+        int targetPx = Math.max(imageWidth, imageHeight);
+        if (targetPx == 0 && imageView != null) {
+            // Not laid out yet; the row spans the screen width
+            targetPx = imageView.getResources().getDisplayMetrics().widthPixels;
         }
-        // Fallback to single imageUrl
-        return report.getImageUrl();
+        return ImageRenditions.pick(targetPx, report.getThumbnailUrl(), report.getMediumUrl(), imageUrl);
     }
 
     private String formatStatusForDisplay(String status) {
@@ -249,12 +392,22 @@ public class ReportAdapter extends RecyclerView.Adapter<ReportAdapter.ViewHolder
 
     @Override
     public int getItemCount() {
-        return reportList != null ? reportList.size() : 0;
+        int count = super.getItemCount();
+        return showLoadingFooter ? count + 1 : count;
     }
 
+    // Submits a copy so callers can keep mutating their own list; the differ needs a new instance
     public void updateData(List<ReportModel> newList) {
-        this.reportList = newList;
-        notifyDataSetChanged();
+        // Positions change, so the next scroll prefetches afresh
+        prefetchedFrom = -1;
+        prefetchedTo = -1;
+        submitList(new ArrayList<>(newList));
+    }
+
+    public static class LoadingViewHolder extends RecyclerView.ViewHolder {
+        public LoadingViewHolder(View itemView) {
+            super(itemView);
+        }
     }
 
     public static class ViewHolder extends RecyclerView.ViewHolder {
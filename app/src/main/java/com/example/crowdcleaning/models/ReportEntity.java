@@ -0,0 +1,111 @@
+package com.example.crowdcleaning.models;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Row of the local reports table, a copy of a ReportModel that was shown on some
+ * screen. The indices match the filters of the list screens, each followed by the
+ * timestamp they are ordered by.
+ */
+@Entity(tableName = "reports",
+        indices = {
+                @Index(value = {"userId", "timestamp"}),
+                @Index(value = {"volunteerAssigned", "timestamp"}),
+                @Index(value = {"status", "timestamp"}),
+                @Index(value = {"timestamp"})
+        })
+public class ReportEntity {
+
+    @PrimaryKey
+    @NonNull
+    public String id = "";
+    public String title;
+    public String description;
+    public String address;
+    public String status;
+    public String storedStatus;
+    public String imageUrl;
+    // JSON array, Room has no list columns
+    public String imageUrlsJson;
+    public String thumbnailUrlsJson;
+    public String mediumUrlsJson;
+    public long timestamp;
+    public long upvotes;
+    public double latitude;
+    public double longitude;
+    public String volunteerName;
+    public String userName;
+    public String volunteerAssigned;
+    public String userEmail;
+    public String userId;
+
+    public static ReportEntity fromModel(ReportModel report) {
+        ReportEntity entity = new ReportEntity();
+        entity.id = report.getId();
+        entity.title = report.getTitle();
+        entity.description = report.getDescription();
+        entity.address = report.getAddress();
+        entity.status = report.getStatus();
+        entity.storedStatus = report.getStoredStatus();
+        entity.imageUrl = report.getImageUrl();
+        entity.imageUrlsJson = new JSONArray(report.getImageUrls()).toString();
+        if (report.getThumbnailUrls() != null) {
+            entity.thumbnailUrlsJson = new JSONArray(report.getThumbnailUrls()).toString();
+        }
+        if (report.getMediumUrls() != null) {
+            entity.mediumUrlsJson = new JSONArray(report.getMediumUrls()).toString();
+        }
+        entity.timestamp = report.getTimestamp();
+        entity.upvotes = report.getUpvotes();
+        entity.latitude = report.getLatitude();
+        entity.longitude = report.getLongitude();
+        entity.volunteerName = report.getVolunteerName();
+        entity.userName = report.getUserName();
+        entity.volunteerAssigned = report.getVolunteerAssigned();
+        entity.userEmail = report.getUserEmail();
+        entity.userId = report.getUserId();
+        return entity;
+    }
+
+    public ReportModel toModel() {
+        ReportModel report = new ReportModel(id, title, description, address, status, imageUrl,
+                timestamp, upvotes, latitude, longitude);
+        report.setStoredStatus(storedStatus);
+        report.setVolunteerName(volunteerName);
+        report.setUserName(userName);
+        report.setVolunteerAssigned(volunteerAssigned);
+        report.setUserEmail(userEmail);
+        report.setUserId(userId);
+
+        // Null for a damaged row, so getImageUrls() falls back to its main image
+        report.setImageUrls(fromJson(imageUrlsJson));
+        report.setThumbnailUrls(fromJson(thumbnailUrlsJson));
+        report.setMediumUrls(fromJson(mediumUrlsJson));
+        return report;
+    }
+
+    private static List<String> fromJson(String json) {
+        if (json == null) {
+            return null;
+        }
+        try {
+            JSONArray array = new JSONArray(json);
+            List<String> values = new ArrayList<>(array.length());
+            for (int i = 0; i < array.length(); i++) {
+                values.add(array.getString(i));
+            }
+            return values;
+        } catch (JSONException e) {
+            return null;
+        }
+    }
+}
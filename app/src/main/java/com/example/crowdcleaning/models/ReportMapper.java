@@ -0,0 +1,142 @@
+package com.example.crowdcleaning.models;
+
+import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.DocumentSnapshot;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Converts "reports" documents into ReportModel.
+ *
+ * Reads the document data once and walks it in a single pass. Nothing is logged
+ * here since it runs for every document of every list; malformed fields fall back
+ * to the same defaults the screens used before.
+ */
+public final class ReportMapper {
+
+    private ReportMapper() {}
+
+    public static ReportModel fromSnapshot(DocumentSnapshot document) {
+        if (document == null) {
+            return null;
+        }
+        Map<String, Object> data = document.getData();
+        return data != null ? fromMap(document.getId(), data) : null;
+    }
+
+    public static ReportModel fromMap(String id, Map<String, Object> data) {
+        ReportModel report = new ReportModel();
+        report.setId(id);
+
+        String imageUrl = null;
+        List<String> imageUrls = null;
+        Object timestamp = null;
+
+        for (Map.Entry<String, Object> entry : data.entrySet()) {
+            Object value = entry.getValue();
+            switch (entry.getKey()) {
+                case "title":
+                    report.setTitle(asString(value));
+                    break;
+                case "description":
+                    report.setDescription(asString(value));
+                    break;
+                case "address":
+                    report.setAddress(asString(value));
+                    break;
+                case "status":
+                    report.setStatus(asString(value));
+                    report.setStoredStatus(asString(value));
+                    break;
+                case "imageUrl":
+                    imageUrl = asString(value);
+                    break;
+                case "imageUrls":
+                    imageUrls = asStringList(value);
+                    break;
+                case "thumbnailUrls":
+                    report.setThumbnailUrls(asStringList(value));
+                    break;
+                case "mediumUrls":
+                    report.setMediumUrls(asStringList(value));
+                    break;
+                case "timestamp":
+                    timestamp = value;
+                    break;
+                case "upvotes":
+                    report.setUpvotes(value instanceof Number ? ((Number) value).longValue() : 0);
+                    break;
+                case "latitude":
+                    report.setLatitude(value instanceof Number ? ((Number) value).doubleValue() : 0.0);
+                    break;
+                case "longitude":
+                    report.setLongitude(value instanceof Number ? ((Number) value).doubleValue() : 0.0);
+                    break;
+                case "volunteerAssigned":
+                    report.setVolunteerAssigned(asString(value));
+                    break;
+                case "volunteerName":
+                    report.setVolunteerName(asString(value));
+                    break;
+                case "userName":
+                    report.setUserName(asString(value));
+                    break;
+                case "userEmail":
+                    report.setUserEmail(asString(value));
+                    break;
+                case "userId":
+                    report.setUserId(asString(value));
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        if (report.getTitle() == null) report.setTitle("No Title");
+        if (report.getDescription() == null) report.setDescription("No Description");
+        if (report.getAddress() == null) report.setAddress("No Address");
+        if (report.getStatus() == null) report.setStatus("reported");
+
+        // Reports carry either an imageUrls array (ReportGarbageActivity) or a single imageUrl (AddReportActivity)
+        if (imageUrls != null && !imageUrls.isEmpty()) {
+            report.setImageUrl(imageUrls.get(0));
+            report.setImageUrls(imageUrls);
+        } else if (imageUrl != null && !imageUrl.isEmpty()) {
+            report.setImageUrl(imageUrl);
+            report.setImageUrls(Collections.singletonList(imageUrl));
+        } else {
+            report.setImageUrl("");
+            report.setImageUrls(Collections.<String>emptyList());
+        }
+
+        report.setTimestamp(toMillis(timestamp, System.currentTimeMillis()));
+        return report;
+    }
+
+    /**
+     * Decodes the "timestamp" union: Firestore Timestamp, epoch millis or java.util.Date.
+     */
+    public static long toMillis(Object value, long fallback) {
+        if (value instanceof Timestamp) {
+            Timestamp timestamp = (Timestamp) value;
+            return timestamp.getSeconds() * 1000L + timestamp.getNanoseconds() / 1_000_000;
+        } else if (value instanceof Long) {
+            return (Long) value;
+        } else if (value instanceof Date) {
+            return ((Date) value).getTime();
+        }
+        return fallback;
+    }
+
+    private static String asString(Object value) {
+        return value instanceof String ? (String) value : null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<String> asStringList(Object value) {
+        return value instanceof List ? (List<String>) value : null;
+    }
+}
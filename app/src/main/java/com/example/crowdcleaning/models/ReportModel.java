@@ -1,7 +1,7 @@
 package com.example.crowdcleaning.models;
 
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 public class ReportModel {
@@ -10,6 +10,8 @@ public class ReportModel {
     private String description;
     private String address;
     private String status;
+    // status as stored; null when the document has none and status holds the "reported" default
+    private String storedStatus;
     private String imageUrl;
     private long timestamp;
     private long upvotes;
@@ -19,7 +21,11 @@ public class ReportModel {
     private String userName;
     private String volunteerAssigned;
     private String userEmail;
+    private String userId;
     private List<String> imageUrls;
+    // Smaller copies of imageUrls, index-aligned; null for reports uploaded before they existed
+    private List<String> thumbnailUrls;
+    private List<String> mediumUrls;
 
     public ReportModel() {}
 
@@ -54,6 +60,9 @@ public class ReportModel {
     public String getStatus() { return status; }
     public void setStatus(String status) { this.status = status; }
 
+    public String getStoredStatus() { return storedStatus; }
+    public void setStoredStatus(String storedStatus) { this.storedStatus = storedStatus; }
+
     public String getImageUrl() {
         // If imageUrl is empty but we have imageUrls, return the first one
         if ((imageUrl == null || imageUrl.isEmpty()) && imageUrls != null && !imageUrls.isEmpty()) {
@@ -90,13 +99,16 @@ public class ReportModel {
     public String getUserEmail() { return userEmail; }
     public void setUserEmail(String userEmail) { this.userEmail = userEmail; }
 
+    public String getUserId() { return userId; }
+    public void setUserId(String userId) { this.userId = userId; }
+
     public List<String> getImageUrls() {
         if (imageUrls == null) {
             // If imageUrls is null but imageUrl exists, create a list with it
             if (imageUrl != null && !imageUrl.isEmpty()) {
-                return Arrays.asList(imageUrl);
+                return Collections.singletonList(imageUrl);
             }
-            return new ArrayList<>();
+            return Collections.emptyList();
         }
         return imageUrls;
     }
@@ -105,6 +117,20 @@ public class ReportModel {
         this.imageUrls = imageUrls;
     }
 
+    public List<String> getThumbnailUrls() { return thumbnailUrls; }
+    public void setThumbnailUrls(List<String> thumbnailUrls) { this.thumbnailUrls = thumbnailUrls; }
+
+    public List<String> getMediumUrls() { return mediumUrls; }
+    public void setMediumUrls(List<String> mediumUrls) { this.mediumUrls = mediumUrls; }
+
+    public String getThumbnailUrl() {
+        return thumbnailUrls != null && !thumbnailUrls.isEmpty() ? thumbnailUrls.get(0) : null;
+    }
+
+    public String getMediumUrl() {
+        return mediumUrls != null && !mediumUrls.isEmpty() ? mediumUrls.get(0) : null;
+    }
+
     // Helper method to check if report has any images
     public boolean hasImages() {
         return (imageUrl != null && !imageUrl.isEmpty()) ||
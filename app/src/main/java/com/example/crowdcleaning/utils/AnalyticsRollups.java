@@ -0,0 +1,262 @@
+package com.example.crowdcleaning.utils;
+
+import com.example.crowdcleaning.models.ReportMapper;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.Transaction;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+
+/**
+ * Summary documents in "analytics_rollups", one per UTC day, ISO week and month,
+ * updated in the same transaction as the report change they count. Reading a trend
+ * costs one document per bucket instead of a scan of the reports collection.
+ *
+ * Each bucket holds counts of created, assigned and completed reports, latency sums
+ * (report time to assignment, report time to completion, assignment to completion)
+ * and completions per volunteer.
+ */
+public class AnalyticsRollups {
+
+    public static final String COLLECTION = "analytics_rollups";
+
+    public static final String PERIOD_DAY = "day";
+    public static final String PERIOD_WEEK = "week";
+    public static final String PERIOD_MONTH = "month";
+
+    public static final String FIELD_CREATED = "created";
+    public static final String FIELD_ASSIGNED = "assigned";
+    public static final String FIELD_COMPLETED = "completed";
+    public static final String FIELD_ASSIGN_LATENCY_SUM = "assignLatencyMsSum";
+    public static final String FIELD_ASSIGN_LATENCY_COUNT = "assignLatencyCount";
+    // Report time to completion, what a citizen experiences as "time to clean"
+    public static final String FIELD_CLEAN_LATENCY_SUM = "cleanLatencyMsSum";
+    public static final String FIELD_CLEAN_LATENCY_COUNT = "cleanLatencyCount";
+    // Assignment to completion, the volunteer's share of it
+    public static final String FIELD_WORK_LATENCY_SUM = "workLatencyMsSum";
+    public static final String FIELD_WORK_LATENCY_COUNT = "workLatencyCount";
+    public static final String FIELD_VOLUNTEER_COMPLETED = "volunteerCompleted";
+    public static final String FIELD_VOLUNTEER_NAMES = "volunteerNames";
+
+    private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+
+    public static class Bucket {
+        public final String id;
+        public final String label;
+        public final long created;
+        public final long assigned;
+        public final long completed;
+        public final long cleanLatencyMsSum;
+        public final long cleanLatencyCount;
+        public final long workLatencyMsSum;
+        public final long workLatencyCount;
+        public final Map<String, Long> volunteerCompleted;
+        public final Map<String, String> volunteerNames;
+
+        Bucket(String id, DocumentSnapshot document) {
+            this.id = id;
+            this.label = id.substring(id.indexOf('_') + 1);
+            created = getLong(document, FIELD_CREATED);
+            assigned = getLong(document, FIELD_ASSIGNED);
+            completed = getLong(document, FIELD_COMPLETED);
+            cleanLatencyMsSum = getLong(document, FIELD_CLEAN_LATENCY_SUM);
+            cleanLatencyCount = getLong(document, FIELD_CLEAN_LATENCY_COUNT);
+            workLatencyMsSum = getLong(document, FIELD_WORK_LATENCY_SUM);
+            workLatencyCount = getLong(document, FIELD_WORK_LATENCY_COUNT);
+            volunteerCompleted = new HashMap<>();
+            volunteerNames = new HashMap<>();
+
+            Object counts = document.get(FIELD_VOLUNTEER_COMPLETED);
+            if (counts instanceof Map) {
+                for (Map.Entry<?, ?> entry : ((Map<?, ?>) counts).entrySet()) {
+                    if (entry.getValue() instanceof Number) {
+                        volunteerCompleted.put(String.valueOf(entry.getKey()), ((Number) entry.getValue()).longValue());
+                    }
+                }
+            }
+            Object names = document.get(FIELD_VOLUNTEER_NAMES);
+            if (names instanceof Map) {
+                for (Map.Entry<?, ?> entry : ((Map<?, ?>) names).entrySet()) {
+                    volunteerNames.put(String.valueOf(entry.getKey()), String.valueOf(entry.getValue()));
+                }
+            }
+        }
+
+        // Average time from report to completion, or -1 without completions
+        public long averageCleanLatencyMs() {
+            return cleanLatencyCount > 0 ? cleanLatencyMsSum / cleanLatencyCount : -1;
+        }
+
+        public long averageWorkLatencyMs() {
+            return workLatencyCount > 0 ? workLatencyMsSum / workLatencyCount : -1;
+        }
+
+        private static long getLong(DocumentSnapshot document, String field) {
+            Long value = document.getLong(field);
+            return value != null ? value : 0;
+        }
+    }
+
+    public interface BucketsCallback {
+        // Oldest first; buckets without any activity are included with zero counts
+        void onBuckets(List<Bucket> buckets);
+        void onError(Exception e);
+    }
+
+    private AnalyticsRollups() {
+    }
+
+    public static void recordCreated(Transaction transaction, Date timestamp) {
+        Map<String, Object> increments = new HashMap<>();
+        increments.put(FIELD_CREATED, FieldValue.increment(1));
+        write(transaction, timestamp, increments);
+    }
+
+    /**
+     * Counts an assignment, given the report as read inside the same transaction.
+     */
+    public static void recordAssigned(Transaction transaction, DocumentSnapshot report, Date assignedAt) {
+        Map<String, Object> increments = new HashMap<>();
+        increments.put(FIELD_ASSIGNED, FieldValue.increment(1));
+        long reportedAt = ReportMapper.toMillis(report.get("timestamp"), 0);
+        if (reportedAt > 0 && assignedAt.getTime() >= reportedAt) {
+            increments.put(FIELD_ASSIGN_LATENCY_SUM, FieldValue.increment(assignedAt.getTime() - reportedAt));
+            increments.put(FIELD_ASSIGN_LATENCY_COUNT, FieldValue.increment(1));
+        }
+        write(transaction, assignedAt, increments);
+    }
+
+    /**
+     * Counts a completion, given the report as read inside the same transaction.
+     */
+    public static void recordCompleted(Transaction transaction, DocumentSnapshot report, Date completedAt,
+                                       String volunteerId, String volunteerName) {
+        Map<String, Object> increments = new HashMap<>();
+        increments.put(FIELD_COMPLETED, FieldValue.increment(1));
+
+        long reportedAt = ReportMapper.toMillis(report.get("timestamp"), 0);
+        if (reportedAt > 0 && completedAt.getTime() >= reportedAt) {
+            increments.put(FIELD_CLEAN_LATENCY_SUM, FieldValue.increment(completedAt.getTime() - reportedAt));
+            increments.put(FIELD_CLEAN_LATENCY_COUNT, FieldValue.increment(1));
+        }
+        long assignedAt = ReportMapper.toMillis(report.get("assignedAt"), 0);
+        if (assignedAt > 0 && completedAt.getTime() >= assignedAt) {
+            increments.put(FIELD_WORK_LATENCY_SUM, FieldValue.increment(completedAt.getTime() - assignedAt));
+            increments.put(FIELD_WORK_LATENCY_COUNT, FieldValue.increment(1));
+        }
+        if (volunteerId != null && !volunteerId.isEmpty()) {
+            Map<String, Object> perVolunteer = new HashMap<>();
+            perVolunteer.put(volunteerId, FieldValue.increment(1));
+            increments.put(FIELD_VOLUNTEER_COMPLETED, perVolunteer);
+            if (volunteerName != null) {
+                Map<String, Object> names = new HashMap<>();
+                names.put(volunteerId, volunteerName);
+                increments.put(FIELD_VOLUNTEER_NAMES, names);
+            }
+        }
+        write(transaction, completedAt, increments);
+    }
+
+    /**
+     * Loads the last count buckets of the period, ending with the one containing now.
+     */
+    public static void loadRecent(String period, int count, BucketsCallback callback) {
+        FirebaseFirestore db = FirebaseFirestore.getInstance();
+        List<String> ids = recentBucketIds(period, count, System.currentTimeMillis());
+        List<Task<DocumentSnapshot>> tasks = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            tasks.add(db.collection(COLLECTION).document(id).get());
+        }
+
+        Tasks.whenAllSuccess(tasks)
+                .addOnSuccessListener(results -> {
+                    List<Bucket> buckets = new ArrayList<>(ids.size());
+                    for (int i = 0; i < ids.size(); i++) {
+                        buckets.add(new Bucket(ids.get(i), (DocumentSnapshot) results.get(i)));
+                    }
+                    callback.onBuckets(buckets);
+                })
+                .addOnFailureListener(callback::onError);
+    }
+
+    private static void write(Transaction transaction, Date when, Map<String, Object> increments) {
+        FirebaseFirestore db = FirebaseFirestore.getInstance();
+        for (String period : new String[]{PERIOD_DAY, PERIOD_WEEK, PERIOD_MONTH}) {
+            Map<String, Object> data = new HashMap<>(increments);
+            data.put("period", period);
+            DocumentReference bucketRef = db.collection(COLLECTION).document(bucketId(period, when.getTime()));
+            transaction.set(bucketRef, data, SetOptions.merge());
+        }
+    }
+
+    /**
+     * Document ID of the bucket containing the instant, e.g. "day_2024-03-07",
+     * "week_2024-W10" (ISO week) or "month_2024-03".
+     */
+    static String bucketId(String period, long millis) {
+        Calendar calendar = newCalendar();
+        calendar.setTimeInMillis(millis);
+        switch (period) {
+            case PERIOD_DAY:
+                return String.format(Locale.US, "day_%04d-%02d-%02d", calendar.get(Calendar.YEAR),
+                        calendar.get(Calendar.MONTH) + 1, calendar.get(Calendar.DAY_OF_MONTH));
+            case PERIOD_WEEK:
+                return String.format(Locale.US, "week_%04d-W%02d", calendar.getWeekYear(),
+                        calendar.get(Calendar.WEEK_OF_YEAR));
+            case PERIOD_MONTH:
+                return String.format(Locale.US, "month_%04d-%02d", calendar.get(Calendar.YEAR),
+                        calendar.get(Calendar.MONTH) + 1);
+            default:
+                throw new IllegalArgumentException("Unknown period: " + period);
+        }
+    }
+
+    static List<String> recentBucketIds(String period, int count, long nowMillis) {
+        Calendar calendar = newCalendar();
+        calendar.setTimeInMillis(nowMillis);
+        int field;
+        switch (period) {
+            case PERIOD_DAY:
+                field = Calendar.DAY_OF_MONTH;
+                break;
+            case PERIOD_WEEK:
+                field = Calendar.WEEK_OF_YEAR;
+                break;
+            case PERIOD_MONTH:
+                // Anchor on the 1st so stepping back never skips a short month
+                calendar.set(Calendar.DAY_OF_MONTH, 1);
+                field = Calendar.MONTH;
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown period: " + period);
+        }
+
+        List<String> ids = new ArrayList<>(count);
+        calendar.add(field, -(count - 1));
+        for (int i = 0; i < count; i++) {
+            ids.add(bucketId(period, calendar.getTimeInMillis()));
+            calendar.add(field, 1);
+        }
+        return ids;
+    }
+
+    private static Calendar newCalendar() {
+        Calendar calendar = Calendar.getInstance(UTC, Locale.US);
+        // ISO 8601 weeks: Monday first, week 1 contains the year's first Thursday
+        calendar.setFirstDayOfWeek(Calendar.MONDAY);
+        calendar.setMinimalDaysInFirstWeek(4);
+        return calendar;
+    }
+}
@@ -0,0 +1,260 @@
+package com.example.crowdcleaning.utils;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.work.BackoffPolicy;
+import androidx.work.Constraints;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.NetworkType;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkManager;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Durable on-device queue of task completions, the counterpart of ReportOutbox for
+ * CompleteTaskActivity.
+ *
+ * A completion (report ID, notes and the photos, copied into filesDir) is written
+ * here and CompletionOutboxWorker uploads the photos one by one, recording each URL
+ * as it finishes, then completes the report. An interrupted upload therefore resumes
+ * its Storage session on the next drain, and finished photos are never sent twice.
+ * Drains survive process death through WorkManager and are re-scheduled on launch.
+ */
+public class CompletionOutbox {
+
+    private static final String TAG = "CompletionOutbox";
+    private static final String OUTBOX_DIR = "completion_outbox";
+    private static final String WORK_NAME = "completion_outbox_drain";
+    private static final long RETRY_BACKOFF_SECONDS = 30;
+
+    /**
+     * One queued completion as stored on disk.
+     */
+    public static class Entry {
+        public final String key;
+        public final long createdAt;
+        public final String reportId;
+        public final String volunteerId;
+        public final String volunteerName;
+        public final String notes;
+        public final List<File> images;
+        // Download URL per image, null until that image is uploaded
+        public final List<String> imageUrls;
+
+        Entry(String key, long createdAt, String reportId, String volunteerId, String volunteerName,
+              String notes, List<File> images, List<String> imageUrls) {
+            this.key = key;
+            this.createdAt = createdAt;
+            this.reportId = reportId;
+            this.volunteerId = volunteerId;
+            this.volunteerName = volunteerName;
+            this.notes = notes;
+            this.images = images;
+            this.imageUrls = imageUrls;
+        }
+    }
+
+    private CompletionOutbox() {
+    }
+
+    /**
+     * Queues a completion and schedules a drain. The image files are moved into the
+     * outbox and must not be used by the caller afterwards.
+     */
+    public static void enqueue(Context context, String reportId, String volunteerId, String volunteerName,
+                               String notes, List<File> imageFiles) throws IOException {
+        String key = UUID.randomUUID().toString();
+        File entryDir = new File(getOutboxDir(context), key);
+        if (!entryDir.mkdirs()) {
+            throw new IOException("Could not create " + entryDir);
+        }
+
+        List<File> images = new ArrayList<>(imageFiles.size());
+        List<String> imageUrls = new ArrayList<>(imageFiles.size());
+        for (int i = 0; i < imageFiles.size(); i++) {
+            File target = new File(entryDir, i + ".jpg");
+            ReportOutbox.moveFile(imageFiles.get(i), target);
+            images.add(target);
+            imageUrls.add(null);
+        }
+
+        write(context, new Entry(key, System.currentTimeMillis(), reportId, volunteerId, volunteerName,
+                notes, images, imageUrls));
+        Log.d(TAG, "Queued completion of " + reportId + " with " + images.size() + " image(s)");
+        scheduleDrain(context);
+    }
+
+    public static void scheduleDrain(Context context) {
+        WorkManager.getInstance(context)
+                .enqueueUniqueWork(WORK_NAME, ExistingWorkPolicy.APPEND_OR_REPLACE, buildDrainRequest());
+    }
+
+    /**
+     * Schedules a drain if anything is still queued, so completions interrupted by
+     * process death carry on when the app is next launched. A drain that is already
+     * scheduled or running is kept.
+     */
+    public static void resumePending(Context context) {
+        File[] files = getOutboxDir(context).listFiles((dir, name) -> name.endsWith(".json"));
+        if (files == null || files.length == 0) {
+            return;
+        }
+        Log.d(TAG, "Resuming " + files.length + " queued completion(s)");
+        WorkManager.getInstance(context)
+                .enqueueUniqueWork(WORK_NAME, ExistingWorkPolicy.KEEP, buildDrainRequest());
+    }
+
+    private static OneTimeWorkRequest buildDrainRequest() {
+        Constraints constraints = new Constraints.Builder()
+                .setRequiredNetworkType(NetworkType.CONNECTED)
+                .build();
+        return new OneTimeWorkRequest.Builder(CompletionOutboxWorker.class)
+                .setConstraints(constraints)
+                .setBackoffCriteria(BackoffPolicy.EXPONENTIAL, RETRY_BACKOFF_SECONDS, TimeUnit.SECONDS)
+                .build();
+    }
+
+    /**
+     * Pending entries, oldest first.
+     */
+    public static List<Entry> getPending(Context context) {
+        File[] files = getOutboxDir(context).listFiles((dir, name) -> name.endsWith(".json"));
+        List<Entry> entries = new ArrayList<>();
+        if (files == null) {
+            return entries;
+        }
+
+        for (File file : files) {
+            try {
+                entries.add(read(file));
+            } catch (IOException | JSONException e) {
+                Log.e(TAG, "Dropping unreadable outbox entry " + file.getName() + ": " + e.getMessage());
+                file.delete();
+            }
+        }
+        entries.sort((a, b) -> Long.compare(a.createdAt, b.createdAt));
+        return entries;
+    }
+
+    public static void markImageUploaded(Context context, Entry entry, int index, String imageUrl) throws IOException {
+        entry.imageUrls.set(index, imageUrl);
+        write(context, entry);
+    }
+
+    /**
+     * Takes an entry that can never be submitted out of the queue. Its file is kept as
+     * <key>.failed, with the photos, for inspection.
+     */
+    public static void park(Context context, Entry entry) {
+        File file = new File(getOutboxDir(context), entry.key + ".json");
+        if (!file.renameTo(new File(getOutboxDir(context), entry.key + ".failed"))) {
+            Log.e(TAG, "Could not park " + file.getName());
+            file.delete();
+        }
+    }
+
+    public static void remove(Context context, Entry entry) {
+        File entryDir = new File(getOutboxDir(context), entry.key);
+        File[] files = entryDir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        entryDir.delete();
+        new File(getOutboxDir(context), entry.key + ".json").delete();
+    }
+
+    private static File getOutboxDir(Context context) {
+        File dir = new File(context.getFilesDir(), OUTBOX_DIR);
+        if (!dir.exists() && !dir.mkdirs()) {
+            Log.e(TAG, "Could not create " + dir);
+        }
+        return dir;
+    }
+
+    private static void write(Context context, Entry entry) throws IOException {
+        try {
+            JSONObject json = toJson(entry);
+
+            // Write to a temp file first so a crash never leaves a half-written entry
+            File target = new File(getOutboxDir(context), entry.key + ".json");
+            File temp = new File(getOutboxDir(context), entry.key + ".tmp");
+            try (OutputStream out = new FileOutputStream(temp)) {
+                out.write(json.toString().getBytes(StandardCharsets.UTF_8));
+            }
+            if (!temp.renameTo(target)) {
+                throw new IOException("Could not write " + target);
+            }
+        } catch (JSONException e) {
+            throw new IOException("Could not serialize outbox entry", e);
+        }
+    }
+
+    static JSONObject toJson(Entry entry) throws JSONException {
+        JSONArray images = new JSONArray();
+        JSONArray imageUrls = new JSONArray();
+        for (int i = 0; i < entry.images.size(); i++) {
+            images.put(entry.images.get(i).getName());
+            String url = entry.imageUrls.get(i);
+            imageUrls.put(url != null ? url : JSONObject.NULL);
+        }
+
+        JSONObject json = new JSONObject();
+        json.put("key", entry.key);
+        json.put("createdAt", entry.createdAt);
+        json.put("reportId", entry.reportId);
+        json.put("volunteerId", entry.volunteerId);
+        json.put("volunteerName", entry.volunteerName != null ? entry.volunteerName : JSONObject.NULL);
+        json.put("notes", entry.notes != null ? entry.notes : JSONObject.NULL);
+        json.put("images", images);
+        json.put("imageUrls", imageUrls);
+        return json;
+    }
+
+    private static Entry read(File file) throws IOException, JSONException {
+        byte[] bytes = new byte[(int) file.length()];
+        try (InputStream in = new FileInputStream(file)) {
+            int offset = 0;
+            while (offset < bytes.length) {
+                int read = in.read(bytes, offset, bytes.length - offset);
+                if (read < 0) break;
+                offset += read;
+            }
+        }
+        return fromJson(new JSONObject(new String(bytes, StandardCharsets.UTF_8)), file.getParentFile());
+    }
+
+    static Entry fromJson(JSONObject json, File outboxDir) throws JSONException {
+        String key = json.getString("key");
+        File entryDir = new File(outboxDir, key);
+        JSONArray imageNames = json.getJSONArray("images");
+        JSONArray urls = json.getJSONArray("imageUrls");
+        List<File> images = new ArrayList<>(imageNames.length());
+        List<String> imageUrls = new ArrayList<>(imageNames.length());
+        for (int i = 0; i < imageNames.length(); i++) {
+            images.add(new File(entryDir, imageNames.getString(i)));
+            imageUrls.add(urls.isNull(i) ? null : urls.getString(i));
+        }
+
+        return new Entry(key, json.getLong("createdAt"), json.getString("reportId"), json.getString("volunteerId"),
+                json.isNull("volunteerName") ? null : json.getString("volunteerName"),
+                json.isNull("notes") ? null : json.getString("notes"), images, imageUrls);
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.crowdcleaning.utils;
+
+import android.content.Context;
+import android.net.Uri;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import com.google.android.gms.tasks.Tasks;
+
+import java.io.FileNotFoundException;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Drains CompletionOutbox: uploads the photos of each queued completion one at a
+ * time, recording each URL as soon as it is stored, then completes the report.
+ * Entries are processed oldest first; failures are handled as in ReportOutboxWorker.
+ */
+public class CompletionOutboxWorker extends Worker {
+
+    private static final String TAG = "CompletionOutboxWorker";
+    private static final long UPLOAD_TIMEOUT_MINUTES = 10;
+
+    public CompletionOutboxWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        Context context = getApplicationContext();
+        List<CompletionOutbox.Entry> entries = CompletionOutbox.getPending(context);
+        Log.d(TAG, "Draining " + entries.size() + " queued completion(s)");
+
+        boolean retry = false;
+        for (CompletionOutbox.Entry entry : entries) {
+            if (isStopped()) {
+                return Result.retry();
+            }
+            try {
+                submit(context, entry);
+                CompletionOutbox.remove(context, entry);
+            } catch (Exception e) {
+                if (OutboxFailures.isPermanent(e)) {
+                    Log.e(TAG, "Parking completion of " + entry.reportId + ", it cannot be submitted: "
+                            + e.getMessage());
+                    CompletionOutbox.park(context, entry);
+                    OutboxFailures.notifyParked(context, entry.key, "Task completion could not be saved",
+                            e.getMessage());
+                } else {
+                    Log.e(TAG, "Failed to complete report " + entry.reportId + ": " + e.getMessage());
+                    retry = true;
+                }
+            }
+        }
+        return retry ? Result.retry() : Result.success();
+    }
+
+    private void submit(Context context, CompletionOutbox.Entry entry) throws Exception {
+        for (int i = 0; i < entry.images.size(); i++) {
+            if (entry.imageUrls.get(i) != null) {
+                continue;
+            }
+            if (!entry.images.get(i).exists()) {
+                throw new FileNotFoundException("Photo " + entry.images.get(i).getName() + " is missing");
+            }
+            List<String> urls = UploadManager.uploadBlocking(context, "completion_images",
+                    Collections.singletonList(Uri.fromFile(entry.images.get(i))), UPLOAD_TIMEOUT_MINUTES);
+            CompletionOutbox.markImageUploaded(context, entry, i, urls.get(0));
+        }
+
+        Map<String, Object> updates = new HashMap<>();
+        updates.put("completionNotes", entry.notes);
+        updates.put("completedAt", new Date(entry.createdAt));
+        updates.put("completedBy", entry.volunteerId);
+        updates.put("completedByName", entry.volunteerName);
+        if (!entry.images.isEmpty()) {
+            updates.put("completionImages", entry.imageUrls);
+        }
+
+        // Transactional so the completion is counted in the analytics rollups exactly once
+        ReportTransitions.Outcome outcome = Tasks.await(ReportTransitions.completeTask(
+                entry.reportId, updates, entry.volunteerId, entry.volunteerName));
+        if (outcome == ReportTransitions.Outcome.UPDATED) {
+            Log.d(TAG, "Completed report " + entry.reportId);
+        } else {
+            // Completed elsewhere or deleted meanwhile; nothing left to retry
+            Log.d(TAG, "Dropped completion of " + entry.reportId + ": " + outcome);
+        }
+    }
+}
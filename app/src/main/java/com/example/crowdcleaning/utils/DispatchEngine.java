@@ -0,0 +1,308 @@
+package com.example.crowdcleaning.utils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Suggests which volunteers should take a report, ranked by travel distance plus a
+ * penalty per task they already hold.
+ *
+ * Volunteers with spare capacity are bucketed into a uniform lat/lon grid. A lookup
+ * scans rings of cells outwards from the report and stops as soon as no cell further
+ * out can beat the current k-th best, so its cost depends on local density rather
+ * than on the total number of volunteers. Pure Java and not thread safe.
+ */
+public class DispatchEngine {
+
+    // About 5.5 km north-south
+    public static final double DEFAULT_CELL_DEGREES = 0.05;
+    // One open task weighs as much as 2 km of extra travel
+    public static final double DEFAULT_LOAD_PENALTY_METERS = 2_000;
+    public static final double DEFAULT_MAX_DISTANCE_METERS = 50_000;
+    public static final int DEFAULT_MAX_OPEN_TASKS = 10;
+
+    private static final double EARTH_RADIUS_M = 6_371_000;
+
+    public static class Volunteer {
+        public final String id;
+        double latitude;
+        double longitude;
+        int openTasks;
+        // Grid cell the volunteer is filed under, or -1 while at capacity
+        long cell = -1;
+
+        Volunteer(String id) {
+            this.id = id;
+        }
+
+        public double getLatitude() { return latitude; }
+        public double getLongitude() { return longitude; }
+        public int getOpenTasks() { return openTasks; }
+    }
+
+    private static class Cell {
+        final List<Volunteer> volunteers = new ArrayList<>();
+        // Lowest open task count in the cell, lets a lookup skip cells of busy volunteers
+        int minOpenTasks = Integer.MAX_VALUE;
+
+        void add(Volunteer volunteer) {
+            volunteers.add(volunteer);
+            minOpenTasks = Math.min(minOpenTasks, volunteer.openTasks);
+        }
+
+        void remove(Volunteer volunteer) {
+            volunteers.remove(volunteer);
+            if (volunteer.openTasks == minOpenTasks) {
+                minOpenTasks = Integer.MAX_VALUE;
+                for (int i = 0; i < volunteers.size(); i++) {
+                    minOpenTasks = Math.min(minOpenTasks, volunteers.get(i).openTasks);
+                }
+            }
+        }
+    }
+
+    public static class Match {
+        public final String volunteerId;
+        public final double distanceMeters;
+        public final int openTasks;
+        public final double cost;
+
+        Match(String volunteerId, double distanceMeters, int openTasks, double cost) {
+            this.volunteerId = volunteerId;
+            this.distanceMeters = distanceMeters;
+            this.openTasks = openTasks;
+            this.cost = cost;
+        }
+    }
+
+    public static class PendingReport {
+        public final String id;
+        public final double latitude;
+        public final double longitude;
+
+        public PendingReport(String id, double latitude, double longitude) {
+            this.id = id;
+            this.latitude = latitude;
+            this.longitude = longitude;
+        }
+    }
+
+    private final double cellDegrees;
+    private final double loadPenaltyMeters;
+    private final double maxDistanceMeters;
+    private final int maxOpenTasks;
+    private final int columns;
+    private final int rows;
+
+    private final Map<String, Volunteer> volunteers = new HashMap<>();
+    private final Map<Long, Cell> cells = new HashMap<>();
+    // Number of filed volunteers per open task count, to know the lowest load penalty left
+    private final int[] loadCounts;
+
+    public DispatchEngine() {
+        this(DEFAULT_CELL_DEGREES, DEFAULT_LOAD_PENALTY_METERS, DEFAULT_MAX_DISTANCE_METERS, DEFAULT_MAX_OPEN_TASKS);
+    }
+
+    public DispatchEngine(double cellDegrees, double loadPenaltyMeters, double maxDistanceMeters, int maxOpenTasks) {
+        if (cellDegrees <= 0 || cellDegrees > 90) {
+            throw new IllegalArgumentException("cellDegrees must be in (0, 90]: " + cellDegrees);
+        }
+        this.cellDegrees = cellDegrees;
+        this.loadPenaltyMeters = loadPenaltyMeters;
+        this.maxDistanceMeters = maxDistanceMeters;
+        this.maxOpenTasks = maxOpenTasks;
+        columns = (int) Math.ceil(360 / cellDegrees);
+        rows = (int) Math.ceil(180 / cellDegrees);
+        loadCounts = new int[Math.max(1, maxOpenTasks)];
+    }
+
+    public int size() {
+        return volunteers.size();
+    }
+
+    public Volunteer getVolunteer(String id) {
+        return volunteers.get(id);
+    }
+
+    /**
+     * Adds the volunteer or moves them to their latest location and load.
+     */
+    public void updateVolunteer(String id, double latitude, double longitude, int openTasks) {
+        Volunteer volunteer = volunteers.get(id);
+        if (volunteer == null) {
+            volunteer = new Volunteer(id);
+            volunteers.put(id, volunteer);
+        }
+        unfile(volunteer);
+        volunteer.latitude = latitude;
+        volunteer.longitude = longitude;
+        volunteer.openTasks = openTasks;
+        file(volunteer);
+    }
+
+    public void removeVolunteer(String id) {
+        Volunteer volunteer = volunteers.remove(id);
+        if (volunteer != null) {
+            unfile(volunteer);
+        }
+    }
+
+    public void setOpenTasks(String id, int openTasks) {
+        Volunteer volunteer = volunteers.get(id);
+        if (volunteer != null) {
+            updateVolunteer(id, volunteer.latitude, volunteer.longitude, openTasks);
+        }
+    }
+
+    /**
+     * Returns up to k volunteers with spare capacity within the maximum distance of the
+     * given point, cheapest first.
+     */
+    public List<Match> findBest(double latitude, double longitude, int k) {
+        List<Match> result = new ArrayList<>();
+        if (k <= 0 || cells.isEmpty()) {
+            return result;
+        }
+
+        // Max-heap on cost holding the k best seen so far
+        PriorityQueue<Match> best = new PriorityQueue<>(k, (a, b) -> Double.compare(b.cost, a.cost));
+        int centerX = column(longitude);
+        int centerY = row(latitude);
+        // Beyond this the ring would wrap around and visit columns twice
+        int maxRing = (columns - 1) / 2;
+        double minPenalty = loadPenaltyMeters * minOpenTasks();
+
+        for (int ring = 0; ring <= maxRing; ring++) {
+            double bound = ringLowerBoundMeters(latitude, ring);
+            if (bound > maxDistanceMeters || (best.size() == k && bound + minPenalty >= best.peek().cost)) {
+                break;
+            }
+
+            for (int dy = -ring; dy <= ring; dy++) {
+                int y = centerY + dy;
+                if (y < 0 || y >= rows) continue;
+                // Full rows on the top and bottom edge of the ring, only the two sides in between
+                int step = (dy == -ring || dy == ring) ? 1 : Math.max(1, 2 * ring);
+                for (int dx = -ring; dx <= ring; dx += step) {
+                    Cell cell = cells.get(key(Math.floorMod(centerX + dx, columns), y));
+                    if (cell != null && (best.size() < k
+                            || bound + loadPenaltyMeters * cell.minOpenTasks < best.peek().cost)) {
+                        offer(cell.volunteers, latitude, longitude, bound, k, best);
+                    }
+                }
+            }
+        }
+
+        result.addAll(best);
+        result.sort((a, b) -> Double.compare(a.cost, b.cost));
+        return result;
+    }
+
+    /**
+     * Greedily gives every report to its currently best volunteer, in the given order,
+     * counting each assignment towards that volunteer's load so work spreads out.
+     * Reports nobody can take are left out of the result.
+     */
+    public Map<String, Match> assignAll(List<PendingReport> reports) {
+        Map<String, Match> assignments = new LinkedHashMap<>();
+        for (PendingReport report : reports) {
+            List<Match> best = findBest(report.latitude, report.longitude, 1);
+            if (best.isEmpty()) continue;
+
+            Match match = best.get(0);
+            assignments.put(report.id, match);
+            setOpenTasks(match.volunteerId, match.openTasks + 1);
+        }
+        return assignments;
+    }
+
+    private void offer(List<Volunteer> bucket, double latitude, double longitude, double minDistance,
+                       int k, PriorityQueue<Match> best) {
+        for (int i = 0; i < bucket.size(); i++) {
+            Volunteer volunteer = bucket.get(i);
+            double penalty = loadPenaltyMeters * volunteer.openTasks;
+            // Cheap rejection before the trigonometry of the exact distance
+            if (best.size() == k && minDistance + penalty >= best.peek().cost) continue;
+
+            double distance = GeoHash.distanceMeters(latitude, longitude, volunteer.latitude, volunteer.longitude);
+            if (distance > maxDistanceMeters) continue;
+
+            double cost = distance + penalty;
+            if (best.size() < k) {
+                best.add(new Match(volunteer.id, distance, volunteer.openTasks, cost));
+            } else if (cost < best.peek().cost) {
+                best.poll();
+                best.add(new Match(volunteer.id, distance, volunteer.openTasks, cost));
+            }
+        }
+    }
+
+    /**
+     * Smallest possible distance from a point in the center cell to any point in a cell
+     * of the given ring: such a cell is at least ring - 1 whole cells away along one axis.
+     */
+    private double ringLowerBoundMeters(double latitude, int ring) {
+        if (ring <= 1) {
+            return 0;
+        }
+        double gap = Math.toRadians((ring - 1) * cellDegrees);
+        double latBound = EARTH_RADIUS_M * gap;
+        // Longitude gaps shrink towards the poles, use the most poleward latitude in reach
+        double farthestLat = Math.min(90, Math.abs(latitude) + (ring + 1) * cellDegrees);
+        double cosLat = Math.cos(Math.toRadians(farthestLat));
+        double lonBound = 2 * EARTH_RADIUS_M * Math.asin(Math.min(1, cosLat * Math.sin(gap / 2)));
+        return Math.min(latBound, lonBound);
+    }
+
+    private void file(Volunteer volunteer) {
+        if (volunteer.openTasks >= maxOpenTasks) {
+            return;
+        }
+        volunteer.cell = key(column(volunteer.longitude), row(volunteer.latitude));
+        Cell cell = cells.get(volunteer.cell);
+        if (cell == null) {
+            cell = new Cell();
+            cells.put(volunteer.cell, cell);
+        }
+        cell.add(volunteer);
+        loadCounts[Math.max(0, volunteer.openTasks)]++;
+    }
+
+    private void unfile(Volunteer volunteer) {
+        if (volunteer.cell < 0) {
+            return;
+        }
+        Cell cell = cells.get(volunteer.cell);
+        if (cell != null) {
+            cell.remove(volunteer);
+            if (cell.volunteers.isEmpty()) {
+                cells.remove(volunteer.cell);
+            }
+        }
+        loadCounts[Math.max(0, volunteer.openTasks)]--;
+        volunteer.cell = -1;
+    }
+
+    private int minOpenTasks() {
+        for (int load = 0; load < loadCounts.length; load++) {
+            if (loadCounts[load] > 0) return load;
+        }
+        return 0;
+    }
+
+    private int column(double longitude) {
+        return Math.floorMod((int) Math.floor((longitude + 180) / cellDegrees), columns);
+    }
+
+    private int row(double latitude) {
+        return Math.max(0, Math.min(rows - 1, (int) Math.floor((latitude + 90) / cellDegrees)));
+    }
+
+    private long key(int column, int row) {
+        return (long) row * columns + column;
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.crowdcleaning.utils;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.QuerySnapshot;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Looks for an open report of the same pile before a new one is created: an existing
+ * report counts as a duplicate when it lies within MAX_DISTANCE_METERS and one of its
+ * photos is within MAX_HASH_DISTANCE bits of one of the new photos.
+ */
+public class DuplicateDetector {
+
+    public static final String FIELD_IMAGE_HASHES = "imageHashes";
+
+    // GPS fixes of the same spot from different phones easily differ by tens of meters
+    private static final double MAX_DISTANCE_METERS = 75;
+    private static final int MAX_HASH_DISTANCE = 10;
+
+    public static class Duplicate {
+        public final String reportId;
+        public final String title;
+        public final String status;
+        public final double distanceMeters;
+        public final int hashDistance;
+
+        Duplicate(String reportId, String title, String status, double distanceMeters, int hashDistance) {
+            this.reportId = reportId;
+            this.title = title;
+            this.status = status;
+            this.distanceMeters = distanceMeters;
+            this.hashDistance = hashDistance;
+        }
+    }
+
+    public interface DuplicateCallback {
+        // duplicate is null when nothing similar is nearby
+        void onResult(Duplicate duplicate);
+        void onError(Exception e);
+    }
+
+    private DuplicateDetector() {
+    }
+
+    public static void findDuplicate(double latitude, double longitude, List<Long> imageHashes,
+                                     DuplicateCallback callback) {
+        if (imageHashes.isEmpty()) {
+            callback.onResult(null);
+            return;
+        }
+
+        FirebaseFirestore db = FirebaseFirestore.getInstance();
+        List<Task<QuerySnapshot>> tasks = new ArrayList<>();
+        for (String[] bound : GeoHash.queryBounds(latitude, longitude, MAX_DISTANCE_METERS)) {
+            tasks.add(db.collection("reports")
+                    .orderBy(GeoHash.FIELD)
+                    .startAt(bound[0])
+                    .endAt(bound[1])
+                    .get());
+        }
+
+        Tasks.whenAllSuccess(tasks)
+                .addOnSuccessListener(results -> {
+                    Duplicate best = null;
+                    Set<String> seen = new HashSet<>();
+                    for (Object result : results) {
+                        for (DocumentSnapshot document : ((QuerySnapshot) result).getDocuments()) {
+                            if (!seen.add(document.getId())) continue;
+                            Duplicate candidate = match(document, latitude, longitude, imageHashes);
+                            if (candidate != null && (best == null || candidate.hashDistance < best.hashDistance
+                                    || (candidate.hashDistance == best.hashDistance
+                                    && candidate.distanceMeters < best.distanceMeters))) {
+                                best = candidate;
+                            }
+                        }
+                    }
+                    callback.onResult(best);
+                })
+                .addOnFailureListener(callback::onError);
+    }
+
+    private static Duplicate match(DocumentSnapshot document, double latitude, double longitude,
+                                   List<Long> imageHashes) {
+        String status = document.getString("status");
+        Double otherLatitude = document.getDouble("latitude");
+        Double otherLongitude = document.getDouble("longitude");
+        Object storedHashes = document.get(FIELD_IMAGE_HASHES);
+        // Cleaned piles are gone, and reports from before hashing cannot be compared
+        if (StatusConstants.isCompletedStatus(status) || otherLatitude == null || otherLongitude == null
+                || !(storedHashes instanceof List)) {
+            return null;
+        }
+
+        double distance = GeoHash.distanceMeters(latitude, longitude, otherLatitude, otherLongitude);
+        if (distance > MAX_DISTANCE_METERS) {
+            return null;
+        }
+
+        int closest = Integer.MAX_VALUE;
+        for (Object stored : (List<?>) storedHashes) {
+            if (!(stored instanceof String)) continue;
+            long storedHash;
+            try {
+                storedHash = ImageHash.fromHex((String) stored);
+            } catch (NumberFormatException e) {
+                continue;
+            }
+            for (long hash : imageHashes) {
+                closest = Math.min(closest, ImageHash.distance(hash, storedHash));
+            }
+        }
+        if (closest > MAX_HASH_DISTANCE) {
+            return null;
+        }
+        return new Duplicate(document.getId(), document.getString("title"), status, distance, closest);
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.crowdcleaning.utils;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Geohash encoding and the prefix ranges that cover a circle, used to run radius
+ * queries as a handful of orderBy("geohash").startAt().endAt() range queries.
+ */
+public final class GeoHash {
+
+    // Precision written to documents, about 1.2 m x 0.6 m cells
+    public static final int DEFAULT_PRECISION = 10;
+    public static final String FIELD = "geohash";
+
+    private static final String BASE32 = "0123456789bcdefghjkmnpqrstuvwxyz";
+    private static final double EARTH_RADIUS_M = 6_371_000;
+    private static final double METERS_PER_DEGREE = 111_320;
+
+    private GeoHash() {
+    }
+
+    public static String encode(double latitude, double longitude) {
+        return encode(latitude, longitude, DEFAULT_PRECISION);
+    }
+
+    public static String encode(double latitude, double longitude, int precision) {
+        double minLat = -90, maxLat = 90;
+        double minLon = -180, maxLon = 180;
+        StringBuilder hash = new StringBuilder(precision);
+        boolean evenBit = true;
+        int bit = 0;
+        int ch = 0;
+
+        while (hash.length() < precision) {
+            if (evenBit) {
+                double mid = (minLon + maxLon) / 2;
+                if (longitude >= mid) {
+                    ch = (ch << 1) | 1;
+                    minLon = mid;
+                } else {
+                    ch <<= 1;
+                    maxLon = mid;
+                }
+            } else {
+                double mid = (minLat + maxLat) / 2;
+                if (latitude >= mid) {
+                    ch = (ch << 1) | 1;
+                    minLat = mid;
+                } else {
+                    ch <<= 1;
+                    maxLat = mid;
+                }
+            }
+            evenBit = !evenBit;
+
+            if (++bit == 5) {
+                hash.append(BASE32.charAt(ch));
+                bit = 0;
+                ch = 0;
+            }
+        }
+        return hash.toString();
+    }
+
+    /**
+     * Returns [start, end] geohash ranges whose union contains every point within
+     * radiusMeters of the center. At most nine ranges (the center cell and its
+     * neighbours) at the finest precision whose cells are still at least radius-sized.
+     * Results still need an exact distance check.
+     */
+    public static List<String[]> queryBounds(double latitude, double longitude, double radiusMeters) {
+        double latStep = Math.toDegrees(radiusMeters / EARTH_RADIUS_M);
+        // Longitude degrees shrink towards the poles, size everything for the poleward edge
+        double cosLat = Math.max(0.01, Math.cos(Math.toRadians(Math.min(90, Math.abs(latitude) + latStep))));
+        double lonStep = latStep / cosLat;
+        int precision = precisionForRadius(radiusMeters, cosLat);
+
+        // Sample the center and the eight points of the bounding box; their cells cover the circle
+        Set<String> prefixes = new LinkedHashSet<>();
+        for (int dLat = -1; dLat <= 1; dLat++) {
+            for (int dLon = -1; dLon <= 1; dLon++) {
+                double lat = clamp(latitude + dLat * latStep, -90, 90);
+                double lon = wrapLongitude(longitude + dLon * lonStep);
+                prefixes.add(encode(lat, lon, precision));
+            }
+        }
+
+        List<String[]> bounds = new ArrayList<>(prefixes.size());
+        for (String prefix : prefixes) {
+            bounds.add(new String[]{prefix, prefix + "~"});
+        }
+        return bounds;
+    }
+
+    /**
+     * Great-circle (haversine) distance in meters.
+     */
+    public static double distanceMeters(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+                * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * EARTH_RADIUS_M * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    static int precisionForRadius(double radiusMeters, double cosLat) {
+        int precision = 1;
+        while (precision < DEFAULT_PRECISION && minCellSizeMeters(precision + 1, cosLat) >= radiusMeters) {
+            precision++;
+        }
+        return precision;
+    }
+
+    private static double minCellSizeMeters(int precision, double cosLat) {
+        int bits = precision * 5;
+        double latDegrees = 180.0 / (1L << (bits / 2));
+        double lonDegrees = 360.0 / (1L << (bits - bits / 2));
+        return Math.min(latDegrees, lonDegrees * cosLat) * METERS_PER_DEGREE;
+    }
+
+    private static double clamp(double value, double min, double max) {
+        return Math.max(min, Math.min(max, value));
+    }
+
+    private static double wrapLongitude(double longitude) {
+        if (longitude > 180) return longitude - 360;
+        if (longitude < -180) return longitude + 360;
+        return longitude;
+    }
+}
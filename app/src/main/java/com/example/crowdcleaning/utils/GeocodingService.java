@@ -0,0 +1,215 @@
+package com.example.crowdcleaning.utils;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.location.Address;
+import android.location.Geocoder;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.google.android.gms.maps.model.LatLng;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.text.Normalizer;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Resolves addresses to coordinates on a small shared thread pool, remembering every
+ * answer on disk under a normalized form of the address so the same place is never
+ * sent to the Geocoder twice. Concurrent requests for one address share a lookup.
+ * Call from the main thread; callbacks are delivered on the main thread.
+ */
+public class GeocodingService {
+
+    public interface GeocodeCallback {
+        void onGeocoded(LatLng location);
+        void onNotFound();
+        void onError(Exception e);
+    }
+
+    private static final String TAG = "GeocodingService";
+    private static final String PREFS_NAME = "geocode_cache";
+    private static final int POOL_SIZE = 2;
+    private static final int MAX_CACHE_ENTRIES = 1000;
+    // Addresses with no match are asked again after a day, the Geocoder backend may improve
+    private static final long NOT_FOUND_TTL_MS = 24L * 60 * 60 * 1000;
+
+    private static GeocodingService instance;
+
+    private final Context appContext;
+    private final SharedPreferences prefs;
+    private final ExecutorService executor = Executors.newFixedThreadPool(POOL_SIZE);
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    // Callbacks waiting on a lookup that is already running, by normalized address
+    private final Map<String, List<GeocodeCallback>> inFlight = new HashMap<>();
+
+    public static synchronized GeocodingService getInstance(Context context) {
+        if (instance == null) {
+            instance = new GeocodingService(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private GeocodingService(Context appContext) {
+        this.appContext = appContext;
+        prefs = appContext.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        executor.execute(this::prune);
+    }
+
+    public void geocode(String address, GeocodeCallback callback) {
+        String key = normalize(address);
+        if (key.isEmpty()) {
+            callback.onNotFound();
+            return;
+        }
+
+        JSONObject cached = readCache(key);
+        if (cached != null) {
+            if (cached.has("lat")) {
+                callback.onGeocoded(new LatLng(cached.optDouble("lat"), cached.optDouble("lon")));
+                return;
+            }
+            if (System.currentTimeMillis() - cached.optLong("at") < NOT_FOUND_TTL_MS) {
+                callback.onNotFound();
+                return;
+            }
+        }
+
+        List<GeocodeCallback> waiting = inFlight.get(key);
+        if (waiting != null) {
+            waiting.add(callback);
+            return;
+        }
+        waiting = new ArrayList<>();
+        waiting.add(callback);
+        inFlight.put(key, waiting);
+
+        executor.execute(() -> lookup(address.trim(), key));
+    }
+
+    /**
+     * Canonical cache key for an address: Unicode-normalized, lower case, single spaces
+     * and ", " between parts, so "12  Main St ,Springfield." and "12 main st, springfield"
+     * share an entry.
+     */
+    static String normalize(String address) {
+        if (address == null) {
+            return "";
+        }
+        String normalized = Normalizer.normalize(address, Normalizer.Form.NFKC)
+                .toLowerCase(Locale.ROOT)
+                .replaceAll("\\s+", " ")
+                .replaceAll(" ?, ?", ", ")
+                .replaceAll("(, )+", ", ");
+        return normalized.replaceAll("^[\\s,.;]+|[\\s,.;]+$", "");
+    }
+
+    private void lookup(String address, String key) {
+        if (!Geocoder.isPresent()) {
+            deliverError(key, new IOException("Geocoder not available on this device"));
+            return;
+        }
+
+        try {
+            Geocoder geocoder = new Geocoder(appContext, Locale.getDefault());
+            List<Address> addresses = geocoder.getFromLocationName(address, 1);
+            JSONObject entry = new JSONObject();
+            entry.put("at", System.currentTimeMillis());
+
+            if (addresses == null || addresses.isEmpty()) {
+                Log.w(TAG, "No results for address: " + address);
+                prefs.edit().putString(key, entry.toString()).apply();
+                deliver(key, null);
+                return;
+            }
+
+            Address result = addresses.get(0);
+            entry.put("lat", result.getLatitude());
+            entry.put("lon", result.getLongitude());
+            prefs.edit().putString(key, entry.toString()).apply();
+            Log.d(TAG, "Geocoded " + address + " -> " + result.getLatitude() + ", " + result.getLongitude());
+            deliver(key, new LatLng(result.getLatitude(), result.getLongitude()));
+        } catch (IOException | JSONException e) {
+            // Network or backend trouble is not remembered, the next request tries again
+            Log.e(TAG, "Geocoding error for address: " + address, e);
+            deliverError(key, e);
+        }
+    }
+
+    private void deliver(String key, LatLng location) {
+        mainHandler.post(() -> {
+            List<GeocodeCallback> waiting = inFlight.remove(key);
+            if (waiting == null) return;
+            for (GeocodeCallback callback : waiting) {
+                if (location != null) {
+                    callback.onGeocoded(location);
+                } else {
+                    callback.onNotFound();
+                }
+            }
+        });
+    }
+
+    private void deliverError(String key, Exception e) {
+        mainHandler.post(() -> {
+            List<GeocodeCallback> waiting = inFlight.remove(key);
+            if (waiting == null) return;
+            for (GeocodeCallback callback : waiting) {
+                callback.onError(e);
+            }
+        });
+    }
+
+    private JSONObject readCache(String key) {
+        String json = prefs.getString(key, null);
+        if (json == null) {
+            return null;
+        }
+        try {
+            return new JSONObject(json);
+        } catch (JSONException e) {
+            prefs.edit().remove(key).apply();
+            return null;
+        }
+    }
+
+    // Drops expired misses and, past MAX_CACHE_ENTRIES, the oldest answers
+    private void prune() {
+        long now = System.currentTimeMillis();
+        List<Map.Entry<String, Long>> entries = new ArrayList<>();
+        SharedPreferences.Editor editor = prefs.edit();
+
+        for (Map.Entry<String, ?> entry : prefs.getAll().entrySet()) {
+            try {
+                JSONObject value = new JSONObject(String.valueOf(entry.getValue()));
+                long at = value.optLong("at");
+                if (!value.has("lat") && now - at >= NOT_FOUND_TTL_MS) {
+                    editor.remove(entry.getKey());
+                } else {
+                    entries.add(new AbstractMap.SimpleEntry<>(entry.getKey(), at));
+                }
+            } catch (JSONException e) {
+                editor.remove(entry.getKey());
+            }
+        }
+
+        if (entries.size() > MAX_CACHE_ENTRIES) {
+            entries.sort((a, b) -> Long.compare(a.getValue(), b.getValue()));
+            for (int i = 0; i < entries.size() - MAX_CACHE_ENTRIES; i++) {
+                editor.remove(entries.get(i).getKey());
+            }
+        }
+        editor.apply();
+    }
+}
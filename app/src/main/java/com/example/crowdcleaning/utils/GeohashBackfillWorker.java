@@ -0,0 +1,148 @@
+package com.example.crowdcleaning.utils;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.work.BackoffPolicy;
+import androidx.work.Constraints;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.NetworkType;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldPath;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.WriteBatch;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One-off job that writes the geohash field on reports created before it existed.
+ * Walks the collection in document ID order, one page per batched write, and records
+ * completion so it only ever runs to the end once per install. Completion is also
+ * published in STATUS_COLLECTION, so other devices know geohash queries find every report.
+ */
+public class GeohashBackfillWorker extends Worker {
+
+    private static final String TAG = "GeohashBackfill";
+    private static final String WORK_NAME = "geohash_backfill";
+    private static final String PREFS_NAME = "geohash_backfill";
+    private static final String KEY_DONE = "done";
+    private static final String STATUS_COLLECTION = "app_status";
+    private static final String STATUS_DOCUMENT = "geohash_backfill";
+    private static final int PAGE_SIZE = 200;
+
+    public GeohashBackfillWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    public static void enqueue(Context context) {
+        if (context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE).getBoolean(KEY_DONE, false)) {
+            return;
+        }
+
+        OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(GeohashBackfillWorker.class)
+                .setConstraints(new Constraints.Builder()
+                        .setRequiredNetworkType(NetworkType.UNMETERED)
+                        .build())
+                .setBackoffCriteria(BackoffPolicy.EXPONENTIAL, 1, TimeUnit.MINUTES)
+                .build();
+        WorkManager.getInstance(context).enqueueUniqueWork(WORK_NAME, ExistingWorkPolicy.KEEP, request);
+    }
+
+    /**
+     * Whether every report has its geohash, as published by whichever device ran the
+     * backfill. Remembered locally once true; false if the status cannot be read.
+     */
+    public static Task<Boolean> isDone(Context context) {
+        SharedPreferences prefs = context.getApplicationContext().getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        if (prefs.getBoolean(KEY_DONE, false)) {
+            return Tasks.forResult(true);
+        }
+
+        return FirebaseFirestore.getInstance().collection(STATUS_COLLECTION).document(STATUS_DOCUMENT).get()
+                .continueWith(task -> {
+                    boolean done = task.isSuccessful() && Boolean.TRUE.equals(task.getResult().getBoolean(KEY_DONE));
+                    if (done) {
+                        prefs.edit().putBoolean(KEY_DONE, true).apply();
+                    }
+                    return done;
+                });
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        FirebaseFirestore db = FirebaseFirestore.getInstance();
+        DocumentSnapshot last = null;
+        int updated = 0;
+
+        try {
+            while (!isStopped()) {
+                Query page = db.collection("reports").orderBy(FieldPath.documentId()).limit(PAGE_SIZE);
+                if (last != null) {
+                    page = page.startAfter(last);
+                }
+                QuerySnapshot snapshot = Tasks.await(page.get());
+                if (snapshot.isEmpty()) {
+                    break;
+                }
+
+                WriteBatch batch = db.batch();
+                int pending = 0;
+                for (DocumentSnapshot document : snapshot.getDocuments()) {
+                    Double latitude = document.getDouble("latitude");
+                    Double longitude = document.getDouble("longitude");
+                    if (document.getString(GeoHash.FIELD) != null || latitude == null || longitude == null
+                            || (latitude == 0 && longitude == 0)) {
+                        continue;
+                    }
+                    batch.update(document.getReference(), GeoHash.FIELD, GeoHash.encode(latitude, longitude),
+                            ReportSync.FIELD_UPDATED_AT, FieldValue.serverTimestamp());
+                    pending++;
+                }
+                if (pending > 0) {
+                    Tasks.await(batch.commit());
+                    updated += pending;
+                }
+
+                last = snapshot.getDocuments().get(snapshot.size() - 1);
+                if (snapshot.size() < PAGE_SIZE) {
+                    break;
+                }
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Backfill failed after " + updated + " update(s): " + e.getMessage());
+            return Result.retry();
+        }
+
+        if (isStopped()) {
+            return Result.retry();
+        }
+        Log.d(TAG, "Backfill finished, " + updated + " report(s) updated");
+        try {
+            Map<String, Object> status = new HashMap<>();
+            status.put(KEY_DONE, true);
+            status.put("finishedAt", FieldValue.serverTimestamp());
+            Tasks.await(db.collection(STATUS_COLLECTION).document(STATUS_DOCUMENT).set(status));
+        } catch (Exception e) {
+            Log.e(TAG, "Could not publish backfill status: " + e.getMessage());
+            return Result.retry();
+        }
+        getApplicationContext().getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE)
+                .edit().putBoolean(KEY_DONE, true).apply();
+        return Result.success();
+    }
+}
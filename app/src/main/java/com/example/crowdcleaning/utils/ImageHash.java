@@ -0,0 +1,74 @@
+package com.example.crowdcleaning.utils;
+
+import android.graphics.Bitmap;
+import android.graphics.Color;
+
+/**
+ * 64-bit difference hash (dHash) of a photo: the image is shrunk to a 9x8 grayscale
+ * grid and each bit records whether a cell is brighter than its right neighbour.
+ * Re-encoded, rescaled or slightly recoloured copies of a photo land within a few
+ * bits of each other, so the Hamming distance works as a similarity measure.
+ */
+public final class ImageHash {
+
+    private static final int GRID_WIDTH = 9;
+    private static final int GRID_HEIGHT = 8;
+    // Each grid cell averages a block of this many pixels per side, to avoid aliasing
+    private static final int SAMPLES_PER_CELL = 8;
+
+    private ImageHash() {
+    }
+
+    public static long dHash(Bitmap bitmap) {
+        int width = GRID_WIDTH * SAMPLES_PER_CELL;
+        int height = GRID_HEIGHT * SAMPLES_PER_CELL;
+        Bitmap small = Bitmap.createScaledBitmap(bitmap, width, height, true);
+        int[] pixels = new int[width * height];
+        small.getPixels(pixels, 0, width, 0, 0, width, height);
+        if (small != bitmap) {
+            small.recycle();
+        }
+
+        int[] grid = new int[GRID_WIDTH * GRID_HEIGHT];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int pixel = pixels[y * width + x];
+                int luminance = 299 * Color.red(pixel) + 587 * Color.green(pixel) + 114 * Color.blue(pixel);
+                grid[(y / SAMPLES_PER_CELL) * GRID_WIDTH + x / SAMPLES_PER_CELL] += luminance;
+            }
+        }
+        return dHash(grid);
+    }
+
+    /**
+     * Hash of a GRID_WIDTH x GRID_HEIGHT luminance grid, row by row.
+     */
+    static long dHash(int[] grid) {
+        long hash = 0;
+        for (int y = 0; y < GRID_HEIGHT; y++) {
+            for (int x = 0; x < GRID_WIDTH - 1; x++) {
+                int cell = y * GRID_WIDTH + x;
+                hash = (hash << 1) | (grid[cell] > grid[cell + 1] ? 1 : 0);
+            }
+        }
+        return hash;
+    }
+
+    public static int distance(long a, long b) {
+        return Long.bitCount(a ^ b);
+    }
+
+    // Stored as fixed-width hex strings, Firestore has no unsigned 64-bit type
+    public static String toHex(long hash) {
+        String hex = Long.toHexString(hash);
+        return "0000000000000000".substring(hex.length()) + hex;
+    }
+
+    public static long fromHex(String hex) {
+        if (hex.length() != 16) {
+            throw new NumberFormatException("Not a 64-bit hex hash: " + hex);
+        }
+        // Two halves, Long.parseUnsignedLong needs API 26
+        return (Long.parseLong(hex.substring(0, 8), 16) << 32) | Long.parseLong(hex.substring(8), 16);
+    }
+}
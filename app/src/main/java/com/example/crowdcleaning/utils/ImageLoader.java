@@ -0,0 +1,73 @@
+package com.example.crowdcleaning.utils;
+
+import android.app.ActivityManager;
+import android.content.Context;
+import android.content.pm.ApplicationInfo;
+
+import com.example.crowdcleaning.R;
+import com.squareup.picasso.LruCache;
+import com.squareup.picasso.OkHttp3Downloader;
+import com.squareup.picasso.Picasso;
+
+import java.io.File;
+
+import okhttp3.Cache;
+import okhttp3.CacheControl;
+import okhttp3.OkHttpClient;
+import okhttp3.Response;
+
+/**
+ * The Picasso instance every screen loads report photos with.
+ *
+ * Decoded bitmaps go to a memory LRU of 1 / MEMORY_CACHE_FRACTION of the app's heap
+ * class. Downloads go through an OkHttp disk cache of R.integer.image_disk_cache_mb.
+ * Storage download URLs carry a token and never change content, so responses that
+ * would otherwise be revalidated on every load are cached for DISK_MAX_AGE_SECONDS.
+ */
+public final class ImageLoader {
+
+    private static final int MEMORY_CACHE_FRACTION = 7;
+    private static final String DISK_CACHE_DIR = "report-images";
+    private static final int DISK_MAX_AGE_SECONDS = 30 * 24 * 60 * 60;
+
+    private static Picasso instance;
+
+    private ImageLoader() {
+    }
+
+    public static synchronized Picasso get(Context context) {
+        if (instance == null) {
+            Context appContext = context.getApplicationContext();
+            instance = new Picasso.Builder(appContext)
+                    .memoryCache(new LruCache(memoryCacheBytes(appContext)))
+                    .downloader(new OkHttp3Downloader(buildClient(appContext)))
+                    .build();
+        }
+        return instance;
+    }
+
+    private static int memoryCacheBytes(Context context) {
+        ActivityManager activityManager = (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+        boolean largeHeap = (context.getApplicationInfo().flags & ApplicationInfo.FLAG_LARGE_HEAP) != 0;
+        int memoryClassMb = largeHeap ? activityManager.getLargeMemoryClass() : activityManager.getMemoryClass();
+        return memoryClassMb * 1024 * 1024 / MEMORY_CACHE_FRACTION;
+    }
+
+    private static OkHttpClient buildClient(Context context) {
+        long diskCacheBytes = context.getResources().getInteger(R.integer.image_disk_cache_mb) * 1024L * 1024L;
+        return new OkHttpClient.Builder()
+                .cache(new Cache(new File(context.getCacheDir(), DISK_CACHE_DIR), diskCacheBytes))
+                .addNetworkInterceptor(chain -> {
+                    Response response = chain.proceed(chain.request());
+                    CacheControl cacheControl = response.cacheControl();
+                    if (!response.isSuccessful() || cacheControl.noStore() || cacheControl.maxAgeSeconds() > 0) {
+                        return response;
+                    }
+                    return response.newBuilder()
+                            .removeHeader("Pragma")
+                            .header("Cache-Control", "public, max-age=" + DISK_MAX_AGE_SECONDS)
+                            .build();
+                })
+                .build();
+    }
+}
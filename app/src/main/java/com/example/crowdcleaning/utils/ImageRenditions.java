@@ -0,0 +1,68 @@
+package com.example.crowdcleaning.utils;
+
+import java.io.File;
+
+/**
+ * The smaller copies uploaded next to each report photo, and the choice between them.
+ *
+ * ReportOutboxWorker writes a THUMBNAIL and a MEDIUM rendition of every photo before
+ * upload and stores their URLs in FIELD_THUMBNAILS / FIELD_MEDIUMS, index-aligned with
+ * imageUrls. A photo that already fits a rendition's size is not copied; its own URL
+ * stands in for that rendition.
+ */
+public final class ImageRenditions {
+
+    public static final String FIELD_THUMBNAILS = "thumbnailUrls";
+    public static final String FIELD_MEDIUMS = "mediumUrls";
+
+    public static final String THUMBNAIL = "thumb";
+    public static final String MEDIUM = "medium";
+
+    public static final int THUMBNAIL_SIZE = 320;
+    public static final int MEDIUM_SIZE = 800;
+    public static final int JPEG_QUALITY = 80;
+
+    // A rendition still counts as adequate when drawn up to this much larger than its size
+    private static final float MAX_UPSCALE = 1.5f;
+
+    private ImageRenditions() {
+    }
+
+    public static int sizeOf(String rendition) {
+        return THUMBNAIL.equals(rendition) ? THUMBNAIL_SIZE : MEDIUM_SIZE;
+    }
+
+    /**
+     * Where the rendition of a local photo is written, next to it: 0.jpg gives 0_thumb.jpg.
+     * The name is stable so a retried upload finds (and resumes) the same file.
+     */
+    public static File fileFor(File original, String rendition) {
+        String name = original.getName();
+        int dot = name.lastIndexOf('.');
+        String base = dot > 0 ? name.substring(0, dot) : name;
+        return new File(original.getParentFile(), base + "_" + rendition + ".jpg");
+    }
+
+    /**
+     * The smallest available URL adequate for a view whose longer side is targetPx.
+     * Missing renditions (reports uploaded before they existed) fall through to the
+     * next larger one and finally to the original.
+     */
+    public static String pick(int targetPx, String thumbnailUrl, String mediumUrl, String originalUrl) {
+        if (isPresent(thumbnailUrl) && targetPx <= THUMBNAIL_SIZE * MAX_UPSCALE) {
+            return thumbnailUrl;
+        }
+        if (isPresent(mediumUrl) && targetPx <= MEDIUM_SIZE * MAX_UPSCALE) {
+            return mediumUrl;
+        }
+        if (isPresent(originalUrl)) {
+            return originalUrl;
+        }
+        // Only renditions known; the largest one is the best left
+        return isPresent(mediumUrl) ? mediumUrl : thumbnailUrl;
+    }
+
+    private static boolean isPresent(String url) {
+        return url != null && !url.isEmpty();
+    }
+}
@@ -0,0 +1,178 @@
+package com.example.crowdcleaning.utils;
+
+import android.content.ContentResolver;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Matrix;
+import android.media.ExifInterface;
+import android.net.Uri;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Bitmap decoding helpers for picked photos. All methods do blocking I/O and
+ * must be called off the main thread.
+ */
+public class ImageUtils {
+
+    private static final String TAG = "ImageUtils";
+
+    private ImageUtils() {
+    }
+
+    /**
+     * Decodes the image at uri so that neither side exceeds maxSize, with EXIF
+     * orientation applied. The full-resolution image is never allocated: the bounds
+     * are read first and the decoder subsamples by the largest fitting power of two.
+     * Returns null if the image cannot be read.
+     */
+    public static Bitmap decodeSampledBitmap(ContentResolver resolver, Uri uri, int maxSize) throws IOException {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        try (InputStream in = resolver.openInputStream(uri)) {
+            BitmapFactory.decodeStream(in, null, options);
+        }
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            return null;
+        }
+
+        options.inSampleSize = calculateInSampleSize(options.outWidth, options.outHeight, maxSize);
+        options.inJustDecodeBounds = false;
+        Bitmap bitmap;
+        try (InputStream in = resolver.openInputStream(uri)) {
+            bitmap = BitmapFactory.decodeStream(in, null, options);
+        }
+        if (bitmap == null) {
+            return null;
+        }
+
+        return applyOrientation(scaleToFit(bitmap, maxSize), readOrientation(resolver, uri));
+    }
+
+    static int calculateInSampleSize(int width, int height, int maxSize) {
+        int inSampleSize = 1;
+        // Stop at the last power of two that still leaves the long side >= maxSize,
+        // the remaining factor is applied by scaleToFit with filtering
+        while (Math.max(width, height) / (inSampleSize * 2) >= maxSize) {
+            inSampleSize *= 2;
+        }
+        return inSampleSize;
+    }
+
+    public static Bitmap scaleToFit(Bitmap bitmap, int maxSize) {
+        int width = bitmap.getWidth();
+        int height = bitmap.getHeight();
+        if (width <= maxSize && height <= maxSize) {
+            return bitmap;
+        }
+
+        float scale = (float) maxSize / Math.max(width, height);
+        Bitmap scaled = Bitmap.createScaledBitmap(bitmap,
+                Math.max(1, Math.round(width * scale)), Math.max(1, Math.round(height * scale)), true);
+        if (scaled != bitmap) {
+            bitmap.recycle();
+        }
+        return scaled;
+    }
+
+    /**
+     * Encodes the bitmap as JPEG straight into file, without an intermediate byte array.
+     */
+    public static void writeJpeg(Bitmap bitmap, File file, int quality) throws IOException {
+        try (OutputStream out = new FileOutputStream(file)) {
+            if (!bitmap.compress(Bitmap.CompressFormat.JPEG, quality, out)) {
+                throw new IOException("JPEG encoding failed for " + file);
+            }
+        }
+    }
+
+    /**
+     * Writes a copy of the JPEG at source scaled so that neither side exceeds maxSize.
+     * Returns false, writing nothing, when the source already fits. The source is
+     * expected upright (as written by writeJpeg), so no EXIF orientation is applied.
+     */
+    public static boolean writeScaledCopy(File source, File target, int maxSize, int quality) throws IOException {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeFile(source.getPath(), options);
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            throw new IOException("Cannot decode " + source);
+        }
+        if (Math.max(options.outWidth, options.outHeight) <= maxSize) {
+            return false;
+        }
+
+        options.inSampleSize = calculateInSampleSize(options.outWidth, options.outHeight, maxSize);
+        options.inJustDecodeBounds = false;
+        Bitmap bitmap = BitmapFactory.decodeFile(source.getPath(), options);
+        if (bitmap == null) {
+            throw new IOException("Cannot decode " + source);
+        }
+
+        Bitmap scaled = scaleToFit(bitmap, maxSize);
+        // Through a temp file, so an interrupted write is never taken for a finished copy
+        File temp = new File(target.getPath() + ".tmp");
+        try {
+            writeJpeg(scaled, temp, quality);
+        } finally {
+            scaled.recycle();
+        }
+        if (!temp.renameTo(target)) {
+            throw new IOException("Could not write " + target);
+        }
+        return true;
+    }
+
+    private static int readOrientation(ContentResolver resolver, Uri uri) {
+        try (InputStream in = resolver.openInputStream(uri)) {
+            if (in == null) return ExifInterface.ORIENTATION_NORMAL;
+            return new ExifInterface(in).getAttributeInt(
+                    ExifInterface.TAG_ORIENTATION, ExifInterface.ORIENTATION_NORMAL);
+        } catch (IOException e) {
+            Log.d(TAG, "No EXIF orientation for " + uri + ": " + e.getMessage());
+            return ExifInterface.ORIENTATION_NORMAL;
+        }
+    }
+
+    private static Bitmap applyOrientation(Bitmap bitmap, int orientation) {
+        Matrix matrix = new Matrix();
+        switch (orientation) {
+            case ExifInterface.ORIENTATION_ROTATE_90:
+                matrix.postRotate(90);
+                break;
+            case ExifInterface.ORIENTATION_ROTATE_180:
+                matrix.postRotate(180);
+                break;
+            case ExifInterface.ORIENTATION_ROTATE_270:
+                matrix.postRotate(270);
+                break;
+            case ExifInterface.ORIENTATION_FLIP_HORIZONTAL:
+                matrix.postScale(-1, 1);
+                break;
+            case ExifInterface.ORIENTATION_FLIP_VERTICAL:
+                matrix.postScale(1, -1);
+                break;
+            case ExifInterface.ORIENTATION_TRANSPOSE:
+                matrix.postRotate(90);
+                matrix.postScale(-1, 1);
+                break;
+            case ExifInterface.ORIENTATION_TRANSVERSE:
+                matrix.postRotate(270);
+                matrix.postScale(-1, 1);
+                break;
+            default:
+                return bitmap;
+        }
+
+        Bitmap rotated = Bitmap.createBitmap(bitmap, 0, 0, bitmap.getWidth(), bitmap.getHeight(), matrix, true);
+        if (rotated != bitmap) {
+            bitmap.recycle();
+        }
+        return rotated;
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.crowdcleaning.utils;
+
+import android.util.Log;
+
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleEventObserver;
+import androidx.lifecycle.LifecycleOwner;
+
+import com.google.firebase.firestore.EventListener;
+import com.google.firebase.firestore.ListenerRegistration;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Owns the Firestore snapshot listeners of one screen and ties them to its lifecycle.
+ *
+ * Listeners are keyed by name: listening again with the same key and an equal query
+ * keeps the live listener instead of stacking another one. Everything is detached
+ * in onStop, reattached in onStart and forgotten in onDestroy.
+ */
+public class ListenerRegistry implements LifecycleEventObserver {
+
+    private static final String TAG = "ListenerRegistry";
+
+    // Live listeners across all registries, for diagnostics
+    private static final AtomicInteger activeListeners = new AtomicInteger();
+
+    private static class Entry {
+        final Query query;
+        final Runnable onAttach;
+        final EventListener<QuerySnapshot> listener;
+        ListenerRegistration registration;
+
+        Entry(Query query, Runnable onAttach, EventListener<QuerySnapshot> listener) {
+            this.query = query;
+            this.onAttach = onAttach;
+            this.listener = listener;
+        }
+    }
+
+    private final Lifecycle lifecycle;
+    private final Map<String, Entry> entries = new HashMap<>();
+
+    public ListenerRegistry(LifecycleOwner owner) {
+        lifecycle = owner.getLifecycle();
+        lifecycle.addObserver(this);
+    }
+
+    public static int getActiveListenerCount() {
+        return activeListeners.get();
+    }
+
+    /**
+     * Listens to query under key. onAttach (may be null) runs every time the listener is
+     * (re)attached, before its first snapshot, so callers applying document changes can
+     * reset their state. Returns false if an equal query was already registered under key.
+     */
+    public boolean listen(String key, Query query, Runnable onAttach, EventListener<QuerySnapshot> listener) {
+        Entry existing = entries.get(key);
+        if (existing != null) {
+            if (existing.query.equals(query)) {
+                return false;
+            }
+            detach(existing);
+        }
+
+        Entry entry = new Entry(query, onAttach, listener);
+        entries.put(key, entry);
+        if (lifecycle.getCurrentState().isAtLeast(Lifecycle.State.STARTED)) {
+            attach(entry);
+        }
+        return true;
+    }
+
+    public void remove(String key) {
+        Entry entry = entries.remove(key);
+        if (entry != null) {
+            detach(entry);
+        }
+    }
+
+    public void removeAll() {
+        for (Entry entry : entries.values()) {
+            detach(entry);
+        }
+        entries.clear();
+    }
+
+    @Override
+    public void onStateChanged(LifecycleOwner source, Lifecycle.Event event) {
+        switch (event) {
+            case ON_START:
+                for (Entry entry : entries.values()) {
+                    attach(entry);
+                }
+                break;
+            case ON_STOP:
+                for (Entry entry : entries.values()) {
+                    detach(entry);
+                }
+                break;
+            case ON_DESTROY:
+                removeAll();
+                lifecycle.removeObserver(this);
+                break;
+            default:
+                break;
+        }
+        Log.d(TAG, event + " - active listeners: " + activeListeners.get());
+    }
+
+    private void attach(Entry entry) {
+        if (entry.registration != null) return;
+        if (entry.onAttach != null) {
+            entry.onAttach.run();
+        }
+        entry.registration = entry.query.addSnapshotListener(entry.listener);
+        activeListeners.incrementAndGet();
+    }
+
+    private void detach(Entry entry) {
+        if (entry.registration == null) return;
+        entry.registration.remove();
+        entry.registration = null;
+        activeListeners.decrementAndGet();
+    }
+}
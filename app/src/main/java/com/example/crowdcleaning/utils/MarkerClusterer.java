@@ -0,0 +1,238 @@
+package com.example.crowdcleaning.utils;
+
+import com.google.android.gms.maps.CameraUpdateFactory;
+import com.google.android.gms.maps.GoogleMap;
+import com.google.android.gms.maps.model.BitmapDescriptorFactory;
+import com.google.android.gms.maps.model.LatLng;
+import com.google.android.gms.maps.model.LatLngBounds;
+import com.google.android.gms.maps.model.Marker;
+import com.google.android.gms.maps.model.MarkerOptions;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Draws report markers on a GoogleMap, grouping nearby ones into cluster markers.
+ *
+ * Items live in a QuadTree; on every camera idle only the items inside the visible
+ * bounds are fetched, bucketed into a zoom-dependent grid and diffed against the
+ * markers already on the map by key (report ID or grid cell), so markers that did
+ * not change are left alone. Must be used on the main thread.
+ */
+public class MarkerClusterer implements GoogleMap.OnCameraIdleListener, GoogleMap.OnMarkerClickListener {
+
+    // Approximate on-screen size of a cluster cell
+    private static final int CLUSTER_CELL_PX = 96;
+    private static final int TILE_SIZE_PX = 256;
+    // Above this zoom every report gets its own marker
+    private static final float MAX_CLUSTER_ZOOM = 17f;
+
+    public static class Item {
+        final String id;
+        final LatLng position;
+        final String title;
+        final String snippet;
+
+        public Item(String id, LatLng position, String title, String snippet) {
+            this.id = id;
+            this.position = position;
+            this.title = title;
+            this.snippet = snippet;
+        }
+    }
+
+    private static class Cluster {
+        final List<Item> items = new ArrayList<>();
+        double latSum;
+        double lonSum;
+
+        LatLng center() {
+            return new LatLng(latSum / items.size(), lonSum / items.size());
+        }
+    }
+
+    private final GoogleMap map;
+    private final Map<String, Item> items = new HashMap<>();
+    private QuadTree<Item> tree = new QuadTree<>();
+    // Markers currently on the map, keyed by report ID or cluster cell
+    private final Map<String, Marker> markers = new HashMap<>();
+    private final Map<String, Item> markerItems = new HashMap<>();
+    private final Map<Marker, LatLngBounds> clusterBounds = new HashMap<>();
+
+    public MarkerClusterer(GoogleMap map) {
+        this.map = map;
+    }
+
+    /**
+     * Replaces all items and redraws what is visible.
+     */
+    public void setItems(List<Item> newItems) {
+        items.clear();
+        for (Item item : newItems) {
+            items.put(item.id, item);
+        }
+        rebuildTree();
+        render();
+    }
+
+    public void addItem(Item item) {
+        if (items.put(item.id, item) == null) {
+            tree.insert(item.position.latitude, item.position.longitude, item);
+        } else {
+            // Replaced an existing item, its old position is still in the tree
+            rebuildTree();
+        }
+        render();
+    }
+
+    public void clear() {
+        items.clear();
+        tree = new QuadTree<>();
+        for (Marker marker : markers.values()) {
+            marker.remove();
+        }
+        markers.clear();
+        markerItems.clear();
+        clusterBounds.clear();
+    }
+
+    @Override
+    public void onCameraIdle() {
+        render();
+    }
+
+    @Override
+    public boolean onMarkerClick(Marker marker) {
+        LatLngBounds bounds = clusterBounds.get(marker);
+        if (bounds == null) {
+            // Plain report marker, let the map show its info window
+            return false;
+        }
+        map.animateCamera(CameraUpdateFactory.newLatLngBounds(bounds, CLUSTER_CELL_PX));
+        return true;
+    }
+
+    private void rebuildTree() {
+        tree = new QuadTree<>();
+        for (Item item : items.values()) {
+            tree.insert(item.position.latitude, item.position.longitude, item);
+        }
+    }
+
+    private void render() {
+        LatLngBounds visible = map.getProjection().getVisibleRegion().latLngBounds;
+        float zoom = map.getCameraPosition().zoom;
+
+        List<Item> inView = new ArrayList<>();
+        double south = visible.southwest.latitude;
+        double north = visible.northeast.latitude;
+        if (visible.southwest.longitude <= visible.northeast.longitude) {
+            tree.query(south, visible.southwest.longitude, north, visible.northeast.longitude, inView);
+        } else {
+            // Viewport crosses the antimeridian
+            tree.query(south, visible.southwest.longitude, north, 180, inView);
+            tree.query(south, -180, north, visible.northeast.longitude, inView);
+        }
+
+        Map<String, Cluster> cells = new LinkedHashMap<>();
+        if (zoom >= MAX_CLUSTER_ZOOM) {
+            for (Item item : inView) {
+                Cluster single = new Cluster();
+                single.items.add(item);
+                cells.put(item.id, single);
+            }
+        } else {
+            // Grid cell size in degrees for roughly CLUSTER_CELL_PX pixels, on whole zoom
+            // levels so the grid (and its cell keys) only changes when the level does
+            int gridZoom = (int) zoom;
+            double cellDegrees = 360.0 * CLUSTER_CELL_PX / (TILE_SIZE_PX * Math.pow(2, gridZoom));
+            for (Item item : inView) {
+                long x = (long) Math.floor(item.position.longitude / cellDegrees);
+                long y = (long) Math.floor(item.position.latitude / cellDegrees);
+                String cellKey = "cell:" + gridZoom + ":" + x + ":" + y;
+                Cluster cluster = cells.get(cellKey);
+                if (cluster == null) {
+                    cluster = new Cluster();
+                    cells.put(cellKey, cluster);
+                }
+                cluster.items.add(item);
+                cluster.latSum += item.position.latitude;
+                cluster.lonSum += item.position.longitude;
+            }
+        }
+
+        Set<String> wanted = new HashSet<>();
+        for (Map.Entry<String, Cluster> cell : cells.entrySet()) {
+            Cluster cluster = cell.getValue();
+            if (cluster.items.size() == 1) {
+                Item item = cluster.items.get(0);
+                wanted.add(item.id);
+                showItem(item);
+            } else {
+                // Include the count so a cell whose membership changed gets a fresh marker
+                String key = cell.getKey() + ":" + cluster.items.size();
+                wanted.add(key);
+                showCluster(key, cluster);
+            }
+        }
+
+        Iterator<Map.Entry<String, Marker>> iterator = markers.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, Marker> entry = iterator.next();
+            if (!wanted.contains(entry.getKey())) {
+                clusterBounds.remove(entry.getValue());
+                markerItems.remove(entry.getKey());
+                entry.getValue().remove();
+                iterator.remove();
+            }
+        }
+    }
+
+    private void showItem(Item item) {
+        Marker marker = markers.get(item.id);
+        Item shown = markerItems.get(item.id);
+        if (marker != null && shown == item) {
+            return;
+        }
+
+        if (marker == null) {
+            marker = map.addMarker(new MarkerOptions()
+                    .position(item.position)
+                    .title(item.title)
+                    .snippet(item.snippet));
+            if (marker == null) return;
+            markers.put(item.id, marker);
+        } else {
+            marker.setPosition(item.position);
+            marker.setTitle(item.title);
+            marker.setSnippet(item.snippet);
+        }
+        markerItems.put(item.id, item);
+    }
+
+    private void showCluster(String key, Cluster cluster) {
+        if (markers.containsKey(key)) {
+            return;
+        }
+
+        LatLngBounds.Builder bounds = LatLngBounds.builder();
+        for (Item item : cluster.items) {
+            bounds.include(item.position);
+        }
+
+        Marker marker = map.addMarker(new MarkerOptions()
+                .position(cluster.center())
+                .title(cluster.items.size() + " reports")
+                .snippet("Tap to zoom in")
+                .icon(BitmapDescriptorFactory.defaultMarker(BitmapDescriptorFactory.HUE_ORANGE)));
+        if (marker == null) return;
+        markers.put(key, marker);
+        clusterBounds.put(marker, bounds.build());
+    }
+}
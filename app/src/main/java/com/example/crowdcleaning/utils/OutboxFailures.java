@@ -0,0 +1,75 @@
+package com.example.crowdcleaning.utils;
+
+import android.Manifest;
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.os.Build;
+
+import androidx.core.app.NotificationCompat;
+import androidx.core.app.NotificationManagerCompat;
+import androidx.core.content.ContextCompat;
+
+import com.google.firebase.firestore.FirebaseFirestoreException;
+import com.google.firebase.storage.StorageException;
+
+import java.io.FileNotFoundException;
+
+/**
+ * Tells the outbox workers which failures a retry can fix, and reports the entries
+ * they give up on. A permanent failure parks its entry so it no longer holds up the
+ * rest of the queue.
+ */
+public final class OutboxFailures {
+
+    private static final String CHANNEL_ID = "outbox_failures";
+
+    private OutboxFailures() {
+    }
+
+    /**
+     * True for failures that will repeat on every attempt: a photo file that is gone,
+     * or Firestore / Storage refusing the write itself.
+     */
+    public static boolean isPermanent(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof FileNotFoundException) {
+                return true;
+            }
+            if (cause instanceof FirebaseFirestoreException) {
+                FirebaseFirestoreException.Code code = ((FirebaseFirestoreException) cause).getCode();
+                return code == FirebaseFirestoreException.Code.PERMISSION_DENIED
+                        || code == FirebaseFirestoreException.Code.INVALID_ARGUMENT;
+            }
+            if (cause instanceof StorageException
+                    && ((StorageException) cause).getErrorCode() == StorageException.ERROR_NOT_AUTHORIZED) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Shows a notification for a parked entry; the id keeps one per entry.
+     */
+    public static void notifyParked(Context context, String key, String title, String message) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU
+                && ContextCompat.checkSelfPermission(context, Manifest.permission.POST_NOTIFICATIONS)
+                != PackageManager.PERMISSION_GRANTED) {
+            return;
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            context.getSystemService(NotificationManager.class).createNotificationChannel(new NotificationChannel(
+                    CHANNEL_ID, "Failed uploads", NotificationManager.IMPORTANCE_DEFAULT));
+        }
+
+        NotificationCompat.Builder notification = new NotificationCompat.Builder(context, CHANNEL_ID)
+                .setSmallIcon(android.R.drawable.stat_notify_error)
+                .setContentTitle(title)
+                .setContentText(message)
+                .setStyle(new NotificationCompat.BigTextStyle().bigText(message))
+                .setAutoCancel(true);
+        NotificationManagerCompat.from(context).notify(key.hashCode(), notification.build());
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.crowdcleaning.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Point quadtree over latitude/longitude for rectangular range queries.
+ * Not thread safe; build it and query it from the same thread.
+ */
+public class QuadTree<T> {
+
+    private static final int NODE_CAPACITY = 16;
+    // Stops splitting when many items share (almost) the same coordinates
+    private static final int MAX_DEPTH = 20;
+
+    private static class Point<T> {
+        final double latitude;
+        final double longitude;
+        final T item;
+
+        Point(double latitude, double longitude, T item) {
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.item = item;
+        }
+    }
+
+    private final double minLat, minLon, maxLat, maxLon;
+    private final int depth;
+    private List<Point<T>> points = new ArrayList<>();
+    private QuadTree<T>[] children;
+    private int size;
+
+    public QuadTree() {
+        this(-90, -180, 90, 180, 0);
+    }
+
+    private QuadTree(double minLat, double minLon, double maxLat, double maxLon, int depth) {
+        this.minLat = minLat;
+        this.minLon = minLon;
+        this.maxLat = maxLat;
+        this.maxLon = maxLon;
+        this.depth = depth;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void insert(double latitude, double longitude, T item) {
+        insert(new Point<>(latitude, longitude, item));
+    }
+
+    private void insert(Point<T> point) {
+        size++;
+        if (children != null) {
+            childFor(point.latitude, point.longitude).insert(point);
+            return;
+        }
+
+        points.add(point);
+        if (points.size() > NODE_CAPACITY && depth < MAX_DEPTH) {
+            split();
+        }
+    }
+
+    /**
+     * Adds every item inside the given bounds (inclusive) to out.
+     */
+    public void query(double south, double west, double north, double east, List<T> out) {
+        if (south > maxLat || north < minLat || west > maxLon || east < minLon) {
+            return;
+        }
+
+        if (children != null) {
+            for (QuadTree<T> child : children) {
+                child.query(south, west, north, east, out);
+            }
+            return;
+        }
+
+        for (Point<T> point : points) {
+            if (point.latitude >= south && point.latitude <= north
+                    && point.longitude >= west && point.longitude <= east) {
+                out.add(point.item);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void split() {
+        double midLat = (minLat + maxLat) / 2;
+        double midLon = (minLon + maxLon) / 2;
+        children = (QuadTree<T>[]) new QuadTree<?>[4];
+        children[0] = new QuadTree<>(minLat, minLon, midLat, midLon, depth + 1);
+        children[1] = new QuadTree<>(minLat, midLon, midLat, maxLon, depth + 1);
+        children[2] = new QuadTree<>(midLat, minLon, maxLat, midLon, depth + 1);
+        children[3] = new QuadTree<>(midLat, midLon, maxLat, maxLon, depth + 1);
+
+        for (Point<T> point : points) {
+            childFor(point.latitude, point.longitude).insert(point);
+        }
+        points = null;
+    }
+
+    private QuadTree<T> childFor(double latitude, double longitude) {
+        double midLat = (minLat + maxLat) / 2;
+        double midLon = (minLon + maxLon) / 2;
+        int index = (latitude >= midLat ? 2 : 0) + (longitude >= midLon ? 1 : 0);
+        return children[index];
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.crowdcleaning.utils;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+
+import com.example.crowdcleaning.models.ReportEntity;
+
+import java.util.List;
+
+/**
+ * Queries on the local reports table, one per list screen, newest first.
+ */
+@Dao
+public interface ReportDao {
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void upsert(List<ReportEntity> reports);
+
+    @Query("SELECT * FROM reports WHERE userId = :userId ORDER BY timestamp DESC LIMIT :limit")
+    List<ReportEntity> loadByUser(String userId, int limit);
+
+    @Query("SELECT * FROM reports WHERE volunteerAssigned = :volunteerId ORDER BY timestamp DESC LIMIT :limit")
+    List<ReportEntity> loadByVolunteer(String volunteerId, int limit);
+
+    @Query("SELECT * FROM reports WHERE status IN (:statuses) ORDER BY timestamp DESC LIMIT :limit")
+    List<ReportEntity> loadByStatus(List<String> statuses, int limit);
+
+    @Query("SELECT * FROM reports WHERE id IN (:ids)")
+    List<ReportEntity> loadByIds(List<String> ids);
+
+    @Query("DELETE FROM reports WHERE id IN (:ids)")
+    void deleteByIds(List<String> ids);
+
+    // Keeps the newest rows so the table cannot grow without bound
+    @Query("DELETE FROM reports WHERE id NOT IN (SELECT id FROM reports ORDER BY timestamp DESC LIMIT :keep)")
+    void trimTo(int keep);
+
+    @Query("DELETE FROM reports")
+    void clear();
+}
@@ -0,0 +1,37 @@
+package com.example.crowdcleaning.utils;
+
+import android.content.Context;
+
+import androidx.room.Database;
+import androidx.room.Room;
+import androidx.room.RoomDatabase;
+
+import com.example.crowdcleaning.models.ReportEntity;
+
+/**
+ * On-disk mirror of the reports this device has shown, so screens can render before
+ * Firestore answers. It is only a cache: it may be dropped on any schema change.
+ */
+@Database(entities = {ReportEntity.class}, version = 3, exportSchema = false)
+public abstract class ReportDatabase extends RoomDatabase {
+
+    private static final String DATABASE_NAME = "reports.db";
+
+    private static volatile ReportDatabase instance;
+
+    public abstract ReportDao reportDao();
+
+    public static ReportDatabase getInstance(Context context) {
+        if (instance == null) {
+            synchronized (ReportDatabase.class) {
+                if (instance == null) {
+                    instance = Room.databaseBuilder(context.getApplicationContext(),
+                                    ReportDatabase.class, DATABASE_NAME)
+                            .fallbackToDestructiveMigration()
+                            .build();
+                }
+            }
+        }
+        return instance;
+    }
+}
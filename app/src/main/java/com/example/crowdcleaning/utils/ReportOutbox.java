@@ -0,0 +1,314 @@
+package com.example.crowdcleaning.utils;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.work.BackoffPolicy;
+import androidx.work.Constraints;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.NetworkType;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkManager;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Durable on-device queue of report submissions.
+ *
+ * A submission (report fields plus its local photos) is written to filesDir and
+ * returns immediately; ReportOutboxWorker drains the queue whenever the device is
+ * online. Every entry carries an idempotency key that becomes the Firestore
+ * document ID, so a retried submission can never create a second report.
+ */
+public class ReportOutbox {
+
+    private static final String TAG = "ReportOutbox";
+    private static final String OUTBOX_DIR = "report_outbox";
+    private static final String WORK_NAME = "report_outbox_drain";
+    private static final long RETRY_BACKOFF_SECONDS = 30;
+
+    /**
+     * One queued submission as stored on disk.
+     */
+    public static class Entry {
+        public final String key;
+        public final long createdAt;
+        public final Map<String, Object> report;
+        // Report field that receives the photo URLs: "imageUrls" (list) or "imageUrl" (single)
+        public final String imageField;
+        public final List<File> images;
+        // Filled in once the photos are uploaded, so a retry does not upload them again
+        public List<String> imageUrls;
+        // URLs of the ImageRenditions of each photo, index-aligned with imageUrls
+        public List<String> thumbnailUrls;
+        public List<String> mediumUrls;
+
+        Entry(String key, long createdAt, Map<String, Object> report, String imageField,
+              List<File> images, List<String> imageUrls, List<String> thumbnailUrls, List<String> mediumUrls) {
+            this.key = key;
+            this.createdAt = createdAt;
+            this.report = report;
+            this.imageField = imageField;
+            this.images = images;
+            this.imageUrls = imageUrls;
+            this.thumbnailUrls = thumbnailUrls;
+            this.mediumUrls = mediumUrls;
+        }
+    }
+
+    private ReportOutbox() {
+    }
+
+    /**
+     * Queues a report and schedules a drain. The image files are moved into the
+     * outbox and must not be used by the caller afterwards. Returns the idempotency
+     * key, which is also the ID the report document will have.
+     */
+    public static String enqueue(Context context, Map<String, Object> report, String imageField,
+                                 List<File> imageFiles) throws IOException {
+        String key = UUID.randomUUID().toString();
+        File entryDir = new File(getOutboxDir(context), key);
+        if (!entryDir.mkdirs()) {
+            throw new IOException("Could not create " + entryDir);
+        }
+
+        List<File> images = new ArrayList<>(imageFiles.size());
+        for (int i = 0; i < imageFiles.size(); i++) {
+            File target = new File(entryDir, i + ".jpg");
+            moveFile(imageFiles.get(i), target);
+            images.add(target);
+        }
+
+        write(context, new Entry(key, System.currentTimeMillis(), report, imageField, images, null, null, null));
+        Log.d(TAG, "Queued report " + key + " with " + images.size() + " image(s)");
+        scheduleDrain(context);
+        return key;
+    }
+
+    public static void scheduleDrain(Context context) {
+        Constraints constraints = new Constraints.Builder()
+                .setRequiredNetworkType(NetworkType.CONNECTED)
+                .build();
+        OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(ReportOutboxWorker.class)
+                .setConstraints(constraints)
+                .setBackoffCriteria(BackoffPolicy.EXPONENTIAL, RETRY_BACKOFF_SECONDS, TimeUnit.SECONDS)
+                .build();
+
+        // A single drain at a time; an entry queued while one runs is picked up by the appended one
+        WorkManager.getInstance(context)
+                .enqueueUniqueWork(WORK_NAME, ExistingWorkPolicy.APPEND_OR_REPLACE, request);
+    }
+
+    /**
+     * Pending entries, oldest first.
+     */
+    public static List<Entry> getPending(Context context) {
+        File[] files = getOutboxDir(context).listFiles((dir, name) -> name.endsWith(".json"));
+        List<Entry> entries = new ArrayList<>();
+        if (files == null) {
+            return entries;
+        }
+
+        for (File file : files) {
+            try {
+                entries.add(read(file));
+            } catch (IOException | JSONException e) {
+                Log.e(TAG, "Dropping unreadable outbox entry " + file.getName() + ": " + e.getMessage());
+                file.delete();
+            }
+        }
+        entries.sort((a, b) -> Long.compare(a.createdAt, b.createdAt));
+        return entries;
+    }
+
+    public static void markImagesUploaded(Context context, Entry entry, List<String> imageUrls,
+                                          List<String> thumbnailUrls, List<String> mediumUrls) throws IOException {
+        entry.imageUrls = imageUrls;
+        entry.thumbnailUrls = thumbnailUrls;
+        entry.mediumUrls = mediumUrls;
+        write(context, entry);
+    }
+
+    /**
+     * Takes an entry that can never be submitted out of the queue. Its file is kept as
+     * <key>.failed, with the photos, for inspection.
+     */
+    public static void park(Context context, Entry entry) {
+        File file = new File(getOutboxDir(context), entry.key + ".json");
+        if (!file.renameTo(new File(getOutboxDir(context), entry.key + ".failed"))) {
+            Log.e(TAG, "Could not park " + file.getName());
+            file.delete();
+        }
+    }
+
+    public static void remove(Context context, Entry entry) {
+        File entryDir = new File(getOutboxDir(context), entry.key);
+        File[] files = entryDir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        entryDir.delete();
+        new File(getOutboxDir(context), entry.key + ".json").delete();
+    }
+
+    private static File getOutboxDir(Context context) {
+        File dir = new File(context.getFilesDir(), OUTBOX_DIR);
+        if (!dir.exists() && !dir.mkdirs()) {
+            Log.e(TAG, "Could not create " + dir);
+        }
+        return dir;
+    }
+
+    private static void write(Context context, Entry entry) throws IOException {
+        try {
+            JSONObject json = toJson(entry);
+
+            // Write to a temp file first so a crash never leaves a half-written entry
+            File target = new File(getOutboxDir(context), entry.key + ".json");
+            File temp = new File(getOutboxDir(context), entry.key + ".tmp");
+            try (OutputStream out = new FileOutputStream(temp)) {
+                out.write(json.toString().getBytes(StandardCharsets.UTF_8));
+            }
+            if (!temp.renameTo(target)) {
+                throw new IOException("Could not write " + target);
+            }
+        } catch (JSONException e) {
+            throw new IOException("Could not serialize outbox entry", e);
+        }
+    }
+
+    static JSONObject toJson(Entry entry) throws JSONException {
+        JSONObject fields = new JSONObject();
+        JSONObject dateFields = new JSONObject();
+        for (Map.Entry<String, Object> field : entry.report.entrySet()) {
+            Object value = field.getValue();
+            if (value instanceof Date) {
+                dateFields.put(field.getKey(), ((Date) value).getTime());
+            } else if (value instanceof Collection) {
+                // JSONObject would store a list as its toString()
+                fields.put(field.getKey(), new JSONArray((Collection<?>) value));
+            } else {
+                fields.put(field.getKey(), value != null ? value : JSONObject.NULL);
+            }
+        }
+
+        JSONArray images = new JSONArray();
+        for (File image : entry.images) {
+            images.put(image.getName());
+        }
+
+        JSONObject json = new JSONObject();
+        json.put("key", entry.key);
+        json.put("createdAt", entry.createdAt);
+        json.put("fields", fields);
+        json.put("dateFields", dateFields);
+        json.put("imageField", entry.imageField);
+        json.put("images", images);
+        if (entry.imageUrls != null) {
+            json.put("imageUrls", new JSONArray(entry.imageUrls));
+        }
+        if (entry.thumbnailUrls != null) {
+            json.put("thumbnailUrls", new JSONArray(entry.thumbnailUrls));
+        }
+        if (entry.mediumUrls != null) {
+            json.put("mediumUrls", new JSONArray(entry.mediumUrls));
+        }
+        return json;
+    }
+
+    private static Entry read(File file) throws IOException, JSONException {
+        byte[] bytes = new byte[(int) file.length()];
+        try (InputStream in = new FileInputStream(file)) {
+            int offset = 0;
+            while (offset < bytes.length) {
+                int read = in.read(bytes, offset, bytes.length - offset);
+                if (read < 0) break;
+                offset += read;
+            }
+        }
+        return fromJson(new JSONObject(new String(bytes, StandardCharsets.UTF_8)), file.getParentFile());
+    }
+
+    static Entry fromJson(JSONObject json, File outboxDir) throws JSONException {
+        Map<String, Object> report = new HashMap<>();
+        JSONObject fields = json.getJSONObject("fields");
+        for (Iterator<String> keys = fields.keys(); keys.hasNext(); ) {
+            String name = keys.next();
+            Object value = fields.get(name);
+            if (value instanceof JSONArray) {
+                JSONArray array = (JSONArray) value;
+                List<Object> values = new ArrayList<>(array.length());
+                for (int i = 0; i < array.length(); i++) {
+                    values.add(array.get(i));
+                }
+                report.put(name, values);
+            } else {
+                report.put(name, value == JSONObject.NULL ? null : value);
+            }
+        }
+        JSONObject dateFields = json.getJSONObject("dateFields");
+        for (Iterator<String> keys = dateFields.keys(); keys.hasNext(); ) {
+            String name = keys.next();
+            report.put(name, new Date(dateFields.getLong(name)));
+        }
+
+        String key = json.getString("key");
+        File entryDir = new File(outboxDir, key);
+        JSONArray imageNames = json.getJSONArray("images");
+        List<File> images = new ArrayList<>(imageNames.length());
+        for (int i = 0; i < imageNames.length(); i++) {
+            images.add(new File(entryDir, imageNames.getString(i)));
+        }
+
+        return new Entry(key, json.getLong("createdAt"), report, json.getString("imageField"), images,
+                readUrls(json, "imageUrls"), readUrls(json, "thumbnailUrls"), readUrls(json, "mediumUrls"));
+    }
+
+    private static List<String> readUrls(JSONObject json, String name) throws JSONException {
+        JSONArray urls = json.optJSONArray(name);
+        if (urls == null) {
+            return null;
+        }
+        String[] values = new String[urls.length()];
+        for (int i = 0; i < urls.length(); i++) {
+            values[i] = urls.getString(i);
+        }
+        return Arrays.asList(values);
+    }
+
+    static void moveFile(File source, File target) throws IOException {
+        if (source.renameTo(target)) {
+            return;
+        }
+        try (InputStream in = new FileInputStream(source); OutputStream out = new FileOutputStream(target)) {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+        }
+        source.delete();
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.crowdcleaning.utils;
+
+import android.content.Context;
+import android.net.Uri;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import com.example.crowdcleaning.models.ReportMapper;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.FirebaseFirestore;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Drains ReportOutbox: uploads the photos of each queued report together with
+ * their ImageRenditions, then creates the report document under its idempotency
+ * key. Entries are processed oldest first. An entry that can never succeed (see
+ * OutboxFailures) is parked with a notification; any other failure is retried by
+ * WorkManager with backoff once the rest of the queue has been tried.
+ */
+public class ReportOutboxWorker extends Worker {
+
+    private static final String TAG = "ReportOutboxWorker";
+    private static final long UPLOAD_TIMEOUT_MINUTES = 10;
+
+    public ReportOutboxWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        Context context = getApplicationContext();
+        List<ReportOutbox.Entry> entries = ReportOutbox.getPending(context);
+        Log.d(TAG, "Draining " + entries.size() + " queued report(s)");
+
+        boolean retry = false;
+        for (ReportOutbox.Entry entry : entries) {
+            if (isStopped()) {
+                return Result.retry();
+            }
+            try {
+                submit(context, entry);
+                ReportOutbox.remove(context, entry);
+            } catch (Exception e) {
+                if (OutboxFailures.isPermanent(e)) {
+                    Log.e(TAG, "Parking queued report " + entry.key + ", it cannot be submitted: " + e.getMessage());
+                    ReportOutbox.park(context, entry);
+                    Object title = entry.report.get("title");
+                    OutboxFailures.notifyParked(context, entry.key, "Report could not be submitted",
+                            (title != null ? title + ": " : "") + e.getMessage());
+                } else {
+                    Log.e(TAG, "Failed to submit queued report " + entry.key + ": " + e.getMessage());
+                    retry = true;
+                }
+            }
+        }
+        return retry ? Result.retry() : Result.success();
+    }
+
+    private void submit(Context context, ReportOutbox.Entry entry) throws Exception {
+        if (entry.imageUrls == null) {
+            for (File image : entry.images) {
+                if (!image.exists()) {
+                    throw new FileNotFoundException("Photo " + image.getName() + " is missing");
+                }
+            }
+            uploadImages(context, entry);
+        }
+
+        if ("imageUrls".equals(entry.imageField)) {
+            entry.report.put("imageUrls", entry.imageUrls);
+        } else {
+            entry.report.put(entry.imageField, entry.imageUrls.isEmpty() ? null : entry.imageUrls.get(0));
+        }
+        // Absent for entries whose photos were uploaded before renditions existed
+        if (entry.thumbnailUrls != null && entry.mediumUrls != null) {
+            entry.report.put(ImageRenditions.FIELD_THUMBNAILS, entry.thumbnailUrls);
+            entry.report.put(ImageRenditions.FIELD_MEDIUMS, entry.mediumUrls);
+        }
+
+        // Create-if-absent, so a drain retried after a successful write is a no-op
+        FirebaseFirestore db = FirebaseFirestore.getInstance();
+        DocumentReference reportRef = db.collection("reports").document(entry.key);
+        Tasks.await(db.runTransaction(transaction -> {
+            if (!transaction.get(reportRef).exists()) {
+                transaction.set(reportRef, ReportSync.stamp(new HashMap<>(entry.report)));
+                AnalyticsRollups.recordCreated(transaction,
+                        new Date(ReportMapper.toMillis(entry.report.get("timestamp"), entry.createdAt)));
+            }
+            return null;
+        }));
+        Log.d(TAG, "Submitted queued report " + entry.key);
+    }
+
+    /**
+     * Uploads the photos together with their thumbnail and medium renditions in one
+     * batch and records the three URL lists on the entry.
+     */
+    private void uploadImages(Context context, ReportOutbox.Entry entry) throws Exception {
+        List<File> images = entry.images;
+        List<Uri> uris = new ArrayList<>(images.size() * 3);
+        for (File image : images) {
+            uris.add(Uri.fromFile(image));
+        }
+        // Position in uris of each photo's renditions; the photo's own when it is small enough
+        int[] thumbnailAt = addRenditions(images, ImageRenditions.THUMBNAIL, uris);
+        int[] mediumAt = addRenditions(images, ImageRenditions.MEDIUM, uris);
+
+        List<String> urls = UploadManager.uploadBlocking(context, "report_images", uris, UPLOAD_TIMEOUT_MINUTES);
+        List<String> imageUrls = new ArrayList<>(urls.subList(0, images.size()));
+        List<String> thumbnailUrls = new ArrayList<>(images.size());
+        List<String> mediumUrls = new ArrayList<>(images.size());
+        for (int i = 0; i < images.size(); i++) {
+            thumbnailUrls.add(urls.get(thumbnailAt[i]));
+            mediumUrls.add(urls.get(mediumAt[i]));
+        }
+        ReportOutbox.markImagesUploaded(context, entry, imageUrls, thumbnailUrls, mediumUrls);
+        Log.d(TAG, "Uploaded " + images.size() + " photo(s) with " + (uris.size() - images.size()) + " rendition(s)");
+    }
+
+    private static int[] addRenditions(List<File> images, String rendition, List<Uri> uris) {
+        int[] positions = new int[images.size()];
+        for (int i = 0; i < images.size(); i++) {
+            positions[i] = i;
+            File file = ImageRenditions.fileFor(images.get(i), rendition);
+            try {
+                // Kept from an earlier attempt, so its resumable upload session still applies
+                if (file.exists() || ImageUtils.writeScaledCopy(images.get(i), file,
+                        ImageRenditions.sizeOf(rendition), ImageRenditions.JPEG_QUALITY)) {
+                    positions[i] = uris.size();
+                    uris.add(Uri.fromFile(file));
+                }
+            } catch (IOException e) {
+                // The original stands in; a photo must never hold up its report
+                Log.e(TAG, "No " + rendition + " rendition of " + images.get(i).getName() + ": " + e.getMessage());
+            }
+        }
+        return positions;
+    }
+}
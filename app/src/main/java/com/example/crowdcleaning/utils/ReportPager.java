@@ -0,0 +1,209 @@
+package com.example.crowdcleaning.utils;
+
+import com.example.crowdcleaning.models.ReportMapper;
+import com.example.crowdcleaning.models.ReportModel;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Page-at-a-time loader for an ordered reports query.
+ *
+ * Pages are fetched with startAfter / endBefore document cursors and kept in a
+ * sliding window of at most MAX_PAGES_IN_MEMORY pages. When the window is full the
+ * page furthest from the scroll direction is dropped, and it is fetched again if the
+ * user scrolls back to it. The items list is what the screen submits to its adapter
+ * and is only touched on the main thread.
+ */
+public class ReportPager {
+
+    public static final int PAGE_SIZE = 25;
+    private static final int MAX_PAGES_IN_MEMORY = 6;
+    // Start loading the next page when this many rows are left below the viewport
+    private static final int PREFETCH_DISTANCE = 8;
+
+    public interface Listener {
+        void onItemsInserted(int position, int count);
+        void onItemsRemoved(int position, int count);
+        void onLoadingChanged(boolean loadingNext);
+        void onFirstPageLoaded(boolean empty);
+        void onError(Exception e);
+    }
+
+    private static class Page {
+        final int size;
+        final DocumentSnapshot first;
+        final DocumentSnapshot last;
+
+        Page(int size, DocumentSnapshot first, DocumentSnapshot last) {
+            this.size = size;
+            this.first = first;
+            this.last = last;
+        }
+    }
+
+    private final Query query;
+    private final List<ReportModel> items;
+    private final Listener listener;
+    private final ReportRepository reportRepository;
+
+    private final ArrayDeque<Page> pages = new ArrayDeque<>();
+    private boolean loading;
+    private boolean reachedEnd;
+    private boolean droppedAbove;
+    // Bumped on reset so results of requests started before it are ignored
+    private int generation;
+
+    public ReportPager(Query query, List<ReportModel> items, Listener listener) {
+        this.query = query;
+        this.items = items;
+        this.listener = listener;
+        this.reportRepository = ReportRepository.getInstance();
+    }
+
+    public boolean isLoading() {
+        return loading;
+    }
+
+    public boolean hasReachedEnd() {
+        return reachedEnd;
+    }
+
+    public void reset() {
+        generation++;
+        loading = false;
+        reachedEnd = false;
+        droppedAbove = false;
+        pages.clear();
+
+        int removed = items.size();
+        if (removed > 0) {
+            items.clear();
+            listener.onItemsRemoved(0, removed);
+        }
+        listener.onLoadingChanged(false);
+    }
+
+    /**
+     * Call from the RecyclerView scroll listener with the visible adapter range.
+     */
+    public void onScrolled(int firstVisible, int lastVisible) {
+        if (lastVisible >= items.size() - PREFETCH_DISTANCE) {
+            loadNextPage();
+        } else if (firstVisible <= PREFETCH_DISTANCE) {
+            loadPreviousPage();
+        }
+    }
+
+    public void loadNextPage() {
+        if (loading || reachedEnd) return;
+
+        Query pageQuery = pages.isEmpty()
+                ? query.limit(PAGE_SIZE)
+                : query.startAfter(pages.peekLast().last).limit(PAGE_SIZE);
+
+        loading = true;
+        listener.onLoadingChanged(true);
+        final int requestGeneration = generation;
+
+        pageQuery.get()
+                .addOnSuccessListener(snapshot -> {
+                    if (requestGeneration != generation) return;
+                    loading = false;
+                    listener.onLoadingChanged(false);
+                    appendPage(snapshot);
+                })
+                .addOnFailureListener(e -> {
+                    if (requestGeneration != generation) return;
+                    loading = false;
+                    listener.onLoadingChanged(false);
+                    listener.onError(e);
+                });
+    }
+
+    private void loadPreviousPage() {
+        if (loading || !droppedAbove || pages.isEmpty()) return;
+
+        loading = true;
+        final int requestGeneration = generation;
+
+        query.endBefore(pages.peekFirst().first)
+                .limitToLast(PAGE_SIZE)
+                .get()
+                .addOnSuccessListener(snapshot -> {
+                    if (requestGeneration != generation) return;
+                    loading = false;
+                    prependPage(snapshot);
+                })
+                .addOnFailureListener(e -> {
+                    if (requestGeneration != generation) return;
+                    loading = false;
+                    listener.onError(e);
+                });
+    }
+
+    private void appendPage(QuerySnapshot snapshot) {
+        boolean firstPage = pages.isEmpty() && !droppedAbove;
+        List<DocumentSnapshot> documents = snapshot.getDocuments();
+        if (documents.size() < PAGE_SIZE) {
+            reachedEnd = true;
+        }
+
+        if (!documents.isEmpty()) {
+            List<ReportModel> reports = toReports(documents);
+            int position = items.size();
+            items.addAll(reports);
+            pages.addLast(new Page(reports.size(), documents.get(0), documents.get(documents.size() - 1)));
+            listener.onItemsInserted(position, reports.size());
+
+            if (pages.size() > MAX_PAGES_IN_MEMORY) {
+                Page dropped = pages.removeFirst();
+                items.subList(0, dropped.size).clear();
+                droppedAbove = true;
+                listener.onItemsRemoved(0, dropped.size);
+            }
+        }
+
+        if (firstPage) {
+            listener.onFirstPageLoaded(items.isEmpty());
+        }
+    }
+
+    private void prependPage(QuerySnapshot snapshot) {
+        List<DocumentSnapshot> documents = snapshot.getDocuments();
+        if (documents.size() < PAGE_SIZE) {
+            droppedAbove = false;
+        }
+        if (documents.isEmpty()) return;
+
+        List<ReportModel> reports = toReports(documents);
+        items.addAll(0, reports);
+        pages.addFirst(new Page(reports.size(), documents.get(0), documents.get(documents.size() - 1)));
+        listener.onItemsInserted(0, reports.size());
+
+        if (pages.size() > MAX_PAGES_IN_MEMORY) {
+            Page dropped = pages.removeLast();
+            int position = items.size() - dropped.size;
+            items.subList(position, items.size()).clear();
+            reachedEnd = false;
+            listener.onItemsRemoved(position, dropped.size);
+        }
+    }
+
+    private List<ReportModel> toReports(List<DocumentSnapshot> documents) {
+        List<ReportModel> reports = new ArrayList<>(documents.size());
+        for (DocumentSnapshot document : documents) {
+            ReportModel report = ReportMapper.fromSnapshot(document);
+            if (report != null) {
+                reports.add(report);
+                // Keep opened reports one tap away from the detail screen
+                reportRepository.putReport(report);
+            }
+        }
+        return reports;
+    }
+}
@@ -0,0 +1,679 @@
+package com.example.crowdcleaning.utils;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.example.crowdcleaning.models.ReportEntity;
+import com.example.crowdcleaning.models.ReportMapper;
+import com.example.crowdcleaning.models.ReportModel;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.DocumentChange;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldPath;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Process-wide access point for the "reports" collection.
+ *
+ * Keeps one ID-keyed cache of ReportModel shared by every screen, so a report
+ * that was just shown in a list can be opened without another round trip and
+ * list screens can render their last result while a refresh is in flight.
+ *
+ * Every report that passes through the repository is also added to a search index,
+ * which unlike the cache is not bounded, so search covers everything seen this session.
+ *
+ * Once a screen attaches the on-disk store (getInstance(Context)), cached reports are
+ * also written to a Room table. A list whose scope is not in memory is then rendered
+ * from disk first, and every list is refreshed through ReportSync with only the
+ * reports changed since its last sync.
+ */
+public class ReportRepository {
+
+    // Upper bound on cached reports; least recently used entries are evicted first
+    private static final int MAX_CACHED_REPORTS = 500;
+    // Upper bound on remembered list results (e.g. "available", "tasks_<uid>")
+    private static final int MAX_CACHED_SCOPES = 16;
+
+    // Rows read from disk for one list
+    private static final int MAX_STORED_RESULTS = 500;
+    // Rows kept on disk overall, newest first
+    private static final int MAX_STORED_REPORTS = 5000;
+
+    private static final String TAG = "ReportRepository";
+
+    private static ReportRepository instance;
+
+    public interface ReportCallback {
+        void onReportLoaded(ReportModel report);
+        void onError(Exception e);
+    }
+
+    public interface ReportListCallback {
+        void onReportsLoaded(List<ReportModel> reports, boolean fromCache);
+        void onError(Exception e);
+    }
+
+    // The local equivalent of a list's Firestore query, run on a background thread
+    public interface StoredQuery {
+        List<ReportEntity> load(ReportDao dao, int limit);
+    }
+
+    private final FirebaseFirestore db;
+
+    // Access-ordered so iteration order is least recently used first
+    private final LinkedHashMap<String, ReportModel> reportCache =
+            new LinkedHashMap<String, ReportModel>(64, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, ReportModel> eldest) {
+                    return size() > MAX_CACHED_REPORTS;
+                }
+            };
+
+    // Ordered report IDs of the last result for each list scope
+    private final LinkedHashMap<String, List<String>> scopeCache =
+            new LinkedHashMap<String, List<String>>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, List<String>> eldest) {
+                    return size() > MAX_CACHED_SCOPES;
+                }
+            };
+
+    private final ReportSearchIndex searchIndex = new ReportSearchIndex();
+
+    private final ExecutorService diskExecutor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private ReportDao reportDao;
+    private ReportSync reportSync;
+
+    private ReportRepository() {
+        db = FirebaseFirestore.getInstance();
+    }
+
+    public static synchronized ReportRepository getInstance() {
+        if (instance == null) {
+            instance = new ReportRepository();
+        }
+        return instance;
+    }
+
+    /**
+     * Same instance, with the on-disk store attached. Screens that list reports use
+     * this one; the first call opens the database.
+     */
+    public static synchronized ReportRepository getInstance(Context context) {
+        ReportRepository repository = getInstance();
+        if (repository.reportDao == null) {
+            Context appContext = context.getApplicationContext();
+            repository.reportDao = ReportDatabase.getInstance(appContext).reportDao();
+            repository.reportSync = new ReportSync(appContext);
+        }
+        return repository;
+    }
+
+    public synchronized ReportModel getCachedReport(String reportId) {
+        return reportId != null ? reportCache.get(reportId) : null;
+    }
+
+    /**
+     * Returns the last known result for a list scope, or null if it was never loaded
+     * or any of its reports has since been evicted.
+     */
+    public synchronized List<ReportModel> getCachedReports(String scope) {
+        List<String> ids = scopeCache.get(scope);
+        if (ids == null) {
+            return null;
+        }
+
+        List<ReportModel> reports = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            ReportModel report = reportCache.get(id);
+            if (report == null) {
+                return null;
+            }
+            reports.add(report);
+        }
+        return reports;
+    }
+
+    public synchronized void putReport(ReportModel report) {
+        if (report != null && report.getId() != null) {
+            reportCache.put(report.getId(), report);
+            searchIndex.put(report);
+            persist(Collections.singletonList(report));
+        }
+    }
+
+    public synchronized void cacheReports(String scope, List<ReportModel> reports) {
+        List<String> ids = new ArrayList<>(reports.size());
+        for (ReportModel report : reports) {
+            if (report.getId() != null) {
+                reportCache.put(report.getId(), report);
+                searchIndex.put(report);
+                ids.add(report.getId());
+            }
+        }
+        scopeCache.put(scope, ids);
+        persist(reports);
+    }
+
+    /**
+     * Converts a query snapshot, stores every report and remembers the ordered
+     * result for the given scope. Used for one-shot query results.
+     */
+    public List<ReportModel> cacheSnapshot(String scope, QuerySnapshot snapshot) {
+        List<ReportModel> reports = new ArrayList<>(snapshot.size());
+        for (DocumentSnapshot document : snapshot.getDocuments()) {
+            ReportModel report = ReportMapper.fromSnapshot(document);
+            if (report != null) {
+                reports.add(report);
+            }
+        }
+        cacheReports(scope, reports);
+        return reports;
+    }
+
+    /**
+     * Applies only the document changes of a listener snapshot to the listener's
+     * backing list, which must start empty when the listener is registered. Only
+     * added and modified documents are converted and re-cached.
+     */
+    public List<ReportModel> applyDocumentChanges(String scope, List<ReportModel> reports, QuerySnapshot snapshot) {
+        synchronized (this) {
+            List<ReportModel> changed = new ArrayList<>();
+            for (DocumentChange change : snapshot.getDocumentChanges()) {
+                switch (change.getType()) {
+                    case ADDED: {
+                        ReportModel report = ReportMapper.fromSnapshot(change.getDocument());
+                        reports.add(change.getNewIndex(), report);
+                        reportCache.put(report.getId(), report);
+                        searchIndex.put(report);
+                        changed.add(report);
+                        break;
+                    }
+                    case MODIFIED: {
+                        ReportModel report = ReportMapper.fromSnapshot(change.getDocument());
+                        if (change.getOldIndex() == change.getNewIndex()) {
+                            reports.set(change.getNewIndex(), report);
+                        } else {
+                            reports.remove(change.getOldIndex());
+                            reports.add(change.getNewIndex(), report);
+                        }
+                        reportCache.put(report.getId(), report);
+                        searchIndex.put(report);
+                        changed.add(report);
+                        break;
+                    }
+                    case REMOVED:
+                        reports.remove(change.getOldIndex());
+                        break;
+                }
+            }
+
+            List<String> ids = new ArrayList<>(reports.size());
+            for (ReportModel report : reports) {
+                ids.add(report.getId());
+            }
+            scopeCache.put(scope, ids);
+            persist(changed);
+        }
+        return reports;
+    }
+
+    /**
+     * Drops a report after it was written so the next read goes to Firestore.
+     * List scopes keep their IDs and simply miss until refreshed.
+     */
+    public synchronized void invalidate(String reportId) {
+        if (reportId != null) {
+            reportCache.remove(reportId);
+        }
+    }
+
+    /**
+     * Makes the next loadReports of scope fetch it in full, so reports deleted or moved
+     * out of it since the last full fetch disappear. For explicit user refreshes.
+     */
+    public void requestFullSync(String scope) {
+        if (reportSync != null) {
+            reportSync.requestFullSync(scope);
+        }
+    }
+
+    /**
+     * Forgets everything, on disk too, e.g. when the user signs out.
+     */
+    public synchronized void clear() {
+        reportCache.clear();
+        scopeCache.clear();
+        searchIndex.clear();
+        if (reportDao != null) {
+            ReportDao dao = reportDao;
+            diskExecutor.execute(dao::clear);
+            reportSync.clear();
+        }
+    }
+
+    /**
+     * IDs of indexed reports matching every word of the query as a word prefix, most
+     * recently indexed first. Answered from memory, never from Firestore.
+     */
+    public List<String> searchReportIds(String query, int limit) {
+        return searchIndex.search(query, limit);
+    }
+
+    /**
+     * The reports matching the query, as searchReportIds orders them. The index outlives
+     * the bounded cache, so matches evicted from memory are read from disk, and those
+     * not stored either from Firestore; only reports that no longer exist are left
+     * out. Delivered once, synchronously when every match is in memory.
+     */
+    public void searchReports(String query, int limit, ReportListCallback callback) {
+        List<String> ids = searchIndex.search(query, limit);
+        Map<String, ReportModel> found = new HashMap<>();
+        List<String> missing = new ArrayList<>();
+        synchronized (this) {
+            for (String id : ids) {
+                ReportModel report = reportCache.get(id);
+                if (report != null) {
+                    found.put(id, report);
+                } else {
+                    missing.add(id);
+                }
+            }
+        }
+        if (missing.isEmpty()) {
+            callback.onReportsLoaded(inOrder(ids, found), true);
+            return;
+        }
+
+        ReportDao dao = reportDao;
+        diskExecutor.execute(() -> {
+            List<ReportModel> stored = dao != null ? readStored(dao, (d, max) -> d.loadByIds(missing)) : new ArrayList<>();
+            mainHandler.post(() -> {
+                for (ReportModel report : stored) {
+                    found.put(report.getId(), report);
+                }
+                List<String> unresolved = new ArrayList<>();
+                for (String id : missing) {
+                    if (!found.containsKey(id)) {
+                        unresolved.add(id);
+                    }
+                }
+                if (unresolved.isEmpty()) {
+                    callback.onReportsLoaded(inOrder(ids, found), true);
+                    return;
+                }
+                fetchByIds(unresolved)
+                        .addOnSuccessListener(fetched -> {
+                            for (ReportModel report : fetched) {
+                                found.put(report.getId(), report);
+                                putReport(report);
+                            }
+                            // Deleted since they were indexed
+                            synchronized (this) {
+                                for (String id : unresolved) {
+                                    if (!found.containsKey(id)) {
+                                        searchIndex.remove(id);
+                                    }
+                                }
+                            }
+                            callback.onReportsLoaded(inOrder(ids, found), false);
+                        })
+                        .addOnFailureListener(callback::onError);
+            });
+        });
+    }
+
+    // Firestore allows up to 10 values in one whereIn
+    private Task<List<ReportModel>> fetchByIds(List<String> ids) {
+        List<Task<QuerySnapshot>> tasks = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i += 10) {
+            tasks.add(db.collection("reports")
+                    .whereIn(FieldPath.documentId(), ids.subList(i, Math.min(ids.size(), i + 10)))
+                    .get());
+        }
+        return Tasks.whenAllSuccess(tasks).continueWith(task -> {
+            List<ReportModel> reports = new ArrayList<>();
+            for (Object snapshot : task.getResult()) {
+                for (DocumentSnapshot document : ((QuerySnapshot) snapshot).getDocuments()) {
+                    ReportModel report = ReportMapper.fromSnapshot(document);
+                    if (report != null) {
+                        reports.add(report);
+                    }
+                }
+            }
+            return reports;
+        });
+    }
+
+    private static List<ReportModel> inOrder(List<String> ids, Map<String, ReportModel> found) {
+        List<ReportModel> reports = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            ReportModel report = found.get(id);
+            if (report != null) {
+                reports.add(report);
+            }
+        }
+        return reports;
+    }
+
+    /**
+     * Keeps the reports whose IDs match the query, in their original order. An empty
+     * query keeps everything.
+     */
+    public List<ReportModel> filterBySearch(List<ReportModel> reports, String query) {
+        if (query == null || query.trim().isEmpty()) {
+            return reports;
+        }
+
+        Set<String> matches = new HashSet<>(searchIndex.search(query, Integer.MAX_VALUE));
+        List<ReportModel> filtered = new ArrayList<>();
+        for (ReportModel report : reports) {
+            if (matches.contains(report.getId())) {
+                filtered.add(report);
+            }
+        }
+        return filtered;
+    }
+
+    public synchronized int size() {
+        return reportCache.size();
+    }
+
+    /**
+     * Read-through lookup of a single report. Cache hits are delivered synchronously.
+     */
+    public void loadReport(String reportId, ReportCallback callback) {
+        ReportModel cached = getCachedReport(reportId);
+        if (cached != null) {
+            callback.onReportLoaded(cached);
+            return;
+        }
+
+        db.collection("reports").document(reportId)
+                .get()
+                .addOnSuccessListener(documentSnapshot -> {
+                    ReportModel report = documentSnapshot.exists() ? ReportMapper.fromSnapshot(documentSnapshot) : null;
+                    putReport(report);
+                    callback.onReportLoaded(report);
+                })
+                .addOnFailureListener(callback::onError);
+    }
+
+    /**
+     * Loads a window of a list, such as the latest N reports: a query with orderBy or
+     * limit. Delivers the cached result for the scope first, then re-fetches the whole
+     * window. It is never delta-synced, because an updatedAt range conflicts with the
+     * orderBy and merging changes would grow the window past its limit. Reports that
+     * left the window are not removed from disk either, since they still exist.
+     */
+    public void loadReportWindow(String scope, Query query, ReportListCallback callback) {
+        List<ReportModel> cached = getCachedReports(scope);
+        if (cached != null) {
+            callback.onReportsLoaded(cached, true);
+        }
+
+        query.get()
+                .addOnSuccessListener(snapshot -> {
+                    List<ReportModel> reports = toModels(snapshot.getDocuments(), null);
+                    callback.onReportsLoaded(cacheNewestFirst(scope, reports, reports), false);
+                })
+                .addOnFailureListener(callback::onError);
+    }
+
+    /**
+     * Delivers the last known result for the scope first with fromCache = true: from
+     * memory, or else from disk via storedQuery when the store is attached. Then
+     * fetches from Firestore and delivers the fresh result with fromCache = false.
+     *
+     * The query must hold the scope's filters only, without orderBy or limit (use
+     * loadReportWindow for those); results are sorted newest first here. With a known
+     * result, only the reports changed since the scope's last sync are fetched and
+     * merged into it.
+     */
+    public void loadReports(String scope, Query query, StoredQuery storedQuery, ReportListCallback callback) {
+        List<ReportModel> cached = getCachedReports(scope);
+        if (cached != null) {
+            callback.onReportsLoaded(cached, true);
+            fetchReports(scope, query, cached, callback);
+            return;
+        }
+
+        if (storedQuery == null || reportDao == null) {
+            fetchReports(scope, query, null, callback);
+            return;
+        }
+
+        ReportDao dao = reportDao;
+        diskExecutor.execute(() -> {
+            List<ReportModel> stored = readStored(dao, storedQuery);
+            mainHandler.post(() -> {
+                if (!stored.isEmpty()) {
+                    callback.onReportsLoaded(stored, true);
+                }
+                fetchReports(scope, query, stored.isEmpty() ? null : stored, callback);
+            });
+        });
+    }
+
+    /**
+     * Reads a list from disk only, e.g. to fill a screen whose data comes from a
+     * snapshot listener. Delivers nothing if the store is not attached or has no match.
+     */
+    public void loadStoredReports(StoredQuery storedQuery, ReportListCallback callback) {
+        if (reportDao == null) {
+            return;
+        }
+
+        ReportDao dao = reportDao;
+        diskExecutor.execute(() -> {
+            try {
+                List<ReportModel> stored = toModels(storedQuery.load(dao, MAX_STORED_RESULTS));
+                if (!stored.isEmpty()) {
+                    mainHandler.post(() -> callback.onReportsLoaded(stored, true));
+                }
+            } catch (RuntimeException e) {
+                mainHandler.post(() -> callback.onError(e));
+            }
+        });
+    }
+
+    // A failed read only costs the head start, the list still comes from Firestore
+    private static List<ReportModel> readStored(ReportDao dao, StoredQuery storedQuery) {
+        try {
+            return toModels(storedQuery.load(dao, MAX_STORED_RESULTS));
+        } catch (RuntimeException e) {
+            Log.e(TAG, "Could not read stored reports: " + e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+
+    private void fetchReports(String scope, Query query, List<ReportModel> known, ReportListCallback callback) {
+        if (reportSync == null) {
+            query.get()
+                    .addOnSuccessListener(snapshot -> {
+                        List<ReportModel> reports = toModels(snapshot.getDocuments(), null);
+                        callback.onReportsLoaded(cacheNewestFirst(scope, reports, reports), false);
+                    })
+                    .addOnFailureListener(callback::onError);
+            return;
+        }
+
+        reportSync.sync(scope, query, known != null, new ReportSync.SyncCallback() {
+            @Override
+            public void onSynced(List<DocumentSnapshot> documents, boolean full) {
+                List<ReportModel> changed = toModels(documents, null);
+                List<ReportModel> reports;
+                if (full) {
+                    reports = changed;
+                    if (known != null) {
+                        forgetMissing(known, reports);
+                    }
+                    trimStore();
+                } else {
+                    // Changed reports replace their old copies; unchanged ones are kept
+                    reports = toModels(documents, known);
+                }
+                callback.onReportsLoaded(cacheNewestFirst(scope, reports, changed), false);
+            }
+
+            @Override
+            public void onError(Exception e) {
+                callback.onError(e);
+            }
+        });
+    }
+
+    private static List<ReportModel> toModels(List<DocumentSnapshot> documents, List<ReportModel> base) {
+        Map<String, ReportModel> merged = new LinkedHashMap<>();
+        if (base != null) {
+            for (ReportModel report : base) {
+                merged.put(report.getId(), report);
+            }
+        }
+        for (DocumentSnapshot document : documents) {
+            ReportModel report = ReportMapper.fromSnapshot(document);
+            if (report != null) {
+                merged.put(report.getId(), report);
+            }
+        }
+        return new ArrayList<>(merged.values());
+    }
+
+    // Only the changed reports are written to disk, the rest are stored already
+    private List<ReportModel> cacheNewestFirst(String scope, List<ReportModel> reports, List<ReportModel> changed) {
+        reports.sort((a, b) -> Long.compare(b.getTimestamp(), a.getTimestamp()));
+        synchronized (this) {
+            List<String> ids = new ArrayList<>(reports.size());
+            for (ReportModel report : reports) {
+                reportCache.put(report.getId(), report);
+                searchIndex.put(report);
+                ids.add(report.getId());
+            }
+            scopeCache.put(scope, ids);
+        }
+        persist(changed);
+        return reports;
+    }
+
+    // Reports that dropped out of a fully re-fetched list were edited or deleted
+    // elsewhere; their stored copies are stale
+    private void forgetMissing(List<ReportModel> known, List<ReportModel> fresh) {
+        if (reportDao == null) {
+            return;
+        }
+        Set<String> freshIds = new HashSet<>();
+        for (ReportModel report : fresh) {
+            freshIds.add(report.getId());
+        }
+        List<String> missing = new ArrayList<>();
+        for (ReportModel report : known) {
+            if (!freshIds.contains(report.getId())) {
+                missing.add(report.getId());
+            }
+        }
+        if (!missing.isEmpty()) {
+            ReportDao dao = reportDao;
+            diskExecutor.execute(() -> dao.deleteByIds(missing));
+        }
+    }
+
+    private void trimStore() {
+        if (reportDao != null) {
+            ReportDao dao = reportDao;
+            diskExecutor.execute(() -> dao.trimTo(MAX_STORED_REPORTS));
+        }
+    }
+
+    private void persist(List<ReportModel> reports) {
+        if (reportDao == null || reports.isEmpty()) {
+            return;
+        }
+        List<ReportEntity> entities = new ArrayList<>(reports.size());
+        for (ReportModel report : reports) {
+            if (report != null && report.getId() != null) {
+                entities.add(ReportEntity.fromModel(report));
+            }
+        }
+        ReportDao dao = reportDao;
+        diskExecutor.execute(() -> {
+            try {
+                dao.upsert(entities);
+            } catch (RuntimeException e) {
+                // The disk copy is only a head start; the screens still get Firestore data
+                Log.e(TAG, "Could not store reports: " + e.getMessage());
+            }
+        });
+    }
+
+    private static List<ReportModel> toModels(List<ReportEntity> entities) {
+        List<ReportModel> reports = new ArrayList<>(entities.size());
+        for (ReportEntity entity : entities) {
+            reports.add(entity.toModel());
+        }
+        return reports;
+    }
+
+    /**
+     * The geohash range queries covering radiusKm around a point, for reports with one
+     * of the given statuses; one query per covering cell. Listen to all of them and
+     * merge the results with mergeReportsNear. Reports without a geohash field (not yet
+     * backfilled) are not found.
+     *
+     * Needs a composite index on reports: status ascending, geohash ascending.
+     */
+    public List<Query> queryReportsNear(List<String> statuses, double latitude, double longitude, double radiusKm) {
+        List<Query> queries = new ArrayList<>();
+        for (String[] bound : GeoHash.queryBounds(latitude, longitude, radiusKm * 1000)) {
+            queries.add(db.collection("reports")
+                    .whereIn("status", statuses)
+                    .orderBy(GeoHash.FIELD)
+                    .startAt(bound[0])
+                    .endAt(bound[1]));
+        }
+        return queries;
+    }
+
+    /**
+     * Merges the latest snapshot of each queryReportsNear query into one list, nearest
+     * first, dropping the corner matches outside radiusKm, and caches it under scope.
+     */
+    public List<ReportModel> mergeReportsNear(String scope, Collection<QuerySnapshot> snapshots,
+                                              double latitude, double longitude, double radiusKm) {
+        double radiusMeters = radiusKm * 1000;
+        List<ReportModel> reports = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        for (QuerySnapshot snapshot : snapshots) {
+            for (DocumentSnapshot document : snapshot.getDocuments()) {
+                ReportModel report = ReportMapper.fromSnapshot(document);
+                if (report != null && seen.add(report.getId())
+                        && GeoHash.distanceMeters(latitude, longitude,
+                        report.getLatitude(), report.getLongitude()) <= radiusMeters) {
+                    reports.add(report);
+                }
+            }
+        }
+        reports.sort((a, b) -> Double.compare(
+                GeoHash.distanceMeters(latitude, longitude, a.getLatitude(), a.getLongitude()),
+                GeoHash.distanceMeters(latitude, longitude, b.getLatitude(), b.getLongitude())));
+        cacheReports(scope, reports);
+        return reports;
+    }
+}
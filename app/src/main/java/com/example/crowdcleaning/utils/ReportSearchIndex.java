@@ -0,0 +1,242 @@
+package com.example.crowdcleaning.utils;
+
+import com.example.crowdcleaning.models.ReportModel;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * In-memory inverted index over the title, description and address of reports.
+ *
+ * Every report gets a small integer ordinal and every term keeps a sorted array of
+ * the ordinals containing it. Terms live in a sorted map, so a prefix is the range of
+ * terms starting with it. A query matches reports containing every query word, where
+ * each word may be the start of a longer word ("overfl bin" finds "Overflowing bin").
+ * Updates only touch the posting lists of terms that were added or removed.
+ */
+public class ReportSearchIndex {
+
+    // Above 1 / DENSE_FRACTION of all reports a word's postings are not worth expanding
+    private static final int DENSE_FRACTION = 4;
+
+    // Sorted int array that grows in place, kept sorted by binary insertion
+    private static class Postings {
+        int[] ordinals = new int[4];
+        int size;
+
+        void add(int ordinal) {
+            int index = Arrays.binarySearch(ordinals, 0, size, ordinal);
+            if (index >= 0) return;
+            index = -index - 1;
+            if (size == ordinals.length) {
+                ordinals = Arrays.copyOf(ordinals, size * 2);
+            }
+            System.arraycopy(ordinals, index, ordinals, index + 1, size - index);
+            ordinals[index] = ordinal;
+            size++;
+        }
+
+        void remove(int ordinal) {
+            int index = Arrays.binarySearch(ordinals, 0, size, ordinal);
+            if (index < 0) return;
+            System.arraycopy(ordinals, index + 1, ordinals, index, size - index - 1);
+            size--;
+        }
+    }
+
+    private final TreeMap<String, Postings> postings = new TreeMap<>();
+    private final Map<String, Integer> ordinalsById = new HashMap<>();
+    // Indexed by ordinal; null once a report is removed
+    private final List<String> ids = new ArrayList<>();
+    private final List<String[]> termsByOrdinal = new ArrayList<>();
+
+    public synchronized void put(ReportModel report) {
+        if (report == null || report.getId() == null) return;
+
+        String[] terms = terms(report);
+        Integer ordinal = ordinalsById.get(report.getId());
+        if (ordinal == null) {
+            ordinal = ids.size();
+            ordinalsById.put(report.getId(), ordinal);
+            ids.add(report.getId());
+            termsByOrdinal.add(new String[0]);
+        }
+
+        String[] previous = termsByOrdinal.get(ordinal);
+        if (Arrays.equals(previous, terms)) return;
+
+        // Both arrays are sorted, so the difference is one merge pass
+        int i = 0;
+        int j = 0;
+        while (i < previous.length || j < terms.length) {
+            int compare = i == previous.length ? 1 : j == terms.length ? -1 : previous[i].compareTo(terms[j]);
+            if (compare < 0) {
+                removePosting(previous[i++], ordinal);
+            } else if (compare > 0) {
+                Postings list = postings.get(terms[j]);
+                if (list == null) {
+                    list = new Postings();
+                    postings.put(terms[j], list);
+                }
+                list.add(ordinal);
+                j++;
+            } else {
+                i++;
+                j++;
+            }
+        }
+        termsByOrdinal.set(ordinal, terms);
+    }
+
+    public synchronized void remove(String reportId) {
+        Integer ordinal = ordinalsById.remove(reportId);
+        if (ordinal == null) return;
+
+        for (String term : termsByOrdinal.get(ordinal)) {
+            removePosting(term, ordinal);
+        }
+        termsByOrdinal.set(ordinal, new String[0]);
+        ids.set(ordinal, null);
+    }
+
+    public synchronized void clear() {
+        postings.clear();
+        ordinalsById.clear();
+        ids.clear();
+        termsByOrdinal.clear();
+    }
+
+    public synchronized int size() {
+        return ordinalsById.size();
+    }
+
+    /**
+     * IDs of the reports matching every word of the query, most recently indexed
+     * first, at most limit of them. An empty query matches nothing.
+     */
+    public synchronized List<String> search(String query, int limit) {
+        List<String> results = new ArrayList<>();
+        Set<String> words = new LinkedHashSet<>(tokenize(query));
+        if (words.isEmpty() || limit <= 0) {
+            return results;
+        }
+
+        // Expand only the most selective word, the others are checked per candidate
+        String rarest = null;
+        int rarestCount = Integer.MAX_VALUE;
+        for (String word : words) {
+            int count = 0;
+            for (Postings list : prefixRange(word).values()) {
+                count += list.size;
+            }
+            if (count < rarestCount) {
+                rarest = word;
+                rarestCount = count;
+            }
+        }
+        if (rarestCount == 0) {
+            return results;
+        }
+
+        if (rarestCount > ids.size() / DENSE_FRACTION) {
+            // Short prefixes such as "b" match most reports; walking the newest reports
+            // finds limit results sooner than expanding every posting list
+            for (int ordinal = ids.size() - 1; ordinal >= 0 && results.size() < limit; ordinal--) {
+                if (ids.get(ordinal) != null && matchesAll(termsByOrdinal.get(ordinal), words, null)) {
+                    results.add(ids.get(ordinal));
+                }
+            }
+            return results;
+        }
+
+        BitSet candidates = new BitSet(ids.size());
+        for (Postings list : prefixRange(rarest).values()) {
+            for (int k = 0; k < list.size; k++) {
+                candidates.set(list.ordinals[k]);
+            }
+        }
+
+        for (int ordinal = candidates.length() - 1; ordinal >= 0 && results.size() < limit;
+             ordinal = candidates.previousSetBit(ordinal - 1)) {
+            if (matchesAll(termsByOrdinal.get(ordinal), words, rarest)) {
+                results.add(ids.get(ordinal));
+            }
+        }
+        return results;
+    }
+
+    private static boolean matchesAll(String[] sortedTerms, Set<String> words, String skip) {
+        for (String word : words) {
+            if (!word.equals(skip) && !hasTermWithPrefix(sortedTerms, word)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Every term in [prefix, prefix + U+FFFF) starts with prefix
+    private SortedMap<String, Postings> prefixRange(String prefix) {
+        return postings.subMap(prefix, prefix + Character.MAX_VALUE);
+    }
+
+    private static boolean hasTermWithPrefix(String[] sortedTerms, String prefix) {
+        int index = Arrays.binarySearch(sortedTerms, prefix);
+        if (index >= 0) return true;
+        index = -index - 1;
+        return index < sortedTerms.length && sortedTerms[index].startsWith(prefix);
+    }
+
+    private void removePosting(String term, int ordinal) {
+        Postings list = postings.get(term);
+        if (list == null) return;
+        list.remove(ordinal);
+        if (list.size == 0) {
+            postings.remove(term);
+        }
+    }
+
+    // Distinct terms of the searchable fields, sorted
+    private static String[] terms(ReportModel report) {
+        Set<String> terms = new TreeSet<>();
+        terms.addAll(tokenize(report.getTitle()));
+        terms.addAll(tokenize(report.getDescription()));
+        terms.addAll(tokenize(report.getAddress()));
+        return terms.toArray(new String[0]);
+    }
+
+    /**
+     * Lowercase words of the text with accents removed, so accented and plain spellings match.
+     */
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return tokens;
+        }
+
+        String folded = Normalizer.normalize(text, Normalizer.Form.NFKD)
+                .replaceAll("\\p{M}+", "")
+                .toLowerCase(Locale.ROOT);
+        int start = -1;
+        for (int i = 0; i <= folded.length(); i++) {
+            boolean wordChar = i < folded.length() && Character.isLetterOrDigit(folded.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                tokens.add(folded.substring(start, i));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.crowdcleaning.utils;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.Query;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Delta sync of report lists. Every write to a report sets FIELD_UPDATED_AT to the
+ * server time (see stamp), and each list scope remembers the newest FIELD_UPDATED_AT
+ * it has seen. A refresh then asks only for documents of the scope changed since,
+ * so its cost follows the churn instead of the size of the list.
+ *
+ * A delta cannot see a report leave the scope (e.g. deleted or reassigned to someone
+ * else) or a report written before stamping existed, so a scope is re-fetched in full
+ * every FULL_SYNC_INTERVAL_MS, and on the next sync after requestFullSync, which
+ * screens call when the user explicitly refreshes.
+ */
+public class ReportSync {
+
+    public static final String FIELD_UPDATED_AT = "updatedAt";
+
+    private static final String TAG = "ReportSync";
+    private static final String PREFS_NAME = "report_sync";
+    private static final long FULL_SYNC_INTERVAL_MS = 60 * 60 * 1000;
+    // Used when a full fetch holds no stamped report; bounds the device/server clock skew
+    private static final long CLOCK_SKEW_MS = 10 * 60 * 1000;
+
+    public interface SyncCallback {
+        // full is true when documents is the whole scope, false when only its changes
+        void onSynced(List<DocumentSnapshot> documents, boolean full);
+        void onError(Exception e);
+    }
+
+    private final SharedPreferences prefs;
+
+    public ReportSync(Context context) {
+        prefs = context.getApplicationContext().getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    /**
+     * Adds the modification stamp to the fields of a report write.
+     */
+    public static Map<String, Object> stamp(Map<String, Object> updates) {
+        updates.put(FIELD_UPDATED_AT, FieldValue.serverTimestamp());
+        return updates;
+    }
+
+    /**
+     * Fetches the scope's changes since its last sync, or all of it when the caller
+     * has no earlier result (hasBase false) or a full fetch is due. The query must
+     * hold the scope's filters only: Firestore rejects the updatedAt range next to an
+     * orderBy on another field, and a limit would cut the full fetch short so that
+     * reports beyond it look deleted. Windowed lists use a plain get() instead
+     * (ReportRepository.loadReportWindow).
+     */
+    public void sync(String scope, Query query, boolean hasBase, SyncCallback callback) {
+        long now = System.currentTimeMillis();
+        long lastSeen = prefs.getLong("seen_" + scope, 0);
+        long lastFullSync = prefs.getLong("full_" + scope, 0);
+
+        if (!hasBase || lastSeen == 0 || now - lastFullSync > FULL_SYNC_INTERVAL_MS) {
+            query.get()
+                    .addOnSuccessListener(snapshot -> {
+                        List<DocumentSnapshot> documents = snapshot.getDocuments();
+                        long newest = newestStamp(documents, 0);
+                        record(scope, newest > 0 ? newest : now - CLOCK_SKEW_MS, now);
+                        callback.onSynced(documents, true);
+                    })
+                    .addOnFailureListener(callback::onError);
+            return;
+        }
+
+        // Inclusive, so reports sharing the watermark's millisecond are not skipped
+        query.whereGreaterThanOrEqualTo(FIELD_UPDATED_AT, new Timestamp(new Date(lastSeen)))
+                .get()
+                .addOnSuccessListener(snapshot -> {
+                    List<DocumentSnapshot> documents = snapshot.getDocuments();
+                    record(scope, newestStamp(documents, lastSeen), lastFullSync);
+                    Log.d(TAG, scope + ": " + documents.size() + " changed since last sync");
+                    callback.onSynced(documents, false);
+                })
+                .addOnFailureListener(callback::onError);
+    }
+
+    /**
+     * Makes the next sync of scope a full fetch.
+     */
+    public void requestFullSync(String scope) {
+        prefs.edit().remove("full_" + scope).apply();
+    }
+
+    public void clear() {
+        prefs.edit().clear().apply();
+    }
+
+    private void record(String scope, long lastSeen, long lastFullSync) {
+        prefs.edit()
+                .putLong("seen_" + scope, lastSeen)
+                .putLong("full_" + scope, lastFullSync)
+                .apply();
+    }
+
+    private static long newestStamp(List<DocumentSnapshot> documents, long newest) {
+        for (DocumentSnapshot document : documents) {
+            Timestamp updatedAt = document.getTimestamp(FIELD_UPDATED_AT);
+            if (updatedAt != null) {
+                newest = Math.max(newest, updatedAt.toDate().getTime());
+            }
+        }
+        return newest;
+    }
+}
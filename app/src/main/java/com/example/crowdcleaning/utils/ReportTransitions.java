@@ -0,0 +1,158 @@
+package com.example.crowdcleaning.utils;
+
+import com.google.android.gms.tasks.Task;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Report status changes that several users can race on, run as Firestore
+ * transactions that re-check the current status before writing. A lost race is
+ * reported as an outcome, not an error, so the UI can say so right away.
+ */
+public class ReportTransitions {
+
+    public enum Outcome {
+        UPDATED,
+        // Someone else accepted the report first
+        ALREADY_TAKEN,
+        // The report changed since it was shown, the caller should reload it
+        STALE,
+        NOT_FOUND
+    }
+
+    public interface TransitionCallback {
+        void onResult(Outcome outcome, String currentStatus);
+        void onError(Exception e);
+    }
+
+    private static class Result {
+        final Outcome outcome;
+        final String status;
+
+        Result(Outcome outcome, String status) {
+            this.outcome = outcome;
+            this.status = status;
+        }
+    }
+
+    private ReportTransitions() {
+    }
+
+    /**
+     * Assigns an available report to the volunteer. Accepting a report the volunteer
+     * already holds counts as success.
+     */
+    public static void acceptTask(String reportId, String volunteerId, String volunteerName,
+                                  TransitionCallback callback) {
+        FirebaseFirestore db = FirebaseFirestore.getInstance();
+        DocumentReference reportRef = db.collection("reports").document(reportId);
+
+        db.runTransaction(transaction -> {
+            DocumentSnapshot snapshot = transaction.get(reportRef);
+            if (!snapshot.exists()) {
+                return new Result(Outcome.NOT_FOUND, null);
+            }
+
+            String status = snapshot.getString("status");
+            String assignedTo = snapshot.getString("volunteerAssigned");
+            if (volunteerId.equals(assignedTo)) {
+                return new Result(Outcome.UPDATED, status);
+            }
+            // A report without a status is shown (and offered) as "reported"
+            boolean available = status == null || StatusConstants.isAvailableStatus(status);
+            if (!available || !StatusConstants.isUnassigned(assignedTo)) {
+                return new Result(Outcome.ALREADY_TAKEN, status);
+            }
+
+            Date assignedAt = new Date();
+            Map<String, Object> updates = new HashMap<>();
+            updates.put("volunteerAssigned", volunteerId);
+            updates.put("volunteerName", volunteerName);
+            updates.put("status", "assigned");
+            updates.put("assignedAt", assignedAt);
+            transaction.update(reportRef, ReportSync.stamp(updates));
+            AnalyticsRollups.recordAssigned(transaction, snapshot, assignedAt);
+            return new Result(Outcome.UPDATED, "assigned");
+        }).addOnSuccessListener(result -> {
+            // Whatever the outcome, the cached copy is now known to be out of date
+            ReportRepository.getInstance().invalidate(reportId);
+            callback.onResult(result.outcome, result.status);
+        }).addOnFailureListener(callback::onError);
+    }
+
+    /**
+     * Moves the report from expectedStatus to newStatus, only if nobody changed its
+     * status in the meantime. expectedStatus is the stored value, null if the report
+     * has none.
+     */
+    public static void changeStatus(String reportId, String expectedStatus, String newStatus,
+                                    TransitionCallback callback) {
+        FirebaseFirestore db = FirebaseFirestore.getInstance();
+        DocumentReference reportRef = db.collection("reports").document(reportId);
+
+        db.runTransaction(transaction -> {
+            DocumentSnapshot snapshot = transaction.get(reportRef);
+            if (!snapshot.exists()) {
+                return new Result(Outcome.NOT_FOUND, null);
+            }
+
+            String status = snapshot.getString("status");
+            if (!Objects.equals(expectedStatus, status)) {
+                return new Result(Outcome.STALE, status);
+            }
+
+            transaction.update(reportRef, "status", newStatus,
+                    ReportSync.FIELD_UPDATED_AT, FieldValue.serverTimestamp());
+            if (StatusConstants.isCompletedStatus(newStatus) && !StatusConstants.isCompletedStatus(status)) {
+                AnalyticsRollups.recordCompleted(transaction, snapshot, new Date(),
+                        snapshot.getString("volunteerAssigned"), snapshot.getString("volunteerName"));
+            }
+            return new Result(Outcome.UPDATED, newStatus);
+        }).addOnSuccessListener(result -> {
+            // Whatever the outcome, the cached copy is now known to be out of date
+            ReportRepository.getInstance().invalidate(reportId);
+            callback.onResult(result.outcome, result.status);
+        }).addOnFailureListener(callback::onError);
+    }
+
+    /**
+     * Marks the report completed with the given extra fields (notes, completedAt, ...),
+     * unless it already is. completedAt in updates, if present, is used for the analytics.
+     * Returned as a Task because CompletionOutboxWorker blocks on it off the main thread.
+     */
+    public static Task<Outcome> completeTask(String reportId, Map<String, Object> updates, String volunteerId,
+                                             String volunteerName) {
+        FirebaseFirestore db = FirebaseFirestore.getInstance();
+        DocumentReference reportRef = db.collection("reports").document(reportId);
+
+        return db.runTransaction(transaction -> {
+            DocumentSnapshot snapshot = transaction.get(reportRef);
+            if (!snapshot.exists()) {
+                return Outcome.NOT_FOUND;
+            }
+
+            String status = snapshot.getString("status");
+            if (StatusConstants.isCompletedStatus(status)) {
+                return Outcome.STALE;
+            }
+
+            Map<String, Object> completion = new HashMap<>(updates);
+            completion.put("status", "completed");
+            Object completedAt = completion.get("completedAt");
+            if (!(completedAt instanceof Date)) {
+                completedAt = new Date();
+                completion.put("completedAt", completedAt);
+            }
+            transaction.update(reportRef, ReportSync.stamp(completion));
+            AnalyticsRollups.recordCompleted(transaction, snapshot, (Date) completedAt, volunteerId, volunteerName);
+            return Outcome.UPDATED;
+        }).addOnSuccessListener(outcome -> ReportRepository.getInstance().invalidate(reportId));
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.crowdcleaning.utils;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.google.android.gms.tasks.Task;
+import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.SetOptions;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.Random;
+
+/**
+ * Upvotes on existing reports, e.g. instead of filing a duplicate. Each user counts
+ * once per report.
+ *
+ * The count is a distributed counter: every upvote increments one of NUM_SHARDS
+ * documents under reports/{id}/upvote_shards, so a popular report is not limited by
+ * the write rate of a single document. The "upvotes" field on the report is a cached
+ * total, rolled up from the shards at most once per ROLLUP_INTERVAL_MS (upvotes within
+ * that interval are picked up by a trailing UpvoteRollupWorker run), so lists keep
+ * rendering from the report document alone.
+ */
+public class ReportUpvotes {
+
+    private static final String TAG = "ReportUpvotes";
+
+    public static final int NUM_SHARDS = 10;
+    public static final String FIELD_UPVOTES = "upvotes";
+    public static final String FIELD_ROLLED_UP_AT = "upvotesRolledUpAt";
+
+    private static final String SHARDS_COLLECTION = "upvote_shards";
+    // One document per user who upvoted, keyed by user ID
+    private static final String UPVOTERS_COLLECTION = "upvoters";
+    private static final String FIELD_COUNT = "count";
+    private static final long ROLLUP_INTERVAL_MS = 60_000;
+
+    private static final Random random = new Random();
+
+    public interface UpvoteCallback {
+        // alreadyUpvoted is true when this user had upvoted the report before
+        void onUpvoted(boolean alreadyUpvoted);
+        void onError(Exception e);
+    }
+
+    public interface TotalCallback {
+        void onTotal(long total);
+        void onError(Exception e);
+    }
+
+    private ReportUpvotes() {
+    }
+
+    public static void upvote(Context context, String reportId, String userId, UpvoteCallback callback) {
+        Context appContext = context.getApplicationContext();
+        FirebaseFirestore db = FirebaseFirestore.getInstance();
+        DocumentReference reportRef = db.collection("reports").document(reportId);
+        DocumentReference upvoterRef = reportRef.collection(UPVOTERS_COLLECTION).document(userId);
+        DocumentReference shardRef = reportRef.collection(SHARDS_COLLECTION)
+                .document(String.valueOf(random.nextInt(NUM_SHARDS)));
+
+        // Touches only the user's marker and one shard, never the report itself
+        db.runTransaction(transaction -> {
+            if (transaction.get(upvoterRef).exists()) {
+                return true;
+            }
+            transaction.set(upvoterRef, Collections.singletonMap("upvotedAt", new Date()));
+            transaction.set(shardRef, Collections.singletonMap(FIELD_COUNT, FieldValue.increment(1)),
+                    SetOptions.merge());
+            return false;
+        }).addOnSuccessListener(alreadyUpvoted -> {
+            if (!alreadyUpvoted) {
+                rollUpIfStale(appContext, reportId);
+            }
+            callback.onUpvoted(alreadyUpvoted);
+        }).addOnFailureListener(callback::onError);
+    }
+
+    /**
+     * Exact total, summed over the shards.
+     */
+    public static void getTotal(String reportId, TotalCallback callback) {
+        FirebaseFirestore.getInstance().collection("reports").document(reportId)
+                .collection(SHARDS_COLLECTION)
+                .get()
+                .addOnSuccessListener(shards -> callback.onTotal(sumShards(shards)))
+                .addOnFailureListener(callback::onError);
+    }
+
+    /**
+     * Copies the shard total to the report, or, if that happened within the last
+     * ROLLUP_INTERVAL_MS, schedules one for when the interval is over so upvotes
+     * made in the meantime still reach the report.
+     */
+    private static void rollUpIfStale(Context context, String reportId) {
+        DocumentReference reportRef = FirebaseFirestore.getInstance().collection("reports").document(reportId);
+        reportRef.get().addOnSuccessListener(report -> {
+            if (!report.exists()) {
+                return;
+            }
+            Timestamp rolledUpAt = report.getTimestamp(FIELD_ROLLED_UP_AT);
+            long sinceRollUp = rolledUpAt != null
+                    ? System.currentTimeMillis() - rolledUpAt.toDate().getTime() : Long.MAX_VALUE;
+            if (sinceRollUp < ROLLUP_INTERVAL_MS) {
+                UpvoteRollupWorker.schedule(context, reportId, ROLLUP_INTERVAL_MS - sinceRollUp);
+                return;
+            }
+
+            rollUp(reportId).addOnFailureListener(e -> {
+                // Retried in the background, the upvote itself is already counted
+                Log.e(TAG, "Upvote roll-up failed: " + e.getMessage());
+                UpvoteRollupWorker.schedule(context, reportId, 0);
+            });
+        });
+    }
+
+    /**
+     * Writes the current shard total to the report. Concurrent roll-ups may briefly
+     * write a slightly older total; the next one corrects it.
+     */
+    static Task<Void> rollUp(String reportId) {
+        DocumentReference reportRef = FirebaseFirestore.getInstance().collection("reports").document(reportId);
+        return reportRef.collection(SHARDS_COLLECTION).get()
+                .continueWithTask(task -> reportRef.update(FIELD_UPVOTES, sumShards(task.getResult()),
+                        FIELD_ROLLED_UP_AT, FieldValue.serverTimestamp(),
+                        ReportSync.FIELD_UPDATED_AT, FieldValue.serverTimestamp()))
+                .addOnSuccessListener(aVoid -> ReportRepository.getInstance().invalidate(reportId));
+    }
+
+    private static long sumShards(QuerySnapshot shards) {
+        long total = 0;
+        for (DocumentSnapshot shard : shards.getDocuments()) {
+            Long count = shard.getLong(FIELD_COUNT);
+            total += count != null ? count : 0;
+        }
+        return total;
+    }
+}
@@ -1,19 +1,33 @@
 // Create a new file: StatusConstants.java
 package com.example.crowdcleaning.utils;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
 // Add to StatusConstants.java
 public class StatusConstants {
+
+    // Statuses of reports a volunteer can still accept; the one list every screen and query uses
+    public static final List<String> AVAILABLE_STATUSES =
+            Collections.unmodifiableList(Arrays.asList("reported", "pending", "new", "open", "submitted"));
+
+    // Statuses of a report a volunteer holds and still has to work on
+    public static final List<String> ACTIVE_TASK_STATUSES =
+            Collections.unmodifiableList(Arrays.asList("assigned", "in_progress", "in progress", "pending", "accepted"));
+
+    /**
+     * Whether a volunteerAssigned value means nobody holds the report. Older writes
+     * left it null, empty, "null" or "unassigned".
+     */
+    public static boolean isUnassigned(String volunteerAssigned) {
+        if (volunteerAssigned == null) return true;
+        String value = volunteerAssigned.trim();
+        return value.isEmpty() || "null".equalsIgnoreCase(value) || "unassigned".equalsIgnoreCase(value);
+    }
+
     public static boolean isAvailableStatus(String status) {
-        if (status == null) return false;
-        switch (status.toLowerCase()) {
-            case "reported":
-            case "pending":
-            case "new":
-            case "open":
-                return true;
-            default:
-                return false;
-        }
+        return status != null && AVAILABLE_STATUSES.contains(status.toLowerCase());
     }
 
     public static boolean isCompletedStatus(String status) {
@@ -0,0 +1,301 @@
+package com.example.crowdcleaning.utils;
+
+import android.content.Context;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.google.firebase.storage.StorageException;
+import com.google.firebase.storage.StorageMetadata;
+import com.google.firebase.storage.StorageReference;
+import com.google.firebase.storage.UploadTask;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Uploads a batch of images to one Storage folder.
+ *
+ * At most maxConcurrent files are in flight at a time, each file is retried with
+ * exponential backoff on recoverable errors, progress is reported in bytes over the
+ * whole batch and the download URLs are delivered in the order the files were given.
+ * All callbacks run on the main thread. One manager handles one batch.
+ *
+ * Resumable session URIs are persisted in UploadSessionStore, so a file whose upload
+ * was interrupted (even by process death) resumes where it stopped when it is
+ * uploaded again to the same folder.
+ */
+public class UploadManager {
+
+    private static final String TAG = "UploadManager";
+
+    public static final int DEFAULT_MAX_CONCURRENT = 2;
+    private static final int MAX_ATTEMPTS = 4;
+    private static final long INITIAL_BACKOFF_MS = 1000;
+    private static final long MAX_BACKOFF_MS = 16000;
+
+    public interface UploadListener {
+        void onProgress(long bytesTransferred, long totalBytes, int filesDone, int totalFiles);
+        void onComplete(List<String> downloadUrls);
+        void onFailure(int index, Exception e);
+    }
+
+    private final String folder;
+    private final int maxConcurrent;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Random random = new Random();
+    private final UploadSessionStore sessionStore;
+
+    private List<Uri> files;
+    private UploadListener listener;
+    private String[] downloadUrls;
+    private StorageReference[] targets;
+    private Uri[] sessionUris;
+    private long[] bytesTransferred;
+    private long[] totalBytes;
+    private final List<UploadTask> activeTasks = new ArrayList<>();
+
+    private int nextIndex;
+    private int inFlight;
+    private int filesDone;
+    private boolean finished;
+
+    public UploadManager(Context context, String folder) {
+        this(context, folder, DEFAULT_MAX_CONCURRENT);
+    }
+
+    public UploadManager(Context context, String folder, int maxConcurrent) {
+        this.folder = folder;
+        this.maxConcurrent = Math.max(1, maxConcurrent);
+        this.sessionStore = new UploadSessionStore(context);
+    }
+
+    public void upload(List<Uri> files, UploadListener listener) {
+        if (this.files != null) {
+            throw new IllegalStateException("UploadManager handles a single batch");
+        }
+        this.files = new ArrayList<>(files);
+        this.listener = listener;
+
+        int count = files.size();
+        downloadUrls = new String[count];
+        targets = new StorageReference[count];
+        sessionUris = new Uri[count];
+        bytesTransferred = new long[count];
+        totalBytes = new long[count];
+        for (int i = 0; i < count; i++) {
+            UploadSessionStore.Session session = sessionStore.get(files.get(i));
+            if (session != null && session.storagePath.startsWith(folder + "/")) {
+                Log.d(TAG, "Resuming upload of " + files.get(i) + " to " + session.storagePath);
+                targets[i] = FirebaseUtils.getStorageReference(session.storagePath);
+                sessionUris[i] = session.sessionUri;
+            } else {
+                // Same object name on every attempt so a retry overwrites instead of duplicating
+                targets[i] = FirebaseUtils.getStorageReference(folder + "/" + UUID.randomUUID().toString() + ".jpg");
+            }
+            totalBytes[i] = knownSize(files.get(i));
+        }
+
+        if (count == 0) {
+            finished = true;
+            listener.onComplete(Collections.emptyList());
+            return;
+        }
+        startNext();
+    }
+
+    /**
+     * Uploads the batch from a background thread (a Worker) and waits for it. Returns
+     * the download URLs in file order; throws the first failure, or IOException when
+     * the batch does not finish within timeoutMinutes.
+     */
+    public static List<String> uploadBlocking(Context context, String folder, List<Uri> files,
+                                              long timeoutMinutes) throws Exception {
+        if (files.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        // Callbacks arrive on the main thread; block the calling thread until the batch is done
+        CountDownLatch done = new CountDownLatch(1);
+        AtomicReference<List<String>> result = new AtomicReference<>();
+        AtomicReference<Exception> failure = new AtomicReference<>();
+        UploadManager uploadManager = new UploadManager(context, folder);
+        Handler mainHandler = new Handler(Looper.getMainLooper());
+
+        mainHandler.post(() -> uploadManager.upload(files, new UploadListener() {
+            @Override
+            public void onProgress(long bytesTransferred, long totalBytes, int filesDone, int totalFiles) {
+            }
+
+            @Override
+            public void onComplete(List<String> downloadUrls) {
+                result.set(new ArrayList<>(downloadUrls));
+                done.countDown();
+            }
+
+            @Override
+            public void onFailure(int index, Exception e) {
+                failure.set(e);
+                done.countDown();
+            }
+        }));
+
+        if (!done.await(timeoutMinutes, TimeUnit.MINUTES)) {
+            mainHandler.post(uploadManager::cancel);
+            throw new IOException("Image upload timed out");
+        }
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+        return result.get();
+    }
+
+    /**
+     * Stops the batch; no further callbacks are delivered. In-flight uploads are paused
+     * rather than cancelled, because cancelling discards the server-side session.
+     */
+    public void cancel() {
+        finished = true;
+        handler.removeCallbacksAndMessages(null);
+        for (UploadTask task : activeTasks) {
+            task.pause();
+        }
+        activeTasks.clear();
+    }
+
+    private void startNext() {
+        while (!finished && inFlight < maxConcurrent && nextIndex < files.size()) {
+            inFlight++;
+            startAttempt(nextIndex++, 1);
+        }
+    }
+
+    private void startAttempt(int index, int attempt) {
+        if (finished) return;
+
+        Uri file = files.get(index);
+        StorageReference target = targets[index];
+        Uri resumeFrom = sessionUris[index];
+        UploadTask uploadTask = resumeFrom != null
+                ? target.putFile(file, new StorageMetadata.Builder().build(), resumeFrom)
+                : target.putFile(file);
+        activeTasks.add(uploadTask);
+        bytesTransferred[index] = 0;
+
+        uploadTask.addOnProgressListener(snapshot -> {
+            Uri sessionUri = snapshot.getUploadSessionUri();
+            if (sessionUri != null && !sessionUri.equals(sessionUris[index])) {
+                sessionUris[index] = sessionUri;
+                sessionStore.save(file, target.getPath(), sessionUri);
+            }
+            if (finished) return;
+            bytesTransferred[index] = snapshot.getBytesTransferred();
+            if (snapshot.getTotalByteCount() > 0) {
+                totalBytes[index] = snapshot.getTotalByteCount();
+            }
+            reportProgress();
+        });
+
+        uploadTask.continueWithTask(task -> {
+            activeTasks.remove(uploadTask);
+            if (!task.isSuccessful()) {
+                throw task.getException();
+            }
+            return target.getDownloadUrl();
+        }).addOnCompleteListener(task -> {
+            if (task.isSuccessful()) {
+                sessionStore.remove(file);
+            } else if (isSessionRejected(task.getException())) {
+                // Expired or unknown session, the next attempt starts a fresh upload
+                sessionUris[index] = null;
+                sessionStore.remove(file);
+            }
+            if (finished) return;
+
+            if (task.isSuccessful()) {
+                downloadUrls[index] = task.getResult().toString();
+                bytesTransferred[index] = totalBytes[index];
+                onFileDone();
+            } else if (attempt < MAX_ATTEMPTS && isRetryable(task.getException())) {
+                long delay = backoffDelay(attempt);
+                Log.d(TAG, "Upload " + index + " attempt " + attempt + " failed, retrying in " + delay + " ms: "
+                        + task.getException().getMessage());
+                handler.postDelayed(() -> startAttempt(index, attempt + 1), delay);
+            } else {
+                Log.e(TAG, "Upload " + index + " failed: " + task.getException().getMessage());
+                cancel();
+                listener.onFailure(index, task.getException());
+            }
+        });
+    }
+
+    private void onFileDone() {
+        inFlight--;
+        filesDone++;
+        reportProgress();
+
+        if (filesDone == files.size()) {
+            finished = true;
+            listener.onComplete(Arrays.asList(downloadUrls));
+        } else {
+            startNext();
+        }
+    }
+
+    private void reportProgress() {
+        long transferred = 0;
+        long total = 0;
+        for (int i = 0; i < files.size(); i++) {
+            transferred += bytesTransferred[i];
+            total += totalBytes[i];
+        }
+        listener.onProgress(transferred, total, filesDone, files.size());
+    }
+
+    private long backoffDelay(int attempt) {
+        long delay = Math.min(MAX_BACKOFF_MS, INITIAL_BACKOFF_MS << (attempt - 1));
+        // Jitter keeps concurrent retries from hitting the network in lockstep
+        return delay / 2 + (long) (random.nextDouble() * delay / 2);
+    }
+
+    private static boolean isRetryable(Exception e) {
+        if (!(e instanceof StorageException)) {
+            return true;
+        }
+        switch (((StorageException) e).getErrorCode()) {
+            case StorageException.ERROR_NOT_AUTHENTICATED:
+            case StorageException.ERROR_NOT_AUTHORIZED:
+            case StorageException.ERROR_QUOTA_EXCEEDED:
+            case StorageException.ERROR_CANCELED:
+                return false;
+            default:
+                return true;
+        }
+    }
+
+    private static boolean isSessionRejected(Exception e) {
+        if (!(e instanceof StorageException)) {
+            return false;
+        }
+        int httpCode = ((StorageException) e).getHttpResultCode();
+        return httpCode >= 400 && httpCode < 500;
+    }
+
+    private static long knownSize(Uri uri) {
+        if ("file".equals(uri.getScheme()) && uri.getPath() != null) {
+            return new File(uri.getPath()).length();
+        }
+        // Content URIs report their size with the first progress event
+        return 0;
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.crowdcleaning.utils;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.net.Uri;
+import android.util.Log;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.util.Map;
+
+/**
+ * Remembers the resumable Storage session of every unfinished upload, keyed by the
+ * local file URI, so an upload interrupted by process death continues from the last
+ * committed byte the next time the same file is uploaded.
+ */
+public class UploadSessionStore {
+
+    private static final String TAG = "UploadSessionStore";
+    private static final String PREFS_NAME = "upload_sessions";
+    // Storage resumable sessions are valid for about a week server side
+    private static final long SESSION_TTL_MS = 6L * 24 * 60 * 60 * 1000;
+
+    public static class Session {
+        public final String storagePath;
+        public final Uri sessionUri;
+
+        Session(String storagePath, Uri sessionUri) {
+            this.storagePath = storagePath;
+            this.sessionUri = sessionUri;
+        }
+    }
+
+    private final SharedPreferences prefs;
+
+    public UploadSessionStore(Context context) {
+        prefs = context.getApplicationContext().getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        pruneExpired();
+    }
+
+    public Session get(Uri localUri) {
+        String json = prefs.getString(localUri.toString(), null);
+        if (json == null) {
+            return null;
+        }
+
+        try {
+            JSONObject entry = new JSONObject(json);
+            if (isExpired(entry) || !localFileExists(localUri)) {
+                remove(localUri);
+                return null;
+            }
+            return new Session(entry.getString("path"), Uri.parse(entry.getString("session")));
+        } catch (JSONException e) {
+            remove(localUri);
+            return null;
+        }
+    }
+
+    public void save(Uri localUri, String storagePath, Uri sessionUri) {
+        try {
+            JSONObject entry = new JSONObject();
+            entry.put("path", storagePath);
+            entry.put("session", sessionUri.toString());
+            entry.put("createdAt", System.currentTimeMillis());
+            prefs.edit().putString(localUri.toString(), entry.toString()).apply();
+        } catch (JSONException e) {
+            Log.e(TAG, "Could not save upload session: " + e.getMessage());
+        }
+    }
+
+    public void remove(Uri localUri) {
+        prefs.edit().remove(localUri.toString()).apply();
+    }
+
+    private void pruneExpired() {
+        SharedPreferences.Editor editor = prefs.edit();
+        for (Map.Entry<String, ?> entry : prefs.getAll().entrySet()) {
+            try {
+                if (isExpired(new JSONObject(String.valueOf(entry.getValue())))) {
+                    editor.remove(entry.getKey());
+                }
+            } catch (JSONException e) {
+                editor.remove(entry.getKey());
+            }
+        }
+        editor.apply();
+    }
+
+    private static boolean isExpired(JSONObject entry) {
+        return System.currentTimeMillis() - entry.optLong("createdAt") > SESSION_TTL_MS;
+    }
+
+    private static boolean localFileExists(Uri uri) {
+        // Only private file copies are resumable; a content URI's read grant dies with its activity
+        return "file".equals(uri.getScheme()) && uri.getPath() != null && new File(uri.getPath()).exists();
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.crowdcleaning.utils;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.work.BackoffPolicy;
+import androidx.work.Constraints;
+import androidx.work.Data;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.NetworkType;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import com.google.android.gms.tasks.Tasks;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Trailing upvote roll-up of one report, for upvotes that arrived while the last
+ * roll-up was too recent. At most one is pending per report; later upvotes in the
+ * same interval are covered by it.
+ */
+public class UpvoteRollupWorker extends Worker {
+
+    private static final String TAG = "UpvoteRollupWorker";
+    private static final String WORK_NAME_PREFIX = "upvote_rollup_";
+    private static final String KEY_REPORT_ID = "report_id";
+
+    public UpvoteRollupWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    static void schedule(Context context, String reportId, long delayMs) {
+        OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(UpvoteRollupWorker.class)
+                .setInitialDelay(delayMs, TimeUnit.MILLISECONDS)
+                .setInputData(new Data.Builder().putString(KEY_REPORT_ID, reportId).build())
+                .setConstraints(new Constraints.Builder()
+                        .setRequiredNetworkType(NetworkType.CONNECTED)
+                        .build())
+                .setBackoffCriteria(BackoffPolicy.EXPONENTIAL, 30, TimeUnit.SECONDS)
+                .build();
+        WorkManager.getInstance(context)
+                .enqueueUniqueWork(WORK_NAME_PREFIX + reportId, ExistingWorkPolicy.KEEP, request);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        String reportId = getInputData().getString(KEY_REPORT_ID);
+        if (reportId == null) {
+            return Result.failure();
+        }
+
+        try {
+            Tasks.await(ReportUpvotes.rollUp(reportId));
+            Log.d(TAG, "Rolled up upvotes of " + reportId);
+            return Result.success();
+        } catch (Exception e) {
+            Log.e(TAG, "Upvote roll-up of " + reportId + " failed: " + e.getMessage());
+            return Result.retry();
+        }
+    }
+}
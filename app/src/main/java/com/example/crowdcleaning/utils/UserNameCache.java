@@ -0,0 +1,62 @@
+package com.example.crowdcleaning.utils;
+
+import com.google.firebase.auth.FirebaseUser;
+import com.google.firebase.firestore.FirebaseFirestore;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Process-wide cache of user display names from the "users" collection, so writes
+ * that stamp a name (e.g. accepting a task) do not need to read the profile first.
+ */
+public class UserNameCache {
+
+    public interface NameCallback {
+        void onName(String name);
+    }
+
+    private static final Map<String, String> names = new HashMap<>();
+
+    private UserNameCache() {
+    }
+
+    public static synchronized String get(String uid) {
+        return names.get(uid);
+    }
+
+    public static synchronized void put(String uid, String name) {
+        if (uid != null && name != null) {
+            names.put(uid, name);
+        }
+    }
+
+    public static synchronized void clear() {
+        names.clear();
+    }
+
+    /**
+     * Delivers the user's name, reading the profile only on a cache miss. Falls back
+     * to the auth display name and then to the given default.
+     */
+    public static void load(FirebaseUser user, String defaultName, NameCallback callback) {
+        String cached = get(user.getUid());
+        if (cached != null) {
+            callback.onName(cached);
+            return;
+        }
+
+        FirebaseFirestore.getInstance().collection("users").document(user.getUid())
+                .get()
+                .addOnCompleteListener(task -> {
+                    String name = task.isSuccessful() && task.getResult() != null
+                            ? task.getResult().getString("name") : null;
+                    if (name != null) {
+                        put(user.getUid(), name);
+                    } else {
+                        name = user.getDisplayName() != null ? user.getDisplayName() : defaultName;
+                    }
+                    callback.onName(name);
+                });
+    }
+}
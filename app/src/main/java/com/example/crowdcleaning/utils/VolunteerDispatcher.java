@@ -0,0 +1,165 @@
+package com.example.crowdcleaning.utils;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.QuerySnapshot;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Feeds DispatchEngine from Firestore so admins can hand out open reports in bulk:
+ * volunteers' last known locations come from the "users" collection, their load from
+ * the reports they currently hold.
+ */
+public class VolunteerDispatcher {
+
+    private static final String TAG = "VolunteerDispatcher";
+
+    // Written by the volunteer dashboard whenever it gets a location fix
+    public static final String FIELD_LAST_LATITUDE = "lastLatitude";
+    public static final String FIELD_LAST_LONGITUDE = "lastLongitude";
+    public static final String FIELD_LAST_LOCATION_AT = "lastLocationAt";
+
+    public static class Suggestion {
+        public final String reportId;
+        public final String volunteerId;
+        public final String volunteerName;
+        public final double distanceMeters;
+
+        Suggestion(String reportId, String volunteerId, String volunteerName, double distanceMeters) {
+            this.reportId = reportId;
+            this.volunteerId = volunteerId;
+            this.volunteerName = volunteerName;
+            this.distanceMeters = distanceMeters;
+        }
+    }
+
+    public interface SuggestionCallback {
+        void onSuggestions(List<Suggestion> suggestions, int openReports, int volunteers);
+        void onError(Exception e);
+    }
+
+    public interface PushCallback {
+        void onPushed(int assigned, int alreadyTaken, int failed);
+    }
+
+    private static final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    private VolunteerDispatcher() {
+    }
+
+    /**
+     * Loads volunteers and open reports and runs the bulk assignment off the main thread.
+     * The callback runs on the main thread.
+     */
+    public static void suggestAssignments(SuggestionCallback callback) {
+        FirebaseFirestore db = FirebaseFirestore.getInstance();
+        Task<QuerySnapshot> volunteersTask = db.collection("users")
+                .whereEqualTo("role", "volunteer").get();
+        Task<QuerySnapshot> heldTask = db.collection("reports")
+                .whereIn("status", StatusConstants.ACTIVE_TASK_STATUSES).get();
+        Task<QuerySnapshot> availableTask = db.collection("reports")
+                .whereIn("status", StatusConstants.AVAILABLE_STATUSES).get();
+
+        Tasks.whenAllSuccess(volunteersTask, heldTask, availableTask)
+                .addOnSuccessListener(results -> executor.execute(() -> {
+                    Map<String, Integer> openTasks = new HashMap<>();
+                    for (DocumentSnapshot report : heldTask.getResult().getDocuments()) {
+                        String volunteerId = report.getString("volunteerAssigned");
+                        if (volunteerId != null && !volunteerId.isEmpty()) {
+                            Integer count = openTasks.get(volunteerId);
+                            openTasks.put(volunteerId, count == null ? 1 : count + 1);
+                        }
+                    }
+
+                    DispatchEngine engine = new DispatchEngine();
+                    Map<String, String> names = new HashMap<>();
+                    for (DocumentSnapshot user : volunteersTask.getResult().getDocuments()) {
+                        Double latitude = user.getDouble(FIELD_LAST_LATITUDE);
+                        Double longitude = user.getDouble(FIELD_LAST_LONGITUDE);
+                        // Volunteers who never shared a location cannot be ranked
+                        if (latitude == null || longitude == null) continue;
+
+                        Integer count = openTasks.get(user.getId());
+                        engine.updateVolunteer(user.getId(), latitude, longitude, count == null ? 0 : count);
+                        names.put(user.getId(), user.getString("name"));
+                    }
+
+                    List<DispatchEngine.PendingReport> pending = new ArrayList<>();
+                    for (DocumentSnapshot report : availableTask.getResult().getDocuments()) {
+                        Double latitude = report.getDouble("latitude");
+                        Double longitude = report.getDouble("longitude");
+                        String assignedTo = report.getString("volunteerAssigned");
+                        if (latitude == null || longitude == null || (latitude == 0 && longitude == 0)
+                                || (assignedTo != null && !assignedTo.isEmpty())) {
+                            continue;
+                        }
+                        pending.add(new DispatchEngine.PendingReport(report.getId(), latitude, longitude));
+                    }
+
+                    List<Suggestion> suggestions = new ArrayList<>();
+                    for (Map.Entry<String, DispatchEngine.Match> entry : engine.assignAll(pending).entrySet()) {
+                        DispatchEngine.Match match = entry.getValue();
+                        suggestions.add(new Suggestion(entry.getKey(), match.volunteerId,
+                                names.get(match.volunteerId), match.distanceMeters));
+                    }
+                    Log.d(TAG, "Suggested " + suggestions.size() + " of " + pending.size()
+                            + " open reports across " + engine.size() + " volunteers");
+
+                    int volunteerCount = engine.size();
+                    new Handler(Looper.getMainLooper()).post(() ->
+                            callback.onSuggestions(suggestions, pending.size(), volunteerCount));
+                }))
+                .addOnFailureListener(callback::onError);
+    }
+
+    /**
+     * Applies the suggestions. Each one is its own transaction, so a report a volunteer
+     * accepted in the meantime is left alone and counted as already taken.
+     */
+    public static void pushAssignments(List<Suggestion> suggestions, PushCallback callback) {
+        if (suggestions.isEmpty()) {
+            callback.onPushed(0, 0, 0);
+            return;
+        }
+
+        AtomicInteger remaining = new AtomicInteger(suggestions.size());
+        int[] counts = new int[3];
+        for (Suggestion suggestion : suggestions) {
+            String name = suggestion.volunteerName != null ? suggestion.volunteerName : "Volunteer";
+            ReportTransitions.acceptTask(suggestion.reportId, suggestion.volunteerId, name,
+                    new ReportTransitions.TransitionCallback() {
+                        @Override
+                        public void onResult(ReportTransitions.Outcome outcome, String currentStatus) {
+                            counts[outcome == ReportTransitions.Outcome.UPDATED ? 0 : 1]++;
+                            finishOne();
+                        }
+
+                        @Override
+                        public void onError(Exception e) {
+                            Log.e(TAG, "Could not assign report " + suggestion.reportId, e);
+                            counts[2]++;
+                            finishOne();
+                        }
+
+                        private void finishOne() {
+                            if (remaining.decrementAndGet() == 0) {
+                                callback.onPushed(counts[0], counts[1], counts[2]);
+                            }
+                        }
+                    });
+        }
+    }
+}
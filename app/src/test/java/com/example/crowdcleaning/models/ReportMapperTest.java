@@ -0,0 +1,122 @@
+package com.example.crowdcleaning.models;
+
+import com.google.firebase.Timestamp;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class ReportMapperTest {
+
+    @Test
+    public void timestampUnion_isDecoded() {
+        long millis = 1_700_000_000_123L;
+
+        assertEquals(millis, ReportMapper.toMillis(new Timestamp(new Date(millis)), 0));
+        assertEquals(millis, ReportMapper.toMillis(millis, 0));
+        assertEquals(millis, ReportMapper.toMillis(new Date(millis), 0));
+        assertEquals(42L, ReportMapper.toMillis("not a timestamp", 42L));
+    }
+
+    @Test
+    public void legacySingleImageUrl_becomesList() {
+        Map<String, Object> data = new HashMap<>();
+        data.put("title", "Bin");
+        data.put("imageUrl", "https://example.com/a.jpg");
+
+        ReportModel report = ReportMapper.fromMap("r1", data);
+
+        assertEquals("https://example.com/a.jpg", report.getImageUrl());
+        assertEquals(1, report.getImageUrls().size());
+    }
+
+    @Test
+    public void imageUrlsArray_winsOverSingleUrl() {
+        Map<String, Object> data = new HashMap<>();
+        data.put("imageUrl", "https://example.com/old.jpg");
+        data.put("imageUrls", Arrays.asList("https://example.com/1.jpg", "https://example.com/2.jpg"));
+
+        ReportModel report = ReportMapper.fromMap("r2", data);
+
+        assertEquals("https://example.com/1.jpg", report.getImageUrl());
+        assertEquals(2, report.getImageUrls().size());
+    }
+
+    @Test
+    public void renditionUrls_areRead() {
+        Map<String, Object> data = new HashMap<>();
+        data.put("imageUrls", Arrays.asList("https://example.com/1.jpg", "https://example.com/2.jpg"));
+        data.put("thumbnailUrls", Arrays.asList("https://example.com/1_t.jpg", "https://example.com/2_t.jpg"));
+        data.put("mediumUrls", Arrays.asList("https://example.com/1_m.jpg", "https://example.com/2_m.jpg"));
+
+        ReportModel report = ReportMapper.fromMap("r3", data);
+
+        assertEquals("https://example.com/1_t.jpg", report.getThumbnailUrl());
+        assertEquals("https://example.com/1_m.jpg", report.getMediumUrl());
+        assertEquals(2, report.getThumbnailUrls().size());
+        assertNull(ReportMapper.fromMap("r4", new HashMap<>()).getThumbnailUrl());
+    }
+
+    @Test
+    public void missingFields_useDefaults() {
+        Map<String, Object> data = new HashMap<>();
+        data.put("latitude", 12L);
+        data.put("upvotes", "bad type");
+
+        ReportModel report = ReportMapper.fromMap("r3", data);
+
+        assertEquals("r3", report.getId());
+        assertEquals("No Title", report.getTitle());
+        assertEquals("reported", report.getStatus());
+        assertEquals(12.0, report.getLatitude(), 0.0);
+        assertEquals(0, report.getUpvotes());
+        assertTrue(report.getImageUrls().isEmpty());
+        assertSame(report.getImageUrls(), ReportMapper.fromMap("r4", new HashMap<>()).getImageUrls());
+    }
+
+    @Test
+    public void fullDocuments_decodeEveryField() {
+        ReportModel even = ReportMapper.fromMap("id2", sampleDocument(2));
+        assertEquals("id2", even.getId());
+        assertEquals("Overflowing bin 2", even.getTitle());
+        assertEquals("Market Street 2", even.getAddress());
+        assertEquals("reported", even.getStatus());
+        assertEquals(2L, even.getUpvotes());
+        assertEquals(40.0002, even.getLatitude(), 1e-9);
+        assertEquals(1_700_000_000_002L, even.getTimestamp());
+        assertEquals("https://example.com/2.jpg", even.getImageUrl());
+
+        ReportModel odd = ReportMapper.fromMap("id3", sampleDocument(3));
+        assertEquals("assigned", odd.getStatus());
+        assertEquals(1_700_000_000_003L, odd.getTimestamp());
+        assertEquals(1, odd.getImageUrls().size());
+        assertEquals("citizen3@example.com", odd.getUserEmail());
+    }
+
+    private static Map<String, Object> sampleDocument(int i) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("title", "Overflowing bin " + i);
+        data.put("description", "Garbage pile near the market");
+        data.put("address", "Market Street " + i);
+        data.put("status", i % 3 == 0 ? "assigned" : "reported");
+        data.put("latitude", 40.0 + i * 1e-4);
+        data.put("longitude", -74.0 - i * 1e-4);
+        data.put("upvotes", (long) (i % 7));
+        data.put("userName", "citizen" + i);
+        data.put("userEmail", "citizen" + i + "@example.com");
+        data.put("volunteerAssigned", "");
+        if (i % 2 == 0) {
+            data.put("timestamp", new Timestamp(new Date(1_700_000_000_000L + i)));
+            data.put("imageUrls", Arrays.asList("https://example.com/" + i + ".jpg"));
+        } else {
+            data.put("timestamp", new Date(1_700_000_000_000L + i));
+            data.put("imageUrl", "https://example.com/" + i + ".jpg");
+        }
+        return data;
+    }
+}
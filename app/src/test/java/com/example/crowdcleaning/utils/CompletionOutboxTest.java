@@ -0,0 +1,34 @@
+package com.example.crowdcleaning.utils;
+
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class CompletionOutboxTest {
+
+    @Test
+    public void entry_keepsUploadedUrlsAndPendingImages() throws Exception {
+        File outboxDir = new File("/outbox");
+        File entryDir = new File(outboxDir, "key1");
+        CompletionOutbox.Entry entry = new CompletionOutbox.Entry("key1", 42L, "report1", "uid1", null,
+                "Cleared the spot",
+                Arrays.asList(new File(entryDir, "0.jpg"), new File(entryDir, "1.jpg")),
+                new ArrayList<>(Arrays.asList("https://example.com/0.jpg", null)));
+
+        String written = CompletionOutbox.toJson(entry).toString();
+        CompletionOutbox.Entry read = CompletionOutbox.fromJson(new JSONObject(written), outboxDir);
+
+        assertEquals("report1", read.reportId);
+        assertEquals("uid1", read.volunteerId);
+        assertNull(read.volunteerName);
+        assertEquals("Cleared the spot", read.notes);
+        assertEquals(42L, read.createdAt);
+        assertEquals(entry.images, read.images);
+        assertEquals(Arrays.asList("https://example.com/0.jpg", null), read.imageUrls);
+    }
+}
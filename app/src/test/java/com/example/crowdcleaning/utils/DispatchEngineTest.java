@@ -0,0 +1,153 @@
+package com.example.crowdcleaning.utils;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class DispatchEngineTest {
+
+    @Test
+    public void nearestVolunteer_isSuggestedFirst() {
+        DispatchEngine engine = new DispatchEngine();
+        engine.updateVolunteer("far", 40.80, -74.00, 0);
+        engine.updateVolunteer("near", 40.71, -74.00, 0);
+        engine.updateVolunteer("middle", 40.75, -74.00, 0);
+
+        List<DispatchEngine.Match> best = engine.findBest(40.70, -74.00, 2);
+
+        assertEquals(2, best.size());
+        assertEquals("near", best.get(0).volunteerId);
+        assertEquals("middle", best.get(1).volunteerId);
+        assertEquals(1112, best.get(0).distanceMeters, 5);
+    }
+
+    @Test
+    public void openTasks_pushVolunteerDownTheRanking() {
+        DispatchEngine engine = new DispatchEngine();
+        // 1 km away but busy with 3 tasks (6 km of penalty) vs 4 km away and idle
+        engine.updateVolunteer("busy", 40.709, -74.00, 3);
+        engine.updateVolunteer("idle", 40.736, -74.00, 0);
+
+        List<DispatchEngine.Match> best = engine.findBest(40.70, -74.00, 2);
+
+        assertEquals("idle", best.get(0).volunteerId);
+        assertEquals("busy", best.get(1).volunteerId);
+        assertEquals(3, best.get(1).openTasks);
+    }
+
+    @Test
+    public void volunteersAtCapacityOrOutOfRange_areSkipped() {
+        DispatchEngine engine = new DispatchEngine(DispatchEngine.DEFAULT_CELL_DEGREES,
+                DispatchEngine.DEFAULT_LOAD_PENALTY_METERS, 10_000, 2);
+        engine.updateVolunteer("full", 40.70, -74.00, 2);
+        engine.updateVolunteer("distant", 41.00, -74.00, 0);
+
+        assertTrue(engine.findBest(40.70, -74.00, 5).isEmpty());
+
+        engine.setOpenTasks("full", 1);
+        assertEquals("full", engine.findBest(40.70, -74.00, 5).get(0).volunteerId);
+
+        engine.removeVolunteer("full");
+        assertTrue(engine.findBest(40.70, -74.00, 5).isEmpty());
+        assertEquals(1, engine.size());
+    }
+
+    @Test
+    public void movedVolunteer_isFoundAtNewLocation() {
+        DispatchEngine engine = new DispatchEngine();
+        engine.updateVolunteer("v", 51.50, -0.12, 0);
+        engine.updateVolunteer("v", 40.70, -74.00, 0);
+
+        assertTrue(engine.findBest(51.50, -0.12, 1).isEmpty());
+        assertEquals("v", engine.findBest(40.70, -74.00, 1).get(0).volunteerId);
+    }
+
+    @Test
+    public void searchAcrossAntimeridian_findsNeighbour() {
+        DispatchEngine engine = new DispatchEngine();
+        engine.updateVolunteer("east", -17.0, 179.99, 0);
+
+        List<DispatchEngine.Match> best = engine.findBest(-17.0, -179.99, 1);
+
+        assertEquals(1, best.size());
+        assertEquals(2127, best.get(0).distanceMeters, 10);
+    }
+
+    @Test
+    public void topK_matchesBruteForce() {
+        Random random = new Random(7);
+        DispatchEngine engine = new DispatchEngine();
+        List<double[]> volunteers = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            double[] v = {40.5 + random.nextDouble() * 0.6, -74.3 + random.nextDouble() * 0.6, random.nextInt(5)};
+            volunteers.add(v);
+            engine.updateVolunteer("v" + i, v[0], v[1], (int) v[2]);
+        }
+
+        for (int q = 0; q < 300; q++) {
+            double lat = 40.4 + random.nextDouble() * 0.8;
+            double lon = -74.4 + random.nextDouble() * 0.8;
+            List<DispatchEngine.Match> best = engine.findBest(lat, lon, 5);
+
+            List<Double> costs = new ArrayList<>();
+            for (double[] v : volunteers) {
+                costs.add(GeoHash.distanceMeters(lat, lon, v[0], v[1])
+                        + DispatchEngine.DEFAULT_LOAD_PENALTY_METERS * v[2]);
+            }
+            costs.sort(Double::compare);
+
+            assertEquals(5, best.size());
+            for (int i = 0; i < 5; i++) {
+                assertEquals(costs.get(i), best.get(i).cost, 1e-6);
+            }
+        }
+    }
+
+    @Test
+    public void assignAll_spreadsLoadAndRespectsCapacity() {
+        DispatchEngine engine = new DispatchEngine(DispatchEngine.DEFAULT_CELL_DEGREES,
+                DispatchEngine.DEFAULT_LOAD_PENALTY_METERS, DispatchEngine.DEFAULT_MAX_DISTANCE_METERS, 2);
+        engine.updateVolunteer("a", 40.70, -74.00, 0);
+        engine.updateVolunteer("b", 40.72, -74.00, 0);
+
+        List<DispatchEngine.PendingReport> reports = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            reports.add(new DispatchEngine.PendingReport("r" + i, 40.70, -74.00));
+        }
+        Map<String, DispatchEngine.Match> assignments = engine.assignAll(reports);
+
+        // Two volunteers with room for two tasks each, the fifth report stays open
+        assertEquals(4, assignments.size());
+        assertFalse(assignments.containsKey("r4"));
+        assertEquals(2, engine.getVolunteer("a").getOpenTasks());
+        assertEquals(2, engine.getVolunteer("b").getOpenTasks());
+    }
+
+    @Test
+    public void bulkAssign_assignsEveryReportWithinCapacity() {
+        Random random = new Random(42);
+        // A metro area of roughly 110 km x 85 km
+        DispatchEngine engine = new DispatchEngine(DispatchEngine.DEFAULT_CELL_DEGREES,
+                DispatchEngine.DEFAULT_LOAD_PENALTY_METERS, DispatchEngine.DEFAULT_MAX_DISTANCE_METERS, 20);
+        for (int i = 0; i < 1_000; i++) {
+            engine.updateVolunteer("v" + i, 40.2 + random.nextDouble(), -74.5 + random.nextDouble(), random.nextInt(3));
+        }
+
+        List<DispatchEngine.PendingReport> reports = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            reports.add(new DispatchEngine.PendingReport("r" + i, 40.2 + random.nextDouble(), -74.5 + random.nextDouble()));
+        }
+
+        Map<String, DispatchEngine.Match> assignments = engine.assignAll(reports);
+
+        assertEquals(reports.size(), assignments.size());
+        for (int i = 0; i < 1_000; i++) {
+            assertTrue(engine.getVolunteer("v" + i).getOpenTasks() <= 20);
+        }
+    }
+}
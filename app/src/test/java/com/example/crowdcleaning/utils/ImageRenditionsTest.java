@@ -0,0 +1,42 @@
+package com.example.crowdcleaning.utils;
+
+import org.junit.Test;
+
+import java.io.File;
+
+import static org.junit.Assert.*;
+
+public class ImageRenditionsTest {
+
+    private static final String THUMB = "https://example.com/t.jpg";
+    private static final String MEDIUM = "https://example.com/m.jpg";
+    private static final String ORIGINAL = "https://example.com/o.jpg";
+
+    @Test
+    public void pick_returnsSmallestAdequateRendition() {
+        assertEquals(THUMB, ImageRenditions.pick(300, THUMB, MEDIUM, ORIGINAL));
+        assertEquals(THUMB, ImageRenditions.pick(480, THUMB, MEDIUM, ORIGINAL));
+        assertEquals(MEDIUM, ImageRenditions.pick(481, THUMB, MEDIUM, ORIGINAL));
+        assertEquals(MEDIUM, ImageRenditions.pick(1080, THUMB, MEDIUM, ORIGINAL));
+        assertEquals(ORIGINAL, ImageRenditions.pick(1440, THUMB, MEDIUM, ORIGINAL));
+    }
+
+    @Test
+    public void pick_fallsThroughMissingRenditions() {
+        assertEquals(ORIGINAL, ImageRenditions.pick(300, null, null, ORIGINAL));
+        assertEquals(MEDIUM, ImageRenditions.pick(300, "", MEDIUM, ORIGINAL));
+        assertEquals(ORIGINAL, ImageRenditions.pick(1080, THUMB, null, ORIGINAL));
+        assertEquals(MEDIUM, ImageRenditions.pick(2000, THUMB, MEDIUM, null));
+        assertNull(ImageRenditions.pick(300, null, null, null));
+    }
+
+    @Test
+    public void fileFor_isStableAndNextToTheOriginal() {
+        File original = new File("/outbox/key", "0.jpg");
+
+        assertEquals(new File("/outbox/key", "0_thumb.jpg"), ImageRenditions.fileFor(original, ImageRenditions.THUMBNAIL));
+        assertEquals(new File("/outbox/key", "0_medium.jpg"), ImageRenditions.fileFor(original, ImageRenditions.MEDIUM));
+        assertEquals(ImageRenditions.THUMBNAIL_SIZE, ImageRenditions.sizeOf(ImageRenditions.THUMBNAIL));
+        assertEquals(ImageRenditions.MEDIUM_SIZE, ImageRenditions.sizeOf(ImageRenditions.MEDIUM));
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.crowdcleaning.utils;
+
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class ReportOutboxTest {
+
+    @Test
+    public void entry_survivesWriteAndRead() throws Exception {
+        Map<String, Object> report = new HashMap<>();
+        report.put("title", "Overflowing bin");
+        report.put("latitude", 40.5);
+        report.put("volunteerName", null);
+        report.put("timestamp", new Date(1_700_000_000_000L));
+        report.put(DuplicateDetector.FIELD_IMAGE_HASHES, Arrays.asList("a1b2c3d4e5f60718", "0f1e2d3c4b5a6978"));
+
+        File outboxDir = new File("/outbox");
+        ReportOutbox.Entry entry = new ReportOutbox.Entry("key1", 42L, report, "imageUrls",
+                Collections.singletonList(new File(new File(outboxDir, "key1"), "0.jpg")),
+                Collections.singletonList("https://example.com/0.jpg"), null, null);
+
+        String written = ReportOutbox.toJson(entry).toString();
+        ReportOutbox.Entry read = ReportOutbox.fromJson(new JSONObject(written), outboxDir);
+
+        assertEquals(Arrays.asList("a1b2c3d4e5f60718", "0f1e2d3c4b5a6978"),
+                read.report.get(DuplicateDetector.FIELD_IMAGE_HASHES));
+        assertEquals("Overflowing bin", read.report.get("title"));
+        assertEquals(40.5, (Double) read.report.get("latitude"), 0);
+        assertTrue(read.report.containsKey("volunteerName"));
+        assertNull(read.report.get("volunteerName"));
+        assertEquals(new Date(1_700_000_000_000L), read.report.get("timestamp"));
+        assertEquals(42L, read.createdAt);
+        assertEquals(entry.images, read.images);
+        assertEquals(entry.imageUrls, read.imageUrls);
+        assertNull(read.thumbnailUrls);
+    }
+}
@@ -0,0 +1,143 @@
+package com.example.crowdcleaning.utils;
+
+import com.example.crowdcleaning.models.ReportModel;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class ReportSearchIndexTest {
+
+    private static final String[] WORDS = {
+            "overflowing", "bin", "near", "the", "market", "plastic", "bottles", "park", "river",
+            "bank", "street", "corner", "school", "bus", "stop", "construction", "debris", "garbage",
+            "dump", "main", "road", "station", "behind", "mall", "leaves", "broken", "glass", "bags",
+            "mattress", "tyres", "north", "south", "avenue", "lane", "bridge", "canal", "beach"
+    };
+
+    @Test
+    public void prefixWords_matchAcrossFields() {
+        ReportSearchIndex index = new ReportSearchIndex();
+        index.put(report("1", "Overflowing bin", "Next to the fish stalls", "Central Market"));
+        index.put(report("2", "Plastic bottles", "Along the river bank", "River Road"));
+        index.put(report("3", "Bin fire", "Smoke near the caf\u00e9", "Market Street"));
+
+        assertEquals(ids("1"), new HashSet<>(index.search("overfl bin market", 10)));
+        assertEquals(ids("1", "3"), new HashSet<>(index.search("BIN mark", 10)));
+        assertEquals(ids("3"), new HashSet<>(index.search("cafe", 10)));
+        assertEquals(ids("2"), new HashSet<>(index.search("riv", 10)));
+        assertTrue(index.search("bin river", 10).isEmpty());
+        assertTrue(index.search("   ", 10).isEmpty());
+    }
+
+    @Test
+    public void updatesAndRemovals_areReflected() {
+        ReportSearchIndex index = new ReportSearchIndex();
+        index.put(report("1", "Overflowing bin", "", "Central Market"));
+        index.put(report("1", "Cleared bin", "", "Central Market"));
+
+        assertTrue(index.search("overflowing", 10).isEmpty());
+        assertEquals(ids("1"), new HashSet<>(index.search("cleared", 10)));
+        assertEquals(1, index.size());
+
+        index.remove("1");
+        assertTrue(index.search("bin", 10).isEmpty());
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    public void results_areNewestFirstAndLimited() {
+        ReportSearchIndex index = new ReportSearchIndex();
+        for (int i = 0; i < 5; i++) {
+            index.put(report(String.valueOf(i), "Garbage bags", "", ""));
+        }
+
+        List<String> results = index.search("garb", 3);
+        assertEquals(3, results.size());
+        assertEquals("4", results.get(0));
+        assertEquals("3", results.get(1));
+        assertEquals("2", results.get(2));
+    }
+
+    @Test
+    public void randomQueries_matchBruteForce() {
+        Random random = new Random(17);
+        ReportSearchIndex index = new ReportSearchIndex();
+        List<ReportModel> reports = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            ReportModel report = randomReport(random, String.valueOf(i));
+            reports.add(report);
+            index.put(report);
+        }
+        // Rewrite some, so the incremental update path is covered too
+        for (int i = 0; i < 500; i++) {
+            int position = random.nextInt(reports.size());
+            ReportModel report = randomReport(random, reports.get(position).getId());
+            reports.set(position, report);
+            index.put(report);
+        }
+
+        for (int round = 0; round < 300; round++) {
+            String query = WORDS[random.nextInt(WORDS.length)].substring(0, 1 + random.nextInt(3));
+            if (random.nextBoolean()) {
+                query += " " + WORDS[random.nextInt(WORDS.length)];
+            }
+
+            Set<String> expected = new HashSet<>();
+            for (ReportModel report : reports) {
+                if (matchesByBruteForce(report, query)) {
+                    expected.add(report.getId());
+                }
+            }
+            assertEquals(expected, new HashSet<>(index.search(query, Integer.MAX_VALUE)));
+        }
+    }
+
+    private static boolean matchesByBruteForce(ReportModel report, String query) {
+        List<String> words = new ArrayList<>();
+        words.addAll(ReportSearchIndex.tokenize(report.getTitle()));
+        words.addAll(ReportSearchIndex.tokenize(report.getDescription()));
+        words.addAll(ReportSearchIndex.tokenize(report.getAddress()));
+        for (String prefix : ReportSearchIndex.tokenize(query)) {
+            boolean found = false;
+            for (String word : words) {
+                if (word.startsWith(prefix)) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) return false;
+        }
+        return true;
+    }
+
+    private static ReportModel randomReport(Random random, String id) {
+        return report(id, phrase(random, 2 + random.nextInt(3)), phrase(random, 5 + random.nextInt(15)),
+                (1 + random.nextInt(999)) + " " + phrase(random, 2));
+    }
+
+    private static String phrase(Random random, int words) {
+        StringBuilder phrase = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            if (i > 0) phrase.append(' ');
+            phrase.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return phrase.toString();
+    }
+
+    private static ReportModel report(String id, String title, String description, String address) {
+        return new ReportModel(id, title, description, address, "reported", null, 0, 0, 0, 0);
+    }
+
+    private static Set<String> ids(String... ids) {
+        Set<String> set = new HashSet<>();
+        for (String id : ids) set.add(id);
+        return set;
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.crowdcleaning.utils;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class RoutePlannerTest {
+
+    @Test
+    public void emptyAndSingleStop() {
+        assertEquals(0, RoutePlanner.plan(40.7, -74.0, new double[0], new double[0]).length);
+
+        int[] order = RoutePlanner.plan(40.7, -74.0, new double[]{40.8}, new double[]{-74.1});
+        assertEquals(1, order.length);
+        assertEquals(0, order[0]);
+    }
+
+    @Test
+    public void stopsAlongAStreet_areVisitedInLine() {
+        // Given out of order, all north of the start on the same meridian
+        double[] latitudes = {40.74, 40.71, 40.73, 40.72};
+        double[] longitudes = {-74.0, -74.0, -74.0, -74.0};
+
+        int[] order = RoutePlanner.plan(40.70, -74.0, latitudes, longitudes);
+
+        assertEquals(1, order[0]);
+        assertEquals(3, order[1]);
+        assertEquals(2, order[2]);
+        assertEquals(0, order[3]);
+    }
+
+    @Test
+    public void smallRoutes_areCloseToOptimal() {
+        Random random = new Random(5);
+        double totalRatio = 0;
+        int rounds = 200;
+        for (int round = 0; round < rounds; round++) {
+            double[] latitudes = new double[7];
+            double[] longitudes = new double[7];
+            for (int i = 0; i < 7; i++) {
+                latitudes[i] = 40.6 + random.nextDouble() * 0.2;
+                longitudes[i] = -74.1 + random.nextDouble() * 0.2;
+            }
+
+            int[] order = RoutePlanner.plan(40.7, -74.0, latitudes, longitudes);
+            double planned = RoutePlanner.routeLength(40.7, -74.0, latitudes, longitudes, order);
+            double optimal = shortestByBruteForce(latitudes, longitudes, new int[7], new boolean[7], 0);
+
+            assertTrue(planned <= optimal * 1.25);
+            totalRatio += planned / optimal;
+        }
+        assertTrue(totalRatio / rounds < 1.03);
+    }
+
+    @Test
+    public void plan_isPermutationAndNotWorseThanInputOrder() {
+        Random random = new Random(11);
+        for (int round = 0; round < 50; round++) {
+            int n = 2 + random.nextInt(30);
+            double[] latitudes = new double[n];
+            double[] longitudes = new double[n];
+            int[] inputOrder = new int[n];
+            for (int i = 0; i < n; i++) {
+                latitudes[i] = 40.6 + random.nextDouble() * 0.2;
+                longitudes[i] = -74.1 + random.nextDouble() * 0.2;
+                inputOrder[i] = i;
+            }
+
+            int[] order = RoutePlanner.plan(40.7, -74.0, latitudes, longitudes);
+
+            boolean[] seen = new boolean[n];
+            for (int stop : order) {
+                assertFalse(seen[stop]);
+                seen[stop] = true;
+            }
+            assertTrue(RoutePlanner.routeLength(40.7, -74.0, latitudes, longitudes, order)
+                    <= RoutePlanner.routeLength(40.7, -74.0, latitudes, longitudes, inputOrder) + 1e-6);
+        }
+    }
+
+    private static double shortestByBruteForce(double[] latitudes, double[] longitudes,
+                                               int[] order, boolean[] used, int position) {
+        if (position == order.length) {
+            return RoutePlanner.routeLength(40.7, -74.0, latitudes, longitudes, order);
+        }
+        double best = Double.MAX_VALUE;
+        for (int stop = 0; stop < order.length; stop++) {
+            if (used[stop]) continue;
+            used[stop] = true;
+            order[position] = stop;
+            best = Math.min(best, shortestByBruteForce(latitudes, longitudes, order, used, position + 1));
+            used[stop] = false;
+        }
+        return best;
+    }
+}
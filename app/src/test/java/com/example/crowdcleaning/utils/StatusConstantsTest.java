@@ -0,0 +1,18 @@
+package com.example.crowdcleaning.utils;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class StatusConstantsTest {
+
+    @Test
+    public void isUnassigned_acceptsEveryLegacyEmptyValue() {
+        assertTrue(StatusConstants.isUnassigned(null));
+        assertTrue(StatusConstants.isUnassigned(""));
+        assertTrue(StatusConstants.isUnassigned("  "));
+        assertTrue(StatusConstants.isUnassigned("null"));
+        assertTrue(StatusConstants.isUnassigned(" Unassigned "));
+        assertFalse(StatusConstants.isUnassigned("uid123"));
+    }
+}